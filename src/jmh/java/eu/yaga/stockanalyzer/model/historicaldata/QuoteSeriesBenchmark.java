@@ -0,0 +1,121 @@
+package eu.yaga.stockanalyzer.model.historicaldata;
+
+import org.openjdk.jmh.annotations.*;
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rate progress computation over large quote series<br/>
+ * One operation computes the progress of the last twelve months, month by month. The list benchmark looks up
+ * the last quote on or before each date in a list of quotes, like the rate progress did before the {@link QuoteSeries}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteSeriesBenchmark {
+
+    private static final String SYMBOL = "ABC.DE";
+    private static final int MONTHS = 12;
+
+    // number of trading days, about 250 per year
+    @Param({"1000", "10000", "100000"})
+    private int tradingDays;
+
+    private QuoteSeries series;
+    private List<HistoricalDataQuote> quotes;
+    private long[] monthEnds;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        int[] epochDays = new int[tradingDays];
+        double[] closes = new double[tradingDays];
+        LocalDate day = LocalDate.now();
+        double close = 100;
+        for (int i = tradingDays - 1; i >= 0; day = day.minusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                close = Math.max(1, close * (1 + (random.nextDouble() - 0.5) * 0.04));
+                epochDays[i] = (int) day.toEpochDay();
+                closes[i] = close;
+                i--;
+            }
+        }
+        series = new QuoteSeries(SYMBOL, epochDays, closes);
+        quotes = new ArrayList<>(series.toQuoteList());
+
+        monthEnds = new long[MONTHS + 1];
+        LocalDate today = LocalDate.now();
+        for (int month = 0; month <= MONTHS; month++) {
+            LocalDate monthEnd = today.minusMonths(month);
+            monthEnds[month] = monthEnd.withDayOfMonth(monthEnd.lengthOfMonth()).toEpochDay();
+        }
+    }
+
+    @Benchmark
+    public double[] progressOverSeries() {
+        double[] progress = new double[MONTHS];
+        for (int month = 0; month < MONTHS; month++) {
+            progress[month] = series.getProgress(monthEnds[month], monthEnds[month + 1]);
+        }
+        return progress;
+    }
+
+    @Benchmark
+    public double[] progressOverQuoteList() {
+        double[] progress = new double[MONTHS];
+        for (int month = 0; month < MONTHS; month++) {
+            double base = lastCloseOnOrBefore(LocalDate.ofEpochDay(monthEnds[month]).toString());
+            double compare = lastCloseOnOrBefore(LocalDate.ofEpochDay(monthEnds[month + 1]).toString());
+            progress[month] = (base - compare) / compare * 100;
+        }
+        return progress;
+    }
+
+    @Benchmark
+    public QuoteSeries seriesFromQuoteList() {
+        return QuoteSeries.of(SYMBOL, quotes);
+    }
+
+    @Benchmark
+    public double sliceOfLastYear() {
+        long today = monthEnds[0];
+        QuoteSeries lastYear = series.slice(today - 365, today);
+        return lastYear.getProgress(lastYear.size() - 1, 0);
+    }
+
+    @Benchmark
+    public double quoteListView() {
+        double sum = 0;
+        for (HistoricalDataQuote quote : series.toQuoteList()) {
+            sum += quote.getClose();
+        }
+        return sum;
+    }
+
+    private double lastCloseOnOrBefore(String date) {
+        double close = Double.NaN;
+        for (HistoricalDataQuote quote : quotes) {
+            if (quote.getDate().compareTo(date) > 0) {
+                break;
+            }
+            close = quote.getClose();
+        }
+        return close;
+    }
+
+    @TearDown
+    public void check() {
+        if (!Arrays.equals(progressOverSeries(), progressOverQuoteList())) {
+            throw new IllegalStateException("The progress over the series and over the quotes differ");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package eu.yaga.stockanalyzer.parser;
+
+import ch.qos.logback.classic.Level;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the analyst estimation and earnings revision parsers<br/>
+ * There are no recorded pages of these sources, so the parsed snippets are embedded in unrelated markup
+ * of about the size of the real pages. The snippets are placed at the end, so every pattern has to scan the whole page.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalystPageParserBenchmark {
+
+    private static final String DIBA_SNIPPET =
+            "<div class=\"sh_analysis_col sh_analysis_col_1\">\n<span>Kaufen</span>\n</div>\n12\n" +
+            "<div class=\"sh_analysis_col sh_analysis_col_2\">\n<span>Halten</span>\n</div>\n7\n" +
+            "<div class=\"sh_analysis_col sh_analysis_col_3\">\n<span>Verkaufen</span>\n</div>\n3\n";
+
+    private static final String YAHOO_SNIPPET =
+            "<tr>\n<td class=\"yfnc_tablehead1\" width=\"74%\">Durchschn. Empfehlung (diese Woche):</td>\n" +
+            "<td class=\"yfnc_tabledata1\">\n2,3\n</td>\n</tr>\n";
+
+    private static final String FINANZEN_NET_SNIPPET =
+            "<tr><td>Positive Analystenhaltung</td><td>3</td></tr>\n";
+
+    // number of unrelated elements before the snippet, the pages are a few hundred kilobytes
+    @Param({"2000"})
+    private int fillerRows;
+
+    private String dibaHtml;
+    private String yahooHtml;
+    private String finanzenNetHtml;
+
+    @Setup
+    public void setup() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        StringBuilder filler = new StringBuilder();
+        for (int i = 0; i < fillerRows; i++) {
+            filler.append("<div class=\"teaser\">\n<td class=\"INFOTEXT\">Nachricht ").append(i).append("</td>\n")
+                    .append("<a href=\"/news/").append(i).append("\">Mehr</a>\n</div>\n");
+        }
+        dibaHtml = "<html><body>" + filler + DIBA_SNIPPET + "</body></html>";
+        yahooHtml = "<html><body><table>" + filler + YAHOO_SNIPPET + "</table></body></html>";
+        finanzenNetHtml = "<html><body><table>" + filler + FINANZEN_NET_SNIPPET + "</table></body></html>";
+    }
+
+    @Benchmark
+    public FundamentalData diba() {
+        return DibaParser.parseAnalystEstimation(dibaHtml, new FundamentalData());
+    }
+
+    @Benchmark
+    public FundamentalData yahoo() {
+        return YahooParser.parseAnalystEstimation(yahooHtml, new FundamentalData());
+    }
+
+    @Benchmark
+    public FundamentalData finanzenNet() {
+        return FinanzenNetParser.parseEarningsRevisions(finanzenNetHtml, new FundamentalData());
+    }
+}
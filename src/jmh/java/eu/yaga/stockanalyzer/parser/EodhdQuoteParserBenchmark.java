@@ -0,0 +1,99 @@
+package eu.yaga.stockanalyzer.parser;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.openjdk.jmh.annotations.*;
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the decoding of eod responses, run it with the gc profiler to compare the allocations per operation<br/>
+ * There is no recorded response of eodhistoricaldata.com, so a response of ten years of trading days is generated
+ * with the fields and number formats of the api. The data bind benchmark decodes it like the fetcher did before
+ * the {@link EodhdQuoteParser}: into quote objects that are copied into historical quotes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EodhdQuoteParserBenchmark {
+
+    private static final String SYMBOL = "ABC";
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class EodhdQuote {
+        public String date;
+        public double close;
+    }
+
+    @Param({"10"})
+    private int years;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final EodhdQuoteParser parser = new EodhdQuoteParser();
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("[");
+        LocalDate day = LocalDate.now().minusYears(years);
+        double close = 100;
+        for (; !day.isAfter(LocalDate.now()); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            double open = close;
+            close = Math.max(1, close * (1 + (random.nextDouble() - 0.5) * 0.04));
+            json.append(json.length() > 1 ? "," : "")
+                    .append("{\"date\":\"").append(day).append('"')
+                    .append(String.format(Locale.US, ",\"open\":%.4f,\"high\":%.4f,\"low\":%.4f,\"close\":%.4f,\"adjusted_close\":%.4f",
+                            open, Math.max(open, close) * 1.01, Math.min(open, close) * 0.99, close, close * 0.97))
+                    .append(",\"volume\":").append(100000 + random.nextInt(900000)).append('}');
+        }
+        response = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public QuoteSeries streaming() throws IOException {
+        return parser.parse(SYMBOL, new ByteArrayInputStream(response), false);
+    }
+
+    @Benchmark
+    public QuoteSeries streamingAdjusted() throws IOException {
+        return parser.parse(SYMBOL, new ByteArrayInputStream(response), true);
+    }
+
+    @Benchmark
+    public List<HistoricalDataQuote> dataBind() throws IOException {
+        EodhdQuote[] quotes = objectMapper.readValue(new ByteArrayInputStream(response), EodhdQuote[].class);
+        List<HistoricalDataQuote> quoteList = new ArrayList<>();
+        for (EodhdQuote quote : quotes) {
+            quoteList.add(new HistoricalDataQuote(SYMBOL, quote.date, quote.close));
+        }
+        return quoteList;
+    }
+
+    @TearDown
+    public void check() throws IOException {
+        QuoteSeries series = streaming();
+        List<HistoricalDataQuote> quotes = dataBind();
+        if (series.size() != quotes.size() || series.getClose(series.size() - 1) != quotes.get(quotes.size() - 1).getClose()
+                || !series.getDate(0).toString().equals(quotes.get(0).getDate())) {
+            throw new IllegalStateException("The streaming and the data bind results differ");
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package eu.yaga.stockanalyzer.parser;
+
+import ch.qos.logback.classic.Level;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.StockType;
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks parsing the onvista fixture pages of the tests<br/>
+ * There are no recorded onvista pages, the fixtures are small hand-written pages in the table layout of onvista.
+ * They are embedded in a few hundred kilobytes of generated table rows, so the scores are those of a synthetic page
+ * and only compare the parsing approaches with each other, not with the parsing of real pages.
+ * The legacy benchmark repeats the first table and row scans that compiled every pattern per parse
+ * and used tempered-dot loops, the precompiled benchmark does the same scans with compiled possessive patterns
+ * like the parser used before it switched to the single-pass {@link OnVistaPage} reader.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OnVistaParserBenchmark {
+
+    private static final String[] LEGACY_ROWS = {
+            "<tr>\\s*<td[^/]*Gewinn pro Aktie in EUR((?!</tr>).)*</tr>",
+            "<tr>\\s*<td[^/]*Eigenkapitalrendite</td>((?!</tr>).)*</tr>",
+            "<tr>\\s*<td[^/]*Marktkapitalisierung in Mio. EUR</td>((?!</tr>).)*</tr>",
+            "<tr>\\s*<td[^/]*EBIT-Marge</td>((?!</tr>).)*</tr>",
+            "<tr>\\s*<td[^/]*Eigenkapitalquote</td>((?!</tr>).)*</tr>"
+    };
+
+    private static final String[] LEGACY_HEADERS = {
+            "<table><thead><tr><th>\\s*Gewinn\\s*((?!</tr>).)*</tr></thead><tbody>",
+            "<table><thead><tr><th>\\s*Rentabilität\\s*((?!</tr>).)*</tr></thead><tbody>",
+            "<table><thead><tr><th>\\s*Bilanz\\s*((?!</tr>).)*</tr></thead><tbody>"
+    };
+
+    private static final Pattern[] PRECOMPILED_HEADERS = {
+            Pattern.compile("<table><thead><tr><th>\\s*Gewinn\\s*(?:[^<]++|<(?!/tr>))*+</tr></thead><tbody>"),
+            Pattern.compile("<table><thead><tr><th>\\s*Rentabilität\\s*(?:[^<]++|<(?!/tr>))*+</tr></thead><tbody>"),
+            Pattern.compile("<table><thead><tr><th>\\s*Bilanz\\s*(?:[^<]++|<(?!/tr>))*+</tr></thead><tbody>")
+    };
+
+    private static final Pattern[] PRECOMPILED_ROWS = {
+            Pattern.compile("Gewinn pro Aktie in EUR(?:[^<]++|<(?!/tr>))*+</tr>"),
+            Pattern.compile("Eigenkapitalrendite</td>(?:[^<]++|<(?!/tr>))*+</tr>"),
+            Pattern.compile("Marktkapitalisierung in Mio. EUR</td>(?:[^<]++|<(?!/tr>))*+</tr>"),
+            Pattern.compile("EBIT-Marge</td>(?:[^<]++|<(?!/tr>))*+</tr>"),
+            Pattern.compile("Eigenkapitalquote</td>(?:[^<]++|<(?!/tr>))*+</tr>")
+    };
+
+    private static final Pattern HEADER_CELL_PATTERN = Pattern.compile("<th class=\"ZAHL\">((?:[^<]++|<(?!/))*+)</th>");
+    private static final Pattern NUMBER_CELL_PATTERN = Pattern.compile("<td class=\"ZAHL\">((?:[^<]++|<(?!/))*+)</td>");
+
+    // number of unrelated table rows around the figures, every scan has to pass them
+    @Param({"2000"})
+    private int fillerRows;
+
+    @Param({"abcde", "fghij", "klmno"})
+    private String page;
+
+    private OnVistaParser parser;
+    private String html;
+
+    @Setup
+    public void setup() throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        parser = new OnVistaParser();
+        ReflectionTestUtils.setField(parser, "historicalExchangeRateService", new FixedRateService());
+
+        StringBuilder filler = new StringBuilder();
+        for (int i = 0; i < fillerRows; i++) {
+            filler.append("<tr><td class=\"INFOTEXT\">Kennzahl ").append(i).append("</td><td class=\"ZAHL\">")
+                    .append(i).append(",00</td><td>Mehr zur <a href=\"/kennzahl/").append(i).append("\">Kennzahl</a></td></tr>\n");
+        }
+        html = "<table>" + filler + "</table>" + loadPage(page) + "<table>" + filler + "</table>";
+    }
+
+    @Benchmark
+    public FundamentalData parse() {
+        FundamentalData fd = new FundamentalData();
+        fd.setSymbol(page.toUpperCase() + ".DE");
+        // the finance page has no EBIT margin, like in the parser tests
+        fd.setStockType(page.equals("klmno") ? StockType.LARGE_FINANCE : StockType.LARGE_CAP);
+        return parser.getFundamentalData(html, fd);
+    }
+
+    @Benchmark
+    public List<String> legacyPatterns() {
+        List<String> cells = new ArrayList<>();
+        for (String header : LEGACY_HEADERS) {
+            collectLegacy(Pattern.compile(header), "(\\s*<th class=\"ZAHL\">(((?!</).)*)</th>\\s*)", cells);
+        }
+        for (String row : LEGACY_ROWS) {
+            collectLegacy(Pattern.compile(row), "(\\s*<td class=\"ZAHL\">(((?!</).)*)</td>\\s*)", cells);
+        }
+        return cells;
+    }
+
+    @Benchmark
+    public List<String> precompiledPatterns() {
+        return precompiledPatterns(html);
+    }
+
+    /**
+     * the regex scans need the whole page, like the response body used to be collected line by line
+     */
+    @Benchmark
+    public List<String> precompiledPatternsFromReader() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader br = new BufferedReader(new StringReader(html))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                sb.append(line);
+            }
+        }
+        return precompiledPatterns(sb.toString());
+    }
+
+    @Benchmark
+    public OnVistaPage singlePass() throws IOException {
+        return OnVistaPage.read(new StringReader(html));
+    }
+
+    private List<String> precompiledPatterns(String page) {
+        List<String> cells = new ArrayList<>();
+        for (Pattern header : PRECOMPILED_HEADERS) {
+            collect(page, header, HEADER_CELL_PATTERN, cells);
+        }
+        for (Pattern row : PRECOMPILED_ROWS) {
+            collect(page, row, NUMBER_CELL_PATTERN, cells);
+        }
+        return cells;
+    }
+
+    private void collect(String page, Pattern pattern, Pattern cellPattern, List<String> cells) {
+        // like the parser only the first table or row is used
+        Matcher matcher = pattern.matcher(page);
+        if (matcher.find()) {
+            Matcher cellMatcher = cellPattern.matcher(matcher.group(0));
+            while (cellMatcher.find()) {
+                cells.add(cellMatcher.group(1).trim());
+            }
+        }
+    }
+
+    private void collectLegacy(Pattern pattern, String cellPattern, List<String> cells) {
+        Matcher matcher = pattern.matcher(html);
+        while (matcher.find()) {
+            String out = matcher.group(0);
+            matcher = Pattern.compile(cellPattern).matcher(out);
+            while (matcher.find()) {
+                cells.add(matcher.group(2).trim());
+            }
+        }
+    }
+
+    private String loadPage(String name) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/onvista/" + name + ".html");
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+            int year = LocalDate.now().getYear();
+            return scanner.next()
+                    .replace("{Y-3}", String.valueOf(year - 3))
+                    .replace("{Y-2}", String.valueOf(year - 2))
+                    .replace("{Y-1}", String.valueOf(year - 1))
+                    .replace("{Y}", String.valueOf(year))
+                    .replace("{Y+1}", String.valueOf(year + 1));
+        }
+    }
+
+    private static class FixedRateService implements HistoricalExchangeRateService {
+
+        @Override
+        public List<HistoricalDataQuote> getHistoricalExchangeRates(String symbol, String dateStringFrom, String dateStringTo) {
+            return Collections.singletonList(new HistoricalDataQuote(symbol, LocalDate.now().minusDays(1).toString(), 42));
+        }
+
+        @Override
+        public double getReactionToQuarterlyFigures(FundamentalData fundamentalData) {
+            return 0;
+        }
+
+        @Override
+        public double getRateProgress6month(FundamentalData fundamentalData) {
+            return 0;
+        }
+
+        @Override
+        public double getRateProgress1year(FundamentalData fundamentalData) {
+            return 0;
+        }
+
+        @Override
+        public List<Double> getReversal3Month(FundamentalData fundamentalData) {
+            return Collections.emptyList();
+        }
+    }
+}
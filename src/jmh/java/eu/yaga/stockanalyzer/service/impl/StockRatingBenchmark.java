@@ -0,0 +1,142 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import ch.qos.logback.classic.Level;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.StockIndex;
+import eu.yaga.stockanalyzer.model.StockType;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import eu.yaga.stockanalyzer.util.IndexHistoryCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.threeten.bp.DateTimeUtils;
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZoneId;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rating a synthetic portfolio<br/>
+ * The rating uses the eodhistoricaldata.com rate service on top of an in-memory quote store,
+ * so the rate progress, reversal and quarterly figure reactions are computed on real series without any request.
+ * One operation rates the whole portfolio.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockRatingBenchmark {
+
+    private static final StockIndex[] INDICES = {StockIndex.DAX, StockIndex.MDAX, StockIndex.SDAX, StockIndex.TECDAX};
+
+    // years of daily closes kept per symbol, like a quote store after a while
+    private static final int STORED_YEARS = 3;
+
+    @Param({"100", "1000"})
+    private int portfolioSize;
+
+    private StockRatingBusinessServiceImpl ratingService;
+    private List<FundamentalData> portfolio;
+
+    @Setup
+    public void setup() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        Map<String, QuoteSeries> store = new ConcurrentHashMap<>();
+        for (StockIndex index : INDICES) {
+            store.put(index.getSymbol(), randomWalk(index.getSymbol(), today, random));
+        }
+
+        portfolio = new ArrayList<>();
+        StockType[] stockTypes = StockType.values();
+        for (int i = 0; i < portfolioSize; i++) {
+            String symbol = "S" + i + ".DE";
+            store.put(symbol, randomWalk(symbol, today, random));
+
+            FundamentalData fd = new FundamentalData();
+            fd.setSymbol(symbol);
+            fd.setStockIndex(INDICES[i % INDICES.length]);
+            fd.setStockType(stockTypes[i % stockTypes.length]);
+            fd.setRoe(5 + random.nextDouble() * 20);
+            fd.setEbit(2 + random.nextDouble() * 15);
+            fd.setEquityRatio(5 + random.nextDouble() * 40);
+            fd.setPerCurrent(5 + random.nextDouble() * 25);
+            fd.setPer5years(5 + random.nextDouble() * 25);
+            fd.setEpsCurrentYear(1 + random.nextDouble() * 3);
+            fd.setEpsNextYear(1 + random.nextDouble() * 3);
+            fd.setAnalystEstimation(1 + random.nextDouble() * 2);
+            fd.setAnalystEstimationCount(random.nextInt(20));
+            fd.setEarningsRevision(random.nextInt(13) - 6);
+            LocalDate lastQuarterlyFigures = today.minusDays(1 + random.nextInt(90));
+            fd.setLastQuarterlyFigures(DateTimeUtils.toDate(lastQuarterlyFigures.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+            portfolio.add(fd);
+        }
+
+        EodhdHistoricalExchangeRateServiceImpl rateService = new EodhdHistoricalExchangeRateServiceImpl();
+        ReflectionTestUtils.setField(rateService, "eodhdProperties", new EodhdProperties());
+        ReflectionTestUtils.setField(rateService, "indexHistoryCache", new IndexHistoryCache(64));
+        QuoteStoreService quoteStore = new QuoteStoreService() {
+            @Override
+            public QuoteSeries getQuoteSeries(String symbol, LocalDate from, LocalDate to, QuoteFetcher fetcher) {
+                return store.get(symbol).slice(from.toEpochDay(), to.toEpochDay());
+            }
+
+            @Override
+            public boolean appendClose(String symbol, LocalDate day, double close) {
+                // like the stored series, closes are only appended after the last stored day
+                int epochDay = (int) day.toEpochDay();
+                boolean[] appended = new boolean[1];
+                store.computeIfPresent(symbol, (key, series) -> {
+                    if (!series.isEmpty() && series.getEpochDay(series.size() - 1) >= epochDay) {
+                        return series;
+                    }
+                    int[] days = Arrays.copyOf(series.toEpochDayArray(), series.size() + 1);
+                    double[] closes = Arrays.copyOf(series.toCloseArray(), series.size() + 1);
+                    days[series.size()] = epochDay;
+                    closes[series.size()] = close;
+                    appended[0] = true;
+                    return new QuoteSeries(key, days, closes);
+                });
+                return appended[0];
+            }
+        };
+        ReflectionTestUtils.setField(rateService, "quoteStoreService", quoteStore);
+
+        ratingService = new StockRatingBusinessServiceImpl(rateService);
+    }
+
+    @Benchmark
+    public void ratePortfolio(Blackhole blackhole) {
+        for (FundamentalData fd : portfolio) {
+            blackhole.consume(ratingService.rate(fd).getOverallRating());
+        }
+    }
+
+    private static QuoteSeries randomWalk(String symbol, LocalDate today, Random random) {
+        LocalDate day = today.minusYears(STORED_YEARS);
+        int[] epochDays = new int[(int) (today.toEpochDay() - day.toEpochDay()) + 1];
+        double[] closes = new double[epochDays.length];
+        double close = 50 + random.nextDouble() * 100;
+        int size = 0;
+        for (; !day.isAfter(today); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                close = Math.max(1, close * (1 + (random.nextDouble() - 0.5) * 0.04));
+                epochDays[size] = (int) day.toEpochDay();
+                closes[size] = close;
+                size++;
+            }
+        }
+        return new QuoteSeries(symbol, Arrays.copyOf(epochDays, size), Arrays.copyOf(closes, size));
+    }
+}
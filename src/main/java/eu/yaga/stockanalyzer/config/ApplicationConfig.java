@@ -3,13 +3,27 @@ package eu.yaga.stockanalyzer.config;
 import eu.yaga.stockanalyzer.parser.OnVistaParser;
 import eu.yaga.stockanalyzer.service.*;
 import eu.yaga.stockanalyzer.service.impl.*;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import eu.yaga.stockanalyzer.util.HttpClientProperties;
+import eu.yaga.stockanalyzer.util.IndexHistoryCache;
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
+import eu.yaga.stockanalyzer.util.QuandlClient;
+import eu.yaga.stockanalyzer.util.QuandlProperties;
+import eu.yaga.stockanalyzer.util.QuoteProviderRouter;
+import eu.yaga.stockanalyzer.util.QuoteRoutingProperties;
+import eu.yaga.stockanalyzer.util.RatingBotProperties;
+import eu.yaga.stockanalyzer.util.RequestBudget;
 import eu.yaga.stockanalyzer.util.XUserAgentInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Spring Application Config
@@ -18,17 +32,79 @@ import java.util.Collections;
 public class ApplicationConfig {
 
     @Bean
+    @Primary
     public HistoricalExchangeRateService getHistoricalExchangeRateService() {
-        //return new YahooHistoricalExchangeRateServiceImpl();
-        //return new QuandlHistoricalExchangeRateServiceImpl();
         return new EodhdHistoricalExchangeRateServiceImpl();
     }
 
+    // the other rate services only provide quotes to the router
+    @Bean
+    public HistoricalExchangeRateService getYahooHistoricalExchangeRateService() {
+        return new YahooHistoricalExchangeRateServiceImpl();
+    }
+
+    @Bean
+    public HistoricalExchangeRateService getQuandlHistoricalExchangeRateService() {
+        return new QuandlHistoricalExchangeRateServiceImpl();
+    }
+
+    @Bean
+    public QuandlClient getQuandlClient(PooledHttpClient pooledHttpClient, QuandlProperties quandlProperties) {
+        return new QuandlClient(pooledHttpClient, quandlProperties);
+    }
+
+    @Bean
+    public EodhdQuoteFetcher getEodhdQuoteFetcher(RestTemplate restTemplate, ResolvedCodeService resolvedCodeService, RequestBudget requestBudget) {
+        return new EodhdQuoteFetcher(restTemplate, eodhdProperties, resolvedCodeService, requestBudget);
+    }
+
+    @Bean
+    public QuoteProviderRouter getQuoteProviderRouter(QuoteRoutingProperties quoteRoutingProperties, EodhdQuoteFetcher eodhdQuoteFetcher) {
+        Map<String, QuoteStoreService.QuoteFetcher> providers = new HashMap<>();
+        providers.put("eodhd", eodhdQuoteFetcher);
+        providers.put("quandl", QuoteProviderRouter.providerOf(getQuandlHistoricalExchangeRateService()));
+        providers.put("yahoo", QuoteProviderRouter.providerOf(getYahooHistoricalExchangeRateService()));
+        return new QuoteProviderRouter(providers, quoteRoutingProperties);
+    }
+
+    @Bean
+    public QuoteStoreService getQuoteStoreService() {
+        return new MongoQuoteStoreServiceImpl();
+    }
+
+    @Bean
+    public ResolvedCodeService getResolvedCodeService() {
+        return new MongoResolvedCodeServiceImpl();
+    }
+
+    @Bean
+    public DailyQuoteUpdateService getDailyQuoteUpdateService() {
+        return new EodhdDailyQuoteUpdateServiceImpl();
+    }
+
+    @Autowired
+    private EodhdProperties eodhdProperties;
+
+    @Bean
+    public IndexHistoryCache getIndexHistoryCache() {
+        return new IndexHistoryCache(eodhdProperties.getIndexCacheSize());
+    }
+
     @Bean
     public FundamentalDataService getFundamentalDataService() {
         return new OnVistaFundamentalDataServiceImpl();
     }
 
+    @Bean
+    public FundamentalDataRefreshService getFundamentalDataRefreshService() {
+        return new FundamentalDataRefreshServiceImpl();
+    }
+
+    @Bean
+    public RefreshJobService getRefreshJobService() {
+        return new RefreshJobServiceImpl();
+    }
+
     @Bean
     public EarningsRevisionService getEarningsRevisionService() {
         return new FinanzenNetEarningsRevisionServiceImpl();
@@ -55,9 +131,21 @@ public class ApplicationConfig {
         return new OnVistaParser();
     }
 
+    // the dependencies are passed as parameters, the RestTemplate is needed while the fields of this config are injected
+    @Bean
+    public PooledHttpClient getPooledHttpClient(HttpClientProperties httpClientProperties, RequestBudget requestBudget) {
+        return new PooledHttpClient(httpClientProperties, requestBudget);
+    }
+
+    @Bean
+    public RequestBudget getRequestBudget(RatingBotProperties ratingBotProperties) {
+        return new RequestBudget(ratingBotProperties.getRateLimits());
+    }
+
     @Bean
-    public RestTemplate getRestTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
+    public RestTemplate getRestTemplate(PooledHttpClient pooledHttpClient) {
+        // the api calls share the connection pool of the scrapes
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pooledHttpClient.getHttpClient()));
         restTemplate.setInterceptors(Collections.singletonList(new XUserAgentInterceptor()));
         return restTemplate;
     }
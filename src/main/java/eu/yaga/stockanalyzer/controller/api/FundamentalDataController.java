@@ -1,22 +1,32 @@
 package eu.yaga.stockanalyzer.controller.api;
 
+import eu.yaga.stockanalyzer.exception.TooManyRefreshJobsException;
+import eu.yaga.stockanalyzer.model.EarningsPerShare;
 import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.RefreshJob;
+import eu.yaga.stockanalyzer.model.StockIndex;
+import eu.yaga.stockanalyzer.model.StoredEpsHistory;
 import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
-import eu.yaga.stockanalyzer.service.AnalystEstimationService;
-import eu.yaga.stockanalyzer.service.EarningsRevisionService;
-import eu.yaga.stockanalyzer.service.FundamentalDataService;
-import eu.yaga.stockanalyzer.service.StockRatingBusinessService;
+import eu.yaga.stockanalyzer.repository.StoredEpsHistoryRepository;
+import eu.yaga.stockanalyzer.service.FundamentalDataRefreshService;
+import eu.yaga.stockanalyzer.service.RefreshJobService;
+import eu.yaga.stockanalyzer.util.EpsHistory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * REST Controller for fundamental data
@@ -27,47 +37,86 @@ class FundamentalDataController {
 
     private static final Logger log = LoggerFactory.getLogger(FundamentalDataController.class);
 
-    @Autowired
-    private FundamentalDataService fundamentalDataService;
+    private static final int DEFAULT_PAGE_SIZE = 50;
 
     @Autowired
-    private EarningsRevisionService earningsRevisionService;
+    private FundamentalDataRefreshService fundamentalDataRefreshService;
 
     @Autowired
-    private AnalystEstimationService analystEstimationService;
+    private FundamentalDataRepository fundamentalDataRepository;
 
     @Autowired
-    private StockRatingBusinessService stockRatingBusinessService;
+    private StoredEpsHistoryRepository storedEpsHistoryRepository;
 
     @Autowired
-    private MongoTemplate mongoTemplate;
-
-    @Autowired
-    private FundamentalDataRepository fundamentalDataRepository;
+    private RefreshJobService refreshJobService;
 
 
     /**
      * This Controller returns all symbols with cached fundamental data<br/>
      *
+     * @param page the page to return (starting with 0), all symbols if neither page nor size are given
+     * @param size the number of symbols per page
+     * @param sort the sort order as field[,asc|desc], ordered by symbol by default
      * @return stock symbols
      */
     @RequestMapping(value = "", method = RequestMethod.GET)
-    public LinkedHashSet<FundamentalData> getCachedSymbols() throws ParseException {
-        Query query = new Query();
-        query.fields().include("symbol");
-        query.with(new Sort(new Sort.Order(Sort.Direction.ASC, "symbol")));
-        List<FundamentalData> fundamentalDataList = mongoTemplate.find(query, FundamentalData.class);
-        LinkedHashSet<String> symbols = new LinkedHashSet<>();
-        for (FundamentalData data : fundamentalDataList) {
-            symbols.add(data.getSymbol());
-        }
+    public LinkedHashSet<FundamentalData> getCachedSymbols(
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "sort", required = false) String sort) throws ParseException {
+        return new LinkedHashSet<>(fundamentalDataRepository.findLatestPerSymbol(buildPageable(page, size, sort)));
+    }
 
-        LinkedHashSet<FundamentalData> sortedFundamentalDataList = new LinkedHashSet<>();
-        for (String symbol : symbols) {
-            sortedFundamentalDataList.add(fundamentalDataRepository.findBySymbolOrderByDateDesc(symbol));
+    /**
+     * This Controller returns the given fields of all symbols with cached fundamental data<br/>
+     *
+     * @param fields the fields to return, e.g. symbol,name,overallRating,date
+     * @param page the page to return (starting with 0), all symbols if neither page nor size are given
+     * @param size the number of symbols per page
+     * @param sort the sort order as field[,asc|desc], ordered by symbol by default
+     * @return the requested fields per symbol
+     */
+    @RequestMapping(value = "", method = RequestMethod.GET, params = "fields")
+    public List<Map<String, Object>> getCachedSymbolFields(
+            @RequestParam(value = "fields") List<String> fields,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "sort", required = false) String sort) {
+        return fundamentalDataRepository.findLatestPerSymbol(buildPageable(page, size, sort), fields);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleIllegalArgument(IllegalArgumentException e) {
+        return e.getLocalizedMessage();
+    }
+
+    @ExceptionHandler(TooManyRefreshJobsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public String handleTooManyRefreshJobs(TooManyRefreshJobsException e) {
+        return e.getLocalizedMessage();
+    }
+
+    /**
+     * builds the page request of the listing
+     * @return the page request or null if the whole list is requested
+     */
+    private Pageable buildPageable(Integer page, Integer size, String sort) {
+        Sort order = null;
+        if (sort != null && !sort.isEmpty()) {
+            String[] sortParts = sort.split(",");
+            Sort.Direction direction = Sort.Direction.ASC;
+            if (sortParts.length > 1) {
+                direction = Sort.Direction.fromString(sortParts[1].trim());
+            }
+            order = new Sort(direction, sortParts[0].trim());
         }
 
-        return sortedFundamentalDataList;
+        if (page == null && size == null) {
+            return order == null ? null : new PageRequest(0, Integer.MAX_VALUE, order);
+        }
+        return new PageRequest(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size, order);
     }
 
     /**
@@ -92,6 +141,27 @@ class FundamentalDataController {
         return fundamentalDataRepository.findBySymbolOrderByDateDesc(symbol);
     }
 
+    /**
+     * This Controller returns the whole eps history for the given symbol<br/>
+     * The fundamental data only contains the latest changes, the older ones are archived.
+     *
+     * @param symbol the stocks symbol
+     * @return the changes of the earnings per share by date
+     */
+    @RequestMapping(value = "/{symbol}/eps-history", method = RequestMethod.GET)
+    public SortedMap<String, EarningsPerShare> getEpsHistory(@PathVariable String symbol) {
+        TreeMap<String, EarningsPerShare> epsHistory = new TreeMap<>();
+        StoredEpsHistory storedEpsHistory = storedEpsHistoryRepository.findOne(symbol);
+        if (storedEpsHistory != null) {
+            epsHistory.putAll(storedEpsHistory.getChanges());
+        }
+        FundamentalData fundamentalData = fundamentalDataRepository.findBySymbolOrderByDateDesc(symbol);
+        if (fundamentalData != null) {
+            epsHistory.putAll(fundamentalData.getEpsHistory());
+        }
+        return EpsHistory.changePoints(epsHistory);
+    }
+
     /**
      * This Controller refreshes the fundamental data for the given symbol<br/>
      *
@@ -100,44 +170,50 @@ class FundamentalDataController {
      */
     @RequestMapping(value = "/{symbol}/refresh", method = RequestMethod.GET)
     public FundamentalData refreshFundamentalData(@PathVariable String symbol) throws ParseException {
-        FundamentalData fundamentalData = fundamentalDataRepository.findBySymbolOrderByDateDesc(symbol);
-        log.info("Got Fundamental Data: " + fundamentalData);
-
-        FundamentalData newFundamentalData = fundamentalDataService.getFundamentalData(symbol, fundamentalData);
-        log.info("Got new Fundamental Data: " + newFundamentalData);
-        newFundamentalData = earningsRevisionService.retrieveEarningsRevision(newFundamentalData);
-        log.info("Got Earnings Revision: " + newFundamentalData.getEarningsRevision());
-        newFundamentalData = analystEstimationService.retrieveAnalystEstimation(newFundamentalData);
-        log.info("Got Analyst Estimation: " + newFundamentalData.getAnalystEstimation());
+        return fundamentalDataRefreshService.refreshFundamentalData(symbol);
+    }
 
-        if (fundamentalData != null) {
-            fundamentalData.setSymbol(newFundamentalData.getSymbol());
-            fundamentalData.setDate(newFundamentalData.getDate());
-            fundamentalData.setBusinessYears(newFundamentalData.getBusinessYears());
-            fundamentalData.setRoe(newFundamentalData.getRoe());
-            fundamentalData.setEbit(newFundamentalData.getEbit());
-            fundamentalData.setEquityRatio(newFundamentalData.getEquityRatio());
-            fundamentalData.setAsk(newFundamentalData.getAsk());
-            fundamentalData.setEpsCurrentYear(newFundamentalData.getEpsCurrentYear());
-            fundamentalData.setEpsNextYear(newFundamentalData.getEpsNextYear());
-            fundamentalData.setEpsHistory(newFundamentalData.getEpsHistory());
-            fundamentalData.setPer5years(newFundamentalData.getPer5years());
-            fundamentalData.setPerCurrent(newFundamentalData.getPerCurrent());
-            fundamentalData.setMarketCapitalization(newFundamentalData.getMarketCapitalization());
-            fundamentalData.setEarningsRevision(newFundamentalData.getEarningsRevision());
-            fundamentalData.setAnalystEstimation(newFundamentalData.getAnalystEstimation());
-            fundamentalData.setAnalystEstimationCount(newFundamentalData.getAnalystEstimationCount());
-        } else {
-            fundamentalData = newFundamentalData;
+    /**
+     * This Controller starts refreshing the fundamental data of many stocks in the background<br/>
+     *
+     * @param symbols the stocks symbols
+     * @param index all stored stocks of this index are refreshed if no symbols are given
+     * @return the job, its progress can be requested with its id
+     */
+    @RequestMapping(value = "/refresh", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public RefreshJob startRefreshJob(
+            @RequestBody(required = false) List<String> symbols,
+            @RequestParam(value = "index", required = false) StockIndex index) {
+        if ((symbols == null || symbols.isEmpty()) && index != null) {
+            return refreshJobService.startJob(index);
         }
+        return refreshJobService.startJob(symbols);
+    }
 
-        fundamentalData = stockRatingBusinessService.rate(fundamentalData);
-        log.info("Fundamental Data rated: " + fundamentalData);
-
-        FundamentalData saved = fundamentalDataRepository.save(fundamentalData);
-        log.info("SAVED: " + saved);
+    /**
+     * This Controller returns the running and recently finished refresh jobs<br/>
+     *
+     * @return the refresh jobs
+     */
+    @RequestMapping(value = "/refresh", method = RequestMethod.GET)
+    public List<RefreshJob> getRefreshJobs() {
+        return refreshJobService.getJobs();
+    }
 
-        return fundamentalData;
+    /**
+     * This Controller returns the progress of a refresh job per symbol<br/>
+     *
+     * @param jobId the id of the job
+     * @return the refresh job
+     */
+    @RequestMapping(value = "/refresh/{jobId}", method = RequestMethod.GET)
+    public RefreshJob getRefreshJob(@PathVariable String jobId) {
+        RefreshJob job = refreshJobService.getJob(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Unknown refresh job: " + jobId);
+        }
+        return job;
     }
 
     /**
@@ -176,12 +252,17 @@ class FundamentalDataController {
     public void enableAllAutomaticRatings() {
         List<FundamentalData> fundamentalDataList = fundamentalDataRepository.findAll();
 
+        List<FundamentalData> enabled = new ArrayList<>();
         for (FundamentalData fundamentalData : fundamentalDataList) {
             if (!fundamentalData.isAutomaticRating()) {
                 log.info("Enabling Fundamental Data ratings for: " + fundamentalData);
                 fundamentalData.setAutomaticRating(true);
-                fundamentalDataRepository.save(fundamentalData);
+                enabled.add(fundamentalData);
             }
         }
+
+        if (!enabled.isEmpty()) {
+            fundamentalDataRepository.bulkSet(enabled, "automaticRating");
+        }
     }
 }
@@ -0,0 +1,31 @@
+package eu.yaga.stockanalyzer.controller.api;
+
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the shared http client
+ */
+@RestController
+@RequestMapping("/api/http-client")
+class HttpClientController {
+
+    @Autowired
+    private PooledHttpClient httpClient;
+
+    /**
+     * This Controller returns the connection pool usage of the http client<br/>
+     * leased and available connections in total and per host, and the number of requests and failed requests
+     *
+     * @return the pool statistics
+     */
+    @RequestMapping(value = "/statistics", method = RequestMethod.GET)
+    public Map<String, Object> getStatistics() {
+        return httpClient.getStatistics();
+    }
+}
@@ -0,0 +1,31 @@
+package eu.yaga.stockanalyzer.controller.api;
+
+import eu.yaga.stockanalyzer.util.QuoteProviderRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * REST Controller for the historical rate providers
+ */
+@RestController
+@RequestMapping("/api/quote-providers")
+class QuoteProviderController {
+
+    @Autowired
+    private QuoteProviderRouter quoteProviderRouter;
+
+    /**
+     * This Controller returns the health of the historical rate providers<br/>
+     * score, average latency, error rate and number of requests of the last minutes, and the number of symbols served
+     *
+     * @return the provider statistics
+     */
+    @RequestMapping(value = "/statistics", method = RequestMethod.GET)
+    public Map<String, Object> getStatistics() {
+        return quoteProviderRouter.getStatistics();
+    }
+}
@@ -0,0 +1,16 @@
+package eu.yaga.stockanalyzer.exception;
+
+/**
+ * Thrown if a refresh job is started while the maximum number of jobs is waiting to run
+ */
+public class TooManyRefreshJobsException extends RuntimeException {
+
+    /**
+     * Constructs a new exception with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public TooManyRefreshJobsException(String message) {
+        super(message);
+    }
+}
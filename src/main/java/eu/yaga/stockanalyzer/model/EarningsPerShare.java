@@ -41,4 +41,21 @@ public class EarningsPerShare {
     public void setEpsNextYear(double epsNextYear) {
         this.epsNextYear = epsNextYear;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        EarningsPerShare that = (EarningsPerShare) o;
+        return Double.compare(that.epsCurrentYear, epsCurrentYear) == 0 && Double.compare(that.epsNextYear, epsNextYear) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(epsCurrentYear) + Double.hashCode(epsNextYear);
+    }
 }
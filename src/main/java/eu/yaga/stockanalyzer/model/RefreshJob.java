@@ -0,0 +1,119 @@
+package eu.yaga.stockanalyzer.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Refresh of many stocks running in the background and its progress per symbol
+ */
+public class RefreshJob {
+
+    public enum State {
+        QUEUED, RUNNING, SAVING, FINISHED
+    }
+
+    public enum SymbolState {
+        PENDING, RUNNING, RATED, SAVED, FAILED
+    }
+
+    /**
+     * Progress of one stock of the job
+     */
+    public static class SymbolStatus {
+
+        private volatile SymbolState state = SymbolState.PENDING;
+        private volatile Integer overallRating;
+        private volatile String error;
+        private volatile long millis;
+
+        public SymbolState getState() {
+            return state;
+        }
+
+        public void setState(SymbolState state) {
+            this.state = state;
+        }
+
+        public Integer getOverallRating() {
+            return overallRating;
+        }
+
+        public void setOverallRating(Integer overallRating) {
+            this.overallRating = overallRating;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public void setMillis(long millis) {
+            this.millis = millis;
+        }
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Date created = new Date();
+    private volatile Date finished;
+    private volatile State state = State.QUEUED;
+    private final Map<String, SymbolStatus> symbols;
+
+    public RefreshJob(Collection<String> symbols) {
+        Map<String, SymbolStatus> statuses = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            statuses.put(symbol, new SymbolStatus());
+        }
+        // the symbols never change, only their status
+        this.symbols = Collections.unmodifiableMap(statuses);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Map<String, SymbolStatus> getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the number of stocks per state
+     */
+    public Map<SymbolState, Integer> getSummary() {
+        Map<SymbolState, Integer> summary = new LinkedHashMap<>();
+        for (SymbolStatus status : symbols.values()) {
+            summary.merge(status.getState(), 1, Integer::sum);
+        }
+        return summary;
+    }
+}
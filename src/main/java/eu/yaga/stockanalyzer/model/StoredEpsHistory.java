@@ -0,0 +1,42 @@
+package eu.yaga.stockanalyzer.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Archived earnings per share of one symbol<br/>
+ * The fundamental data only keeps the latest changes of its eps history, older changes are moved here.
+ * Like the eps history the changes are keyed by date (yyyy-MM-dd), an entry is valid until the next one.
+ */
+@Document(collection = "epsHistory")
+public class StoredEpsHistory {
+
+    @Id
+    private String symbol;
+    private Map<String, EarningsPerShare> changes = new TreeMap<>();
+
+    public StoredEpsHistory() {}
+
+    public StoredEpsHistory(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public Map<String, EarningsPerShare> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(Map<String, EarningsPerShare> changes) {
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,226 @@
+package eu.yaga.stockanalyzer.model.historicaldata;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Daily closes of one symbol<br/>
+ * The trading days are kept as sorted epoch days next to a parallel array of closes, so the series needs no object
+ * per quote and the nearest trading day of any date is found by binary search. Slices share the arrays of their series.
+ */
+public final class QuoteSeries {
+
+    private static final int[] NO_DAYS = new int[0];
+    private static final double[] NO_CLOSES = new double[0];
+
+    private final String symbol;
+    private final int[] epochDays;
+    private final double[] closes;
+    private final int offset;
+    private final int size;
+
+    /**
+     * Creates a series of the given closes, the arrays are not copied
+     * @param symbol the symbol of the closes
+     * @param epochDays the trading days as epoch days in ascending order
+     * @param closes the closes of the trading days
+     */
+    public QuoteSeries(String symbol, int[] epochDays, double[] closes) {
+        this(symbol, epochDays, closes, 0, epochDays.length);
+        if (epochDays.length != closes.length) {
+            throw new IllegalArgumentException("epochDays and closes must have the same length");
+        }
+    }
+
+    private QuoteSeries(String symbol, int[] epochDays, double[] closes, int offset, int size) {
+        this.symbol = symbol;
+        this.epochDays = epochDays;
+        this.closes = closes;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Creates an empty series
+     * @param symbol the symbol
+     * @return the series
+     */
+    public static QuoteSeries empty(String symbol) {
+        return new QuoteSeries(symbol, NO_DAYS, NO_CLOSES);
+    }
+
+    /**
+     * Creates a series of historical quotes with yyyy-MM-dd dates
+     * @param symbol the symbol of the quotes
+     * @param quotes the quotes in any order
+     * @return the series
+     */
+    public static QuoteSeries of(String symbol, List<HistoricalDataQuote> quotes) {
+        List<HistoricalDataQuote> sortedQuotes = new ArrayList<>(quotes);
+        sortedQuotes.sort((q1, q2) -> q1.getDate().compareTo(q2.getDate()));
+
+        int[] epochDays = new int[sortedQuotes.size()];
+        double[] closes = new double[sortedQuotes.size()];
+        for (int i = 0; i < sortedQuotes.size(); i++) {
+            epochDays[i] = (int) LocalDate.parse(sortedQuotes.get(i).getDate()).toEpochDay();
+            closes[i] = sortedQuotes.get(i).getClose();
+        }
+        return new QuoteSeries(symbol, epochDays, closes);
+    }
+
+    /**
+     * returns the closes between the given days without copying them
+     * @param fromDay the first epoch day (inclusive)
+     * @param toDay the last epoch day (inclusive)
+     * @return the slice
+     */
+    public QuoteSeries slice(long fromDay, long toDay) {
+        int from = ceiling(fromDay);
+        int to = floor(toDay);
+        if (from < 0 || to < from) {
+            return new QuoteSeries(symbol, epochDays, closes, offset, 0);
+        }
+        return new QuoteSeries(symbol, epochDays, closes, offset + from, to - from + 1);
+    }
+
+    /**
+     * finds the last trading day on or before the given day
+     * @param epochDay the day
+     * @return the position of the trading day or -1 if there is none
+     */
+    public int floor(long epochDay) {
+        int pos = Arrays.binarySearch(epochDays, offset, offset + size, clamp(epochDay));
+        if (pos >= 0) {
+            return pos - offset;
+        }
+        return -pos - 2 - offset;
+    }
+
+    /**
+     * finds the first trading day on or after the given day
+     * @param epochDay the day
+     * @return the position of the trading day or -1 if there is none
+     */
+    public int ceiling(long epochDay) {
+        int pos = Arrays.binarySearch(epochDays, offset, offset + size, clamp(epochDay));
+        if (pos >= 0) {
+            return pos - offset;
+        }
+        int insertionPoint = -pos - 1 - offset;
+        return insertionPoint < size ? insertionPoint : -1;
+    }
+
+    /**
+     * calculates the progress of the close at one position compared to the close at another position
+     * @param pos the position of the close
+     * @param comparePos the position of the close to compare with
+     * @return the progress in percent
+     */
+    public double getProgress(int pos, int comparePos) {
+        double compareClose = getClose(comparePos);
+        return (getClose(pos) - compareClose) / compareClose * 100;
+    }
+
+    /**
+     * calculates the progress between two days, using the last close on or before each day
+     * @param epochDay the day
+     * @param compareEpochDay the day to compare with
+     * @return the progress in percent or NaN if there is no close on or before one of the days
+     */
+    public double getProgress(long epochDay, long compareEpochDay) {
+        int pos = floor(epochDay);
+        int comparePos = floor(compareEpochDay);
+        if (pos < 0 || comparePos < 0) {
+            return Double.NaN;
+        }
+        return getProgress(pos, comparePos);
+    }
+
+    /**
+     * returns the closes as historical quotes, the quotes are created when they are read
+     * @return a read-only list of quotes sorted by date
+     */
+    public List<HistoricalDataQuote> toQuoteList() {
+        return new AbstractList<HistoricalDataQuote>() {
+            @Override
+            public HistoricalDataQuote get(int index) {
+                return toQuote(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * @param pos the position
+     * @return the close at the given position as historical quote
+     */
+    public HistoricalDataQuote toQuote(int pos) {
+        return new HistoricalDataQuote(symbol, getDate(pos).toString(), getClose(pos));
+    }
+
+    /**
+     * @return a copy of the trading days as epoch days in ascending order
+     */
+    public int[] toEpochDayArray() {
+        return Arrays.copyOfRange(epochDays, offset, offset + size);
+    }
+
+    /**
+     * @return a copy of the closes of the trading days
+     */
+    public double[] toCloseArray() {
+        return Arrays.copyOfRange(closes, offset, offset + size);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getEpochDay(int pos) {
+        return epochDays[index(pos)];
+    }
+
+    public LocalDate getDate(int pos) {
+        return LocalDate.ofEpochDay(getEpochDay(pos));
+    }
+
+    public double getClose(int pos) {
+        return closes[index(pos)];
+    }
+
+    private int index(int pos) {
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException("Position " + pos + " of " + size);
+        }
+        return offset + pos;
+    }
+
+    private static int clamp(long epochDay) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
+    }
+
+    @Override
+    public String toString() {
+        return "QuoteSeries{" +
+                "symbol='" + symbol + '\'' +
+                ", size=" + size +
+                (size > 0 ? ", from=" + getDate(0) + ", to=" + getDate(size - 1) : "") +
+                '}';
+    }
+}
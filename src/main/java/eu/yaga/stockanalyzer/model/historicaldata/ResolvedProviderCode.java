@@ -0,0 +1,91 @@
+package eu.yaga.stockanalyzer.model.historicaldata;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * The code under which a quote provider knows a symbol<br/>
+ * The providers list a symbol under several candidate codes (e.g. one per exchange),
+ * the code that delivered quotes is stored so later requests don't have to try the others first.
+ */
+@Document(collection = "providerCodes")
+public class ResolvedProviderCode {
+
+    @Id
+    private String id;
+    private String provider;
+    private String symbol;
+    private String code;
+    private Date resolved;
+
+    public ResolvedProviderCode() {}
+
+    public ResolvedProviderCode(String provider, String symbol, String code) {
+        this.id = id(provider, symbol);
+        this.provider = provider;
+        this.symbol = symbol;
+        this.code = code;
+        this.resolved = new Date();
+    }
+
+    /**
+     * @param provider the name of the provider
+     * @param symbol the symbol
+     * @return the id of the code of the symbol at the provider
+     */
+    public static String id(String provider, String symbol) {
+        return provider + ":" + symbol;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public Date getResolved() {
+        return resolved;
+    }
+
+    public void setResolved(Date resolved) {
+        this.resolved = resolved;
+    }
+
+    @Override
+    public String toString() {
+        return "ResolvedProviderCode{" +
+                "provider='" + provider + '\'' +
+                ", symbol='" + symbol + '\'' +
+                ", code='" + code + '\'' +
+                ", resolved=" + resolved +
+                '}';
+    }
+}
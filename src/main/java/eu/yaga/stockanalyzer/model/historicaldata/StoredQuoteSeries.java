@@ -0,0 +1,145 @@
+package eu.yaga.stockanalyzer.model.historicaldata;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Arrays;
+
+/**
+ * Locally stored daily closes of one symbol<br/>
+ * The closes are kept column wise (epoch days and closes in parallel arrays, sorted by day),
+ * together with the date range that has already been fetched from the provider.
+ */
+@Document(collection = "quoteStore")
+public class StoredQuoteSeries {
+
+    @Id
+    private String symbol;
+    private int[] epochDays = new int[0];
+    private double[] closes = new double[0];
+    private Integer coveredFrom;
+    private Integer coveredTo;
+    private Integer lastFetched;
+
+    public StoredQuoteSeries() {}
+
+    public StoredQuoteSeries(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * checks if any date range of this symbol has been fetched yet
+     * @return true if there is a covered date range
+     */
+    public boolean hasCoverage() {
+        return coveredFrom != null && coveredTo != null;
+    }
+
+    /**
+     * Replaces all stored closes between fromDay and toDay (inclusive) with the given closes
+     * @param fromDay first epoch day of the replaced range
+     * @param toDay last epoch day of the replaced range
+     * @param newDays the sorted epoch days of the new closes
+     * @param newCloses the new closes
+     */
+    public void merge(int fromDay, int toDay, int[] newDays, double[] newCloses) {
+        int[] days = new int[epochDays.length + newDays.length];
+        double[] values = new double[epochDays.length + newDays.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < epochDays.length && epochDays[i] < fromDay) {
+            days[size] = epochDays[i];
+            values[size++] = closes[i++];
+        }
+        while (j < newDays.length) {
+            if (newDays[j] >= fromDay && newDays[j] <= toDay) {
+                days[size] = newDays[j];
+                values[size++] = newCloses[j];
+            }
+            j++;
+        }
+        while (i < epochDays.length && epochDays[i] <= toDay) {
+            i++;
+        }
+        while (i < epochDays.length) {
+            days[size] = epochDays[i];
+            values[size++] = closes[i++];
+        }
+
+        epochDays = Arrays.copyOf(days, size);
+        closes = Arrays.copyOf(values, size);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public int[] getEpochDays() {
+        return epochDays;
+    }
+
+    public void setEpochDays(int[] epochDays) {
+        this.epochDays = epochDays;
+    }
+
+    public double[] getCloses() {
+        return closes;
+    }
+
+    public void setCloses(double[] closes) {
+        this.closes = closes;
+    }
+
+    /**
+     * get the first epoch day that has been fetched from the provider
+     * @return epoch day
+     */
+    public Integer getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    public void setCoveredFrom(Integer coveredFrom) {
+        this.coveredFrom = coveredFrom;
+    }
+
+    /**
+     * get the last epoch day whose close is final and has been fetched from the provider
+     * @return epoch day
+     */
+    public Integer getCoveredTo() {
+        return coveredTo;
+    }
+
+    public void setCoveredTo(Integer coveredTo) {
+        this.coveredTo = coveredTo;
+    }
+
+    /**
+     * get the epoch day of the last fetch that included the current day
+     * @return epoch day
+     */
+    public Integer getLastFetched() {
+        return lastFetched;
+    }
+
+    public void setLastFetched(Integer lastFetched) {
+        this.lastFetched = lastFetched;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredQuoteSeries{" +
+                "symbol='" + symbol + '\'' +
+                ", size=" + epochDays.length +
+                ", coveredFrom=" + coveredFrom +
+                ", coveredTo=" + coveredTo +
+                ", lastFetched=" + lastFetched +
+                '}';
+    }
+}
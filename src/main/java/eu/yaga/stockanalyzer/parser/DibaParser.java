@@ -14,13 +14,15 @@ public class DibaParser {
 
     private static final Logger log = LoggerFactory.getLogger(DibaParser.class);
 
+    // the response body keeps its line breaks, the count may follow on the next line
+    private static final Pattern BUY_PATTERN = Pattern.compile("<div class=\"sh_analysis_col sh_analysis_col_1\">(?:[^<]++|<(?!/div>\\s*\\d))*+</div>\\s*(\\d*)\\D");
+    private static final Pattern HOLD_PATTERN = Pattern.compile("<div class=\"sh_analysis_col sh_analysis_col_2\">(?:[^<]++|<(?!/div>\\s*\\d))*+</div>\\s*(\\d*)\\D");
+    private static final Pattern SELL_PATTERN = Pattern.compile("<div class=\"sh_analysis_col sh_analysis_col_3\">(?:[^<]++|<(?!/div>\\s*\\d))*+</div>\\s*(\\d*)\\D");
+
     public static FundamentalData parseAnalystEstimation(String html, FundamentalData fd) {
-        Pattern buyPattern = Pattern.compile("<div class=\"sh_analysis_col sh_analysis_col_1\">((?!</div>\\d).)*</div>(\\d*)[^\\d]");
-        Pattern holdPattern = Pattern.compile("<div class=\"sh_analysis_col sh_analysis_col_2\">((?!</div>\\d).)*</div>(\\d*)[^\\d]");
-        Pattern sellPattern = Pattern.compile("<div class=\"sh_analysis_col sh_analysis_col_3\">((?!</div>\\d).)*</div>(\\d*)[^\\d]");
-        Matcher buyMatcher = buyPattern.matcher(html);
-        Matcher holdMatcher = holdPattern.matcher(html);
-        Matcher sellMatcher = sellPattern.matcher(html);
+        Matcher buyMatcher = BUY_PATTERN.matcher(html);
+        Matcher holdMatcher = HOLD_PATTERN.matcher(html);
+        Matcher sellMatcher = SELL_PATTERN.matcher(html);
 
         int foundCount = 0;
         double buy = 0;
@@ -28,20 +30,20 @@ public class DibaParser {
         double sell = 0;
 
         if (buyMatcher.find()) {
-            log.info("Buy: " + buyMatcher.group(2));
-            buy = Integer.parseInt(buyMatcher.group(2));
+            log.info("Buy: " + buyMatcher.group(1));
+            buy = Integer.parseInt(buyMatcher.group(1));
             foundCount++;
         }
 
         if (holdMatcher.find()) {
-            log.info("Hold: " + holdMatcher.group(2));
-            hold = Integer.parseInt(holdMatcher.group(2));
+            log.info("Hold: " + holdMatcher.group(1));
+            hold = Integer.parseInt(holdMatcher.group(1));
             foundCount++;
         }
 
         if (sellMatcher.find()) {
-            log.info("Sell: " + sellMatcher.group(2));
-            sell = Integer.parseInt(sellMatcher.group(2));
+            log.info("Sell: " + sellMatcher.group(1));
+            sell = Integer.parseInt(sellMatcher.group(1));
             foundCount++;
         }
 
@@ -0,0 +1,228 @@
+package eu.yaga.stockanalyzer.parser;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.threeten.bp.LocalDate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Parses the eod and bulk eod responses of eodhistoricaldata.com<br/>
+ * The response is streamed token by token and only the date and close of each quote are read into primitive arrays,
+ * no object is created per quote. The parser keeps no state, so any number of threads can parse at the same time.
+ */
+public class EodhdQuoteParser {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // decimals with at most 15 digits and these powers of ten are exact doubles, their quotient is rounded correctly
+    private static final int MAX_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    /**
+     * Receives the quotes of a bulk response
+     */
+    public interface BulkQuoteConsumer {
+
+        /**
+         * @param code the eodhd code of the quote without exchange
+         * @param epochDay the trading day of the quote
+         * @param close the close
+         */
+        void accept(String code, int epochDay, double close);
+    }
+
+    /**
+     * The fields of the current quote, reused for all quotes of a response
+     */
+    private static final class Quote {
+        private String code;
+        private int epochDay;
+        private double close;
+        private double adjustedClose;
+    }
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * parses an eod response, an array of quotes with date, open, high, low, close, adjusted_close and volume
+     * @param symbol the symbol of the quotes
+     * @param body the response body
+     * @param adjusted true to read the adjusted closes, quotes without adjusted close fall back to the close
+     * @return the closes, quotes without close are left out
+     * @throws IOException if the body could not be read or is no array of quotes
+     */
+    public QuoteSeries parse(String symbol, InputStream body, boolean adjusted) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            startArray(parser);
+
+            int[] epochDays = new int[INITIAL_CAPACITY];
+            double[] closes = new double[INITIAL_CAPACITY];
+            int size = 0;
+            boolean sorted = true;
+
+            Quote quote = new Quote();
+            while (nextQuote(parser, quote, adjusted, false)) {
+                double value = close(quote, adjusted);
+                if (quote.epochDay == Integer.MIN_VALUE || Double.isNaN(value)) {
+                    continue;
+                }
+                if (size == epochDays.length) {
+                    epochDays = Arrays.copyOf(epochDays, size * 2);
+                    closes = Arrays.copyOf(closes, size * 2);
+                }
+                sorted &= size == 0 || epochDays[size - 1] < quote.epochDay;
+                epochDays[size] = quote.epochDay;
+                closes[size++] = value;
+            }
+
+            QuoteSeries series = new QuoteSeries(symbol, Arrays.copyOf(epochDays, size), Arrays.copyOf(closes, size));
+            // eodhd answers in ascending order, anything else is sorted the slow way
+            return sorted ? series : QuoteSeries.of(symbol, series.toQuoteList());
+        }
+    }
+
+    /**
+     * parses a bulk response of the last trading day of an exchange, an array of quotes with code, date and prices
+     * @param body the response body
+     * @param adjusted true to read the adjusted closes, quotes without adjusted close fall back to the close
+     * @param consumer receives the quotes, quotes without code, date or close are left out
+     * @return the number of quotes in the response
+     * @throws IOException if the body could not be read or is no array of quotes
+     */
+    public int parseBulk(InputStream body, boolean adjusted, BulkQuoteConsumer consumer) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            startArray(parser);
+
+            int count = 0;
+            Quote quote = new Quote();
+            while (nextQuote(parser, quote, adjusted, true)) {
+                count++;
+                double value = close(quote, adjusted);
+                if (quote.code != null && quote.epochDay != Integer.MIN_VALUE && !Double.isNaN(value)) {
+                    consumer.accept(quote.code, quote.epochDay, value);
+                }
+            }
+            return count;
+        }
+    }
+
+    private static void startArray(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected an array of quotes");
+        }
+    }
+
+    /**
+     * reads the next quote object of the array into the given quote
+     * @return false at the end of the array
+     */
+    private static boolean nextQuote(JsonParser parser, Quote quote, boolean adjusted, boolean readCode) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a quote object but got " + token);
+        }
+
+        quote.code = null;
+        quote.epochDay = Integer.MIN_VALUE;
+        quote.close = Double.NaN;
+        quote.adjustedClose = Double.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("date".equals(field)) {
+                quote.epochDay = parseEpochDay(parser);
+            } else if ("close".equals(field)) {
+                quote.close = parseNumber(parser);
+            } else if (adjusted && "adjusted_close".equals(field)) {
+                quote.adjustedClose = parseNumber(parser);
+            } else if (readCode && "code".equals(field)) {
+                quote.code = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    private static double close(Quote quote, boolean adjusted) {
+        return adjusted && !Double.isNaN(quote.adjustedClose) ? quote.adjustedClose : quote.close;
+    }
+
+    /**
+     * parses a yyyy-MM-dd date without creating a string
+     */
+    private static int parseEpochDay(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.VALUE_STRING || parser.getTextLength() != 10) {
+            throw new JsonParseException(parser, "Expected a yyyy-MM-dd date");
+        }
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int year = digits(parser, text, offset, 4);
+        int month = digits(parser, text, offset + 5, 2);
+        int day = digits(parser, text, offset + 8, 2);
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static int digits(JsonParser parser, char[] text, int offset, int length) throws IOException {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (text[i] < '0' || text[i] > '9') {
+                throw new JsonParseException(parser, "Expected a yyyy-MM-dd date");
+            }
+            value = value * 10 + text[i] - '0';
+        }
+        return value;
+    }
+
+    private static double parseNumber(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case VALUE_NUMBER_FLOAT:
+                return parseDecimal(parser);
+            case VALUE_NUMBER_INT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                // e.g. "NA" for days without trades
+                return parser.getValueAsDouble(Double.NaN);
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * parses a plain decimal like 123.4567 without creating a string, other numbers are left to jackson
+     */
+    private static double parseDecimal(JsonParser parser) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        boolean negative = offset < end && text[offset] == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (int i = negative ? offset + 1 : offset; i < end; i++) {
+            char c = text[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9' && digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + c - '0';
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else {
+                return parser.getDoubleValue();
+            }
+        }
+        double value = mantissa / POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+        return negative ? -value : value;
+    }
+}
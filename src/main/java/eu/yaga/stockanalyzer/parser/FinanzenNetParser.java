@@ -14,12 +14,13 @@ public class FinanzenNetParser {
 
     private static final Logger log = LoggerFactory.getLogger(FinanzenNetParser.class);
 
+    private static final Pattern POSITIVE_PATTERN = Pattern.compile("<td>Positive Analystenhaltung");
+    private static final Pattern NEGATIVE_PATTERN = Pattern.compile("<td>Negative Analystenhaltung");
+
     public static FundamentalData parseEarningsRevisions(String html, FundamentalData fd) {
         double earningsRevision = 0;
-        Pattern positivPattern = Pattern.compile("<td>Positive Analystenhaltung");
-        Pattern negativPattern = Pattern.compile("<td>Negative Analystenhaltung");
-        Matcher posMatcher = positivPattern.matcher(html);
-        Matcher negMatcher = negativPattern.matcher(html);
+        Matcher posMatcher = POSITIVE_PATTERN.matcher(html);
+        Matcher negMatcher = NEGATIVE_PATTERN.matcher(html);
 
         while (posMatcher.find()) {
             log.info("Found positive earningsRevisions!");
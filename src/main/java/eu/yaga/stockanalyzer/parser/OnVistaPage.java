@@ -0,0 +1,443 @@
+package eu.yaga.stockanalyzer.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The figures of an onvista fundamental data page<br/>
+ * The page is read once as a stream of tags and text, only the cells of the wanted tables and rows are kept.
+ * The page itself is never held in memory.
+ */
+final class OnVistaPage {
+
+    static final String FISCAL_YEAR_END_LABEL = "Geschäftsjahresende:";
+    static final String EARNING_TABLE = "Gewinn";
+    static final String PROFITABILITY_TABLE = "Rentabilität";
+    static final String BALANCE_SHEET_TABLE = "Bilanz";
+    static final String EARNINGS_PER_SHARE_ROW = "Gewinn pro Aktie in EUR";
+    static final String ROE_ROW = "Eigenkapitalrendite";
+    static final String EBIT_ROW = "EBIT-Marge";
+    static final String MARKET_CAPITALIZATION_ROW = "Marktkapitalisierung in Mio. EUR";
+    static final String EQUITY_RATIO_ROW = "Eigenkapitalquote";
+
+    private static final int BUFFER_SIZE = 8192;
+    // tags and cells are short, anything beyond is not needed to recognize them
+    private static final int MAX_TAG_LENGTH = 256;
+    private static final int MAX_TEXT_LENGTH = 1024;
+
+    private static final String[] TABLES = {EARNING_TABLE, PROFITABILITY_TABLE, BALANCE_SHEET_TABLE};
+    private static final int EARNING = 0;
+    private static final int PROFITABILITY = 1;
+    private static final int BALANCE_SHEET = 2;
+
+    private static final String[] ROWS = {EARNINGS_PER_SHARE_ROW, ROE_ROW, EBIT_ROW, MARKET_CAPITALIZATION_ROW, EQUITY_RATIO_ROW};
+    private static final int EARNINGS_PER_SHARE = 0;
+    private static final int ROE = 1;
+    private static final int EBIT = 2;
+    private static final int MARKET_CAPITALIZATION = 3;
+    private static final int EQUITY_RATIO = 4;
+
+    private String fiscalYearEnd;
+    private final List<List<String>> tables = new ArrayList<>(Collections.nCopies(TABLES.length, null));
+    private final List<List<String>> rows = new ArrayList<>(Collections.nCopies(ROWS.length, null));
+
+    private OnVistaPage() {}
+
+    /**
+     * reads the page in a single pass
+     * @param reader the page, it is read to the end but not closed
+     * @return the figures found on the page
+     * @throws IOException if the page can't be read
+     */
+    static OnVistaPage read(Reader reader) throws IOException {
+        OnVistaPage page = new OnVistaPage();
+        new Tokenizer(page).read(reader);
+        return page;
+    }
+
+    /**
+     * @return the fiscal year end (dd.MM.) or null if the page has none
+     */
+    String getFiscalYearEnd() {
+        return fiscalYearEnd;
+    }
+
+    List<String> getEarningYears() {
+        return orEmpty(tables.get(EARNING));
+    }
+
+    List<String> getProfitabilityYears() {
+        return orEmpty(tables.get(PROFITABILITY));
+    }
+
+    List<String> getBalanceSheetYears() {
+        return orEmpty(tables.get(BALANCE_SHEET));
+    }
+
+    List<String> getEarningsPerShare() {
+        return orEmpty(rows.get(EARNINGS_PER_SHARE));
+    }
+
+    List<String> getRoe() {
+        return orEmpty(rows.get(ROE));
+    }
+
+    List<String> getEbit() {
+        return orEmpty(rows.get(EBIT));
+    }
+
+    List<String> getMarketCapitalization() {
+        return orEmpty(rows.get(MARKET_CAPITALIZATION));
+    }
+
+    List<String> getEquityRatio() {
+        return orEmpty(rows.get(EQUITY_RATIO));
+    }
+
+    private static List<String> orEmpty(List<String> cells) {
+        return cells == null ? Collections.emptyList() : cells;
+    }
+
+    /**
+     * Splits the page into tags and text and keeps track of the current table, row and cell<br/>
+     * Only the first table header and row of each kind is taken, like the former regex scans did.
+     * Tags and text are inspected in place, strings are only created for the wanted cells.
+     */
+    private static final class Tokenizer {
+
+        private enum State { TEXT, TAG, COMMENT }
+
+        private static final String[] TAG_NAMES = {"table", "tr", "th", "td", "span", "script", "style"};
+        private static final int TABLE = 0;
+        private static final int TR = 1;
+        private static final int TH = 2;
+        private static final int TD = 3;
+        private static final int SPAN = 4;
+        private static final int SCRIPT = 5;
+        private static final int STYLE = 6;
+
+        // table or row that has not been identified yet / that is not wanted
+        private static final int UNKNOWN = -1;
+        private static final int OTHER = -2;
+
+        private final OnVistaPage page;
+
+        private State state = State.TEXT;
+        private final char[] tag = new char[MAX_TAG_LENGTH];
+        private int tagLength;
+        private int commentDashes;
+        private final StringBuilder text = new StringBuilder();
+        // content of script and style elements is skipped up to their closing tag
+        private int rawTextEnd = UNKNOWN;
+
+        private boolean inSpan;
+        private boolean inCell;
+        private boolean numberCell;
+
+        private int table = UNKNOWN;
+        private int headerRow = UNKNOWN;
+        private int row = UNKNOWN;
+        private List<String> cells;
+
+        private Tokenizer(OnVistaPage page) {
+            this.page = page;
+        }
+
+        private void read(Reader reader) throws IOException {
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                accept(buffer, read);
+            }
+        }
+
+        private void accept(char[] buffer, int length) {
+            int i = 0;
+            while (i < length) {
+                switch (state) {
+                    case TEXT:
+                        i = text(buffer, i, length);
+                        break;
+                    case TAG:
+                        i = tag(buffer, i, length);
+                        break;
+                    case COMMENT:
+                        i = comment(buffer, i, length);
+                        break;
+                }
+            }
+        }
+
+        private int text(char[] buffer, int start, int length) {
+            int i = start;
+            while (i < length && buffer[i] != '<') {
+                i++;
+            }
+            if ((inCell || inSpan) && rawTextEnd == UNKNOWN) {
+                text.append(buffer, start, Math.min(i - start, MAX_TEXT_LENGTH - text.length()));
+            }
+            if (i < length) {
+                state = State.TAG;
+                tagLength = 0;
+                i++;
+            }
+            return i;
+        }
+
+        private int tag(char[] buffer, int start, int length) {
+            int i = start;
+            while (i < length && buffer[i] != '>') {
+                i++;
+            }
+            int copied = tagLength;
+            int count = Math.min(i - start, MAX_TAG_LENGTH - tagLength);
+            System.arraycopy(buffer, start, tag, tagLength, count);
+            tagLength += count;
+            if (copied < 3 && tagLength >= 3 && tag[0] == '!' && tag[1] == '-' && tag[2] == '-') {
+                // a comment may contain '>', continue right after its start
+                state = State.COMMENT;
+                commentDashes = 0;
+                return start + 3 - copied;
+            }
+            if (i < length) {
+                state = State.TEXT;
+                i++;
+                tag();
+            }
+            return i;
+        }
+
+        private int comment(char[] buffer, int start, int length) {
+            int i = start;
+            while (i < length) {
+                char c = buffer[i++];
+                if (c == '>' && commentDashes >= 2) {
+                    state = State.TEXT;
+                    return i;
+                }
+                commentDashes = c == '-' ? commentDashes + 1 : 0;
+            }
+            return i;
+        }
+
+        private void tag() {
+            boolean closing = tagLength > 0 && tag[0] == '/';
+            int name = tagName(closing ? 1 : 0);
+
+            if (rawTextEnd != UNKNOWN) {
+                if (closing && name == rawTextEnd) {
+                    rawTextEnd = UNKNOWN;
+                }
+                return;
+            }
+
+            if (closing) {
+                closeTag(name);
+            } else {
+                openTag(name);
+            }
+        }
+
+        private void openTag(int name) {
+            switch (name) {
+                case SCRIPT:
+                case STYLE:
+                    if (tag[tagLength - 1] != '/') {
+                        rawTextEnd = name;
+                    }
+                    break;
+                case TABLE:
+                    table = UNKNOWN;
+                    break;
+                case TR:
+                    headerRow = UNKNOWN;
+                    row = UNKNOWN;
+                    cells = null;
+                    break;
+                case TH:
+                case TD:
+                    inCell = true;
+                    numberCell = tagContains("class=\"ZAHL\"");
+                    text.setLength(0);
+                    break;
+                case SPAN:
+                    if (!inCell) {
+                        inSpan = true;
+                        text.setLength(0);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void closeTag(int name) {
+            switch (name) {
+                case TH:
+                    if (inCell) {
+                        if (numberCell) {
+                            if (headerRow >= 0) {
+                                cells.add(text.toString().trim());
+                            }
+                        } else if (table == UNKNOWN) {
+                            table = tableTitle();
+                            if (table >= 0) {
+                                headerRow = table;
+                                cells = new ArrayList<>();
+                            }
+                        }
+                        inCell = false;
+                    }
+                    break;
+                case TD:
+                    if (inCell) {
+                        if (numberCell) {
+                            if (row >= 0) {
+                                cells.add(text.toString().trim());
+                            }
+                        } else if (row == UNKNOWN) {
+                            row = rowLabel();
+                            if (row >= 0) {
+                                cells = new ArrayList<>();
+                            }
+                        }
+                        inCell = false;
+                    }
+                    break;
+                case TR:
+                    if (headerRow >= 0) {
+                        page.tables.set(headerRow, cells);
+                    } else if (row >= 0) {
+                        page.rows.set(row, cells);
+                    }
+                    headerRow = UNKNOWN;
+                    row = UNKNOWN;
+                    cells = null;
+                    break;
+                case SPAN:
+                    if (inSpan) {
+                        fiscalYearEnd();
+                        inSpan = false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * @return the wanted table that has not been found before and whose title starts the current text
+         */
+        private int tableTitle() {
+            for (int i = 0; i < TABLES.length; i++) {
+                if (page.tables.get(i) == null && textStartsWith(TABLES[i])) {
+                    return i;
+                }
+            }
+            return OTHER;
+        }
+
+        /**
+         * @return the wanted row that has not been found before and whose label ends the current text
+         */
+        private int rowLabel() {
+            for (int i = 0; i < ROWS.length; i++) {
+                if (page.rows.get(i) == null && textEndsWith(ROWS[i])) {
+                    return i;
+                }
+            }
+            return OTHER;
+        }
+
+        private void fiscalYearEnd() {
+            if (!textStartsWith(FISCAL_YEAR_END_LABEL)) {
+                return;
+            }
+            String spanText = text.toString().trim();
+            String date = spanText.substring(FISCAL_YEAR_END_LABEL.length()).trim();
+            for (int i = 0; i < date.length(); i++) {
+                char c = date.charAt(i);
+                if (c != '.' && (c < '0' || c > '9')) {
+                    return;
+                }
+            }
+            page.fiscalYearEnd = date;
+        }
+
+        private boolean textStartsWith(String prefix) {
+            int start = 0;
+            while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            if (text.length() - start < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (text.charAt(start + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean textEndsWith(String suffix) {
+            int end = text.length();
+            while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            if (end < suffix.length()) {
+                return false;
+            }
+            int start = end - suffix.length();
+            for (int i = 0; i < suffix.length(); i++) {
+                if (text.charAt(start + i) != suffix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int tagName(int start) {
+            // all wanted tags start with t or s
+            char first = start < tagLength ? Character.toLowerCase(tag[start]) : 0;
+            if (first != 't' && first != 's') {
+                return UNKNOWN;
+            }
+            for (int name = 0; name < TAG_NAMES.length; name++) {
+                if (isTagName(start, TAG_NAMES[name])) {
+                    return name;
+                }
+            }
+            return UNKNOWN;
+        }
+
+        private boolean isTagName(int start, String name) {
+            int end = start + name.length();
+            if (end > tagLength) {
+                return false;
+            }
+            for (int i = 0; i < name.length(); i++) {
+                if (Character.toLowerCase(tag[start + i]) != name.charAt(i)) {
+                    return false;
+                }
+            }
+            return end == tagLength || Character.isWhitespace(tag[end]) || tag[end] == '/';
+        }
+
+        private boolean tagContains(String part) {
+            for (int start = 0; start + part.length() <= tagLength; start++) {
+                int i = 0;
+                while (i < part.length() && tag[start + i] == part.charAt(i)) {
+                    i++;
+                }
+                if (i == part.length()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
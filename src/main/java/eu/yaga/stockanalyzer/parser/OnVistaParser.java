@@ -3,7 +3,7 @@ package eu.yaga.stockanalyzer.parser;
 import eu.yaga.stockanalyzer.model.EarningsPerShare;
 import eu.yaga.stockanalyzer.model.FundamentalData;
 import eu.yaga.stockanalyzer.model.StockType;
-import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
 import eu.yaga.stockanalyzer.service.CurrentStockQuotesService;
 import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -12,13 +12,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Parses data from onvista.de
@@ -34,59 +36,89 @@ public class OnVistaParser {
 
     private static final Logger log = LoggerFactory.getLogger(OnVistaParser.class);
 
-    private String html;
-    private FundamentalData fundamentalData;
-    private Matcher matcher;
+    private static final int CURRENT_RATE_LOOKBACK_DAYS = 7;
+
+    /**
+     * The state of one parse run<br/>
+     * The parser itself keeps no state, so any number of threads can parse at the same time.
+     */
+    private static final class ParseContext {
+        private final OnVistaPage page;
+        private final FundamentalData fundamentalData;
+
+        private ParseContext(OnVistaPage page, FundamentalData fundamentalData) {
+            this.page = page;
+            this.fundamentalData = fundamentalData;
+        }
+    }
 
     public OnVistaParser() {}
 
+    /**
+     * parses the given onvista page
+     * @param html the page
+     * @param fd the fundamental data to fill
+     * @return the fundamental data
+     */
     public FundamentalData getFundamentalData(String html, FundamentalData fd) {
-        this.html = html;
+        try {
+            return getFundamentalData(new StringReader(html), fd);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * parses the onvista page while it is read, the page is never held in memory as a whole
+     * @param reader the page
+     * @param fd the fundamental data to fill
+     * @return the fundamental data
+     * @throws IOException if the page can't be read
+     */
+    public FundamentalData getFundamentalData(Reader reader, FundamentalData fd) throws IOException {
         String symbol = fd.getSymbol();
-        fundamentalData = fd;
+        FundamentalData fundamentalData = fd;
+        ParseContext context = new ParseContext(OnVistaPage.read(reader), fundamentalData);
 
         fundamentalData.setSymbol(symbol);
         fundamentalData.setDate(new Date());
 
-        String fiscalYearEnd = parseFiscalYearEnd();
+        String fiscalYearEnd = parseFiscalYearEnd(context);
         ArrayList<String> years = parseBusinessYears(fiscalYearEnd);
-        ArrayList<String> earningYears = parseEarningYears();
-        ArrayList<String> profitabilityYears = parseProfitabilityYears();
-        ArrayList<String> balanceSheetYears = parseBalanceSheetYears();
+        List<String> earningYears = parseEarningYears(context);
+        List<String> profitabilityYears = parseProfitabilityYears(context);
+        List<String> balanceSheetYears = parseBalanceSheetYears(context);
 
         fundamentalData.setBusinessYears(years);
 
         // Eigenkapitalrendite / ROE
-        fundamentalData.setRoe(parseRoe(profitabilityYears));
+        fundamentalData.setRoe(parseRoe(context, profitabilityYears));
 
         // EBIT-Marge
-        fundamentalData.setEbit(parseEbit(profitabilityYears));
+        fundamentalData.setEbit(parseEbit(context, profitabilityYears));
 
         // Marktkapitalisierung
-        fundamentalData.setMarketCapitalization(parseMarketCapitalization(profitabilityYears));
+        fundamentalData.setMarketCapitalization(parseMarketCapitalization(context, profitabilityYears));
 
         // Eigenkapitalquote
-        fundamentalData.setEquityRatio(parseEquityRatio(balanceSheetYears));
+        fundamentalData.setEquityRatio(parseEquityRatio(context, balanceSheetYears));
 
         // KGV
-        Map<String, String> earningsPerShare = parseEarningsPerShare(earningYears);
+        Map<String, String> earningsPerShare = parseEarningsPerShare(context, earningYears);
 
         double currentRate = 0;
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         LocalDate now = LocalDate.now();
 
-        int count = 0;
-        while (currentRate == 0 && count < 7) {
-            count++;
-            try {
-                List<HistoricalDataQuote> historicalExchangeRates = historicalExchangeRateService.getHistoricalExchangeRates(symbol, now.minusDays(1).format(dtf), now.format(dtf));
-                if (historicalExchangeRates.size() > 0) {
-                    currentRate = historicalExchangeRates.get(0).getClose();
-                }
-                now = now.minusDays(1);
-            } catch (ParseException e) {
-                log.error(e.getLocalizedMessage());
+        // one request for the last week, the latest trading day is looked up in the index
+        try {
+            QuoteSeries tradingDays = historicalExchangeRateService.getQuoteSeries(symbol, now.minusDays(CURRENT_RATE_LOOKBACK_DAYS).format(dtf), now.format(dtf));
+            int pos = tradingDays.floor(now.toEpochDay());
+            if (pos >= 0) {
+                currentRate = tradingDays.getClose(pos);
             }
+        } catch (ParseException e) {
+            log.error(e.getLocalizedMessage());
         }
         if (currentRate == 0) {
             throw new RuntimeException("Unable to receive current stock rate for " + symbol);
@@ -116,9 +148,9 @@ public class OnVistaParser {
 
 
         // 5 Jahre
-        fundamentalData.setPer5years(calculatePer5years(currentRate, earningsPerShare));
+        fundamentalData.setPer5years(calculatePer5years(context, currentRate, earningsPerShare));
         //aktuell
-        fundamentalData.setPerCurrent(calculatePer(currentRate, earningsPerShare));
+        fundamentalData.setPerCurrent(calculatePer(context, currentRate, earningsPerShare));
 
         return fundamentalData;
     }
@@ -139,18 +171,12 @@ public class OnVistaParser {
     /**
      * parses the fiscal year end (Geschäftsjahresende) for the current Stock
      * @return fiscal year end
+     * @param context the current parse run
      */
-    private String parseFiscalYearEnd() {
+    private String parseFiscalYearEnd(ParseContext context) {
         // Geschäftsjahresende
-        String geschaeftsjahresendeString = null;
-        Pattern geschaeftsjahresendePattern = Pattern.compile("<span>Geschäftsjahresende:\\s*([\\.0-9]*)</span>");
-        matcher = geschaeftsjahresendePattern.matcher(html);
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-            log.info(matcher.group(1));
-            geschaeftsjahresendeString = matcher.group(1).trim();
-        }
+        String geschaeftsjahresendeString = context.page.getFiscalYearEnd();
+        log.info(String.valueOf(geschaeftsjahresendeString));
 
         return geschaeftsjahresendeString;
     }
@@ -158,26 +184,11 @@ public class OnVistaParser {
     /**
      * parses the earning years for the current Stock
      * @return list of years
+     * @param context the current parse run
      */
-    private ArrayList<String> parseEarningYears() {
+    private List<String> parseEarningYears(ParseContext context) {
         // Gewinn Jahresangaben
-
-        Pattern gewinnJahresPattern = Pattern.compile("<table><thead><tr><th>\\s*Gewinn\\s*((?!</tr>).)*</tr></thead><tbody>");
-        matcher = gewinnJahresPattern.matcher(html);
-        ArrayList<String> gewinnJahresArray = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String jahresOut =  matcher.group(0);
-            gewinnJahresPattern = Pattern.compile("(\\s*<th class=\"ZAHL\">(((?!</).)*)</th>\\s*)");
-            matcher = gewinnJahresPattern.matcher(jahresOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2));
-                gewinnJahresArray.add(matcher.group(2).trim());
-            }
-        }
+        List<String> gewinnJahresArray = context.page.getEarningYears();
 
         log.info(gewinnJahresArray.toString());
         return gewinnJahresArray;
@@ -186,26 +197,11 @@ public class OnVistaParser {
     /**
      * parses the balance sheet years for the current Stock
      * @return list of years
+     * @param context the current parse run
      */
-    private ArrayList<String> parseBalanceSheetYears() {
+    private List<String> parseBalanceSheetYears(ParseContext context) {
         // Bilanz Jahresangaben
-
-        Pattern bilanzJahresPattern = Pattern.compile("<table><thead><tr><th>\\s*Bilanz\\s*((?!</tr>).)*</tr></thead><tbody>");
-        matcher = bilanzJahresPattern.matcher(html);
-        ArrayList<String> balanceSheetArray = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String bilanzJahresOut =  matcher.group(0);
-            bilanzJahresPattern = Pattern.compile("(\\s*<th class=\"ZAHL\">(((?!</).)*)</th>\\s*)");
-            matcher = bilanzJahresPattern.matcher(bilanzJahresOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2));
-                balanceSheetArray.add(matcher.group(2).trim());
-            }
-        }
+        List<String> balanceSheetArray = context.page.getBalanceSheetYears();
 
         log.info(balanceSheetArray.toString());
         return balanceSheetArray;
@@ -276,26 +272,11 @@ public class OnVistaParser {
      * parses the earnings per share (Gewinn pro Aktie)
      * @return roe
      * @param earningYears list of years
+     * @param context the current parse run
      */
-    private Map<String,String> parseEarningsPerShare(ArrayList<String> earningYears) {
+    private Map<String,String> parseEarningsPerShare(ParseContext context, List<String> earningYears) {
         // Gewinn pro Aktie (Tabelle Gewinn Jahresangaben)
-
-        Pattern gewinnProAktiePattern = Pattern.compile("<tr>\\s*<td[^/]*Gewinn pro Aktie in EUR((?!</tr>).)*</tr>");
-        matcher = gewinnProAktiePattern.matcher(html);
-        ArrayList<String> gewinnProAktieArray = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String gewinnProAktieOut =  matcher.group(0);
-            gewinnProAktiePattern = Pattern.compile("(\\s*<td class=\"ZAHL\">(((?!</).)*)</td>\\s*)");
-            matcher = gewinnProAktiePattern.matcher(gewinnProAktieOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2));
-                gewinnProAktieArray.add(matcher.group(2).trim());
-            }
-        }
+        List<String> gewinnProAktieArray = context.page.getEarningsPerShare();
 
         log.info(gewinnProAktieArray.toString());
 
@@ -316,26 +297,11 @@ public class OnVistaParser {
     /**
      * parses the profitability (Rentabilität) of the current stock
      * @return profitabilityYears
+     * @param context the current parse run
      */
-    private ArrayList<String> parseProfitabilityYears() {
+    private List<String> parseProfitabilityYears(ParseContext context) {
         // Rentabilität Jahresangaben
-
-        Pattern rentabilitaetJahresPattern = Pattern.compile("<table><thead><tr><th>\\s*Rentabilität\\s*((?!</tr>).)*</tr></thead><tbody>");
-        matcher = rentabilitaetJahresPattern.matcher(html);
-        ArrayList<String> profitabilityYears = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String rentabilitaetJahresOut =  matcher.group(0);
-            rentabilitaetJahresPattern = Pattern.compile("(\\s*<th class=\"ZAHL\">(((?!</).)*)</th>\\s*)");
-            matcher = rentabilitaetJahresPattern.matcher(rentabilitaetJahresOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2).trim());
-                profitabilityYears.add(matcher.group(2).trim());
-            }
-        }
+        List<String> profitabilityYears = context.page.getProfitabilityYears();
 
         log.info(profitabilityYears.toString());
         return profitabilityYears;
@@ -345,24 +311,10 @@ public class OnVistaParser {
      * parses the return on equity
      * @return roe
      * @param profitabilityYears the available years
+     * @param context the current parse run
      */
-    private double parseRoe(ArrayList<String> profitabilityYears) {
-        Pattern roePattern = Pattern.compile("<tr>\\s*<td[^/]*Eigenkapitalrendite</td>((?!</tr>).)*</tr>");
-        matcher = roePattern.matcher(html);
-        ArrayList<String> roeArray = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String roeOut =  matcher.group(0);
-            roePattern = Pattern.compile("(\\s*<td class=\"ZAHL\">(((?!</).)*)</td>\\s*)");
-            matcher = roePattern.matcher(roeOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2));
-                roeArray.add(matcher.group(2).trim());
-            }
-        }
+    private double parseRoe(ParseContext context, List<String> profitabilityYears) {
+        List<String> roeArray = context.page.getRoe();
 
         log.info(roeArray.toString());
 
@@ -375,15 +327,15 @@ public class OnVistaParser {
             roeMap.put(profitabilityYears.get(i), roeArray.get(i));
         }
 
-        log.info("roe last year: " + roeMap.get(fundamentalData.getLastYear()));
+        log.info("roe last year: " + roeMap.get(context.fundamentalData.getLastYear()));
 
-        String roe = roeMap.get(fundamentalData.getLastYear());
+        String roe = roeMap.get(context.fundamentalData.getLastYear());
         if (roe == null || !isOnvistaNumber(roe)) {
-            log.info("Trying " + fundamentalData.getLastYear() + "e as last year...");
-            roe = roeMap.get(fundamentalData.getLastYear() + "e");
+            log.info("Trying " + context.fundamentalData.getLastYear() + "e as last year...");
+            roe = roeMap.get(context.fundamentalData.getLastYear() + "e");
             if (roe == null || !isOnvistaNumber(roe)) {
-                log.info("roe two years ago: " + roeMap.get(fundamentalData.getTwoYearsAgo()));
-                roe = roeMap.get(fundamentalData.getTwoYearsAgo());
+                log.info("roe two years ago: " + roeMap.get(context.fundamentalData.getTwoYearsAgo()));
+                roe = roeMap.get(context.fundamentalData.getTwoYearsAgo());
             }
         }
         return Double.parseDouble(roe.replace("%", "").replace(",", "."));
@@ -393,24 +345,10 @@ public class OnVistaParser {
      * parses the market capitalization
      * @return marketCapitalization in million euro
      * @param profitabilityYears the available years
+     * @param context the current parse run
      */
-    private double parseMarketCapitalization(ArrayList<String> profitabilityYears) {
-        Pattern mcPattern = Pattern.compile("<tr>\\s*<td[^/]*Marktkapitalisierung in Mio. EUR</td>((?!</tr>).)*</tr>");
-        matcher = mcPattern.matcher(html);
-        ArrayList<String> mcArray = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String mcOut =  matcher.group(0);
-            mcPattern = Pattern.compile("(\\s*<td class=\"ZAHL\">(((?!</).)*)</td>\\s*)");
-            matcher = mcPattern.matcher(mcOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2));
-                mcArray.add(matcher.group(2).trim());
-            }
-        }
+    private double parseMarketCapitalization(ParseContext context, List<String> profitabilityYears) {
+        List<String> mcArray = context.page.getMarketCapitalization();
 
         log.info(mcArray.toString());
 
@@ -423,15 +361,15 @@ public class OnVistaParser {
             mcMap.put(profitabilityYears.get(i), mcArray.get(i));
         }
 
-        log.info("market capitalization last year: " + mcMap.get(fundamentalData.getLastYear()));
+        log.info("market capitalization last year: " + mcMap.get(context.fundamentalData.getLastYear()));
 
-        String mc = mcMap.get(fundamentalData.getLastYear());
+        String mc = mcMap.get(context.fundamentalData.getLastYear());
         if (mc == null || !isOnvistaNumber(mc)) {
-            log.info("Trying " + fundamentalData.getLastYear() + "e as last year...");
-            mc = mcMap.get(fundamentalData.getLastYear() + "e");
+            log.info("Trying " + context.fundamentalData.getLastYear() + "e as last year...");
+            mc = mcMap.get(context.fundamentalData.getLastYear() + "e");
             if (mc == null || !isOnvistaNumber(mc)) {
-                log.info("market capitalization two years ago: " + mcMap.get(fundamentalData.getTwoYearsAgo()));
-                mc = mcMap.get(fundamentalData.getTwoYearsAgo());
+                log.info("market capitalization two years ago: " + mcMap.get(context.fundamentalData.getTwoYearsAgo()));
+                mc = mcMap.get(context.fundamentalData.getTwoYearsAgo());
             }
         }
 
@@ -450,28 +388,14 @@ public class OnVistaParser {
      * parses the ebit
      * @return ebit
      * @param profitabilityYears the available years
+     * @param context the current parse run
      */
-    private double parseEbit(ArrayList<String> profitabilityYears) {
-        StockType stockType = fundamentalData.getStockType();
+    private double parseEbit(ParseContext context, List<String> profitabilityYears) {
+        StockType stockType = context.fundamentalData.getStockType();
         if (stockType == StockType.LARGE_FINANCE || stockType == StockType.MID_FINANCE || stockType == StockType.SMALL_FINANCE) {
             return 0;
         } else {
-            Pattern ebitPattern = Pattern.compile("<tr>\\s*<td[^/]*EBIT-Marge</td>((?!</tr>).)*</tr>");
-            matcher = ebitPattern.matcher(html);
-            ArrayList<String> ebitArray = new ArrayList<>();
-
-            while (matcher.find()) {
-                log.info("Matches gefunden!");
-
-                log.info(matcher.group(0));
-                String ebitOut = matcher.group(0);
-                ebitPattern = Pattern.compile("(\\s*<td class=\"ZAHL\">(((?!</).)*)</td>\\s*)");
-                matcher = ebitPattern.matcher(ebitOut);
-                while (matcher.find()) {
-                    log.debug(matcher.group(2));
-                    ebitArray.add(matcher.group(2).trim());
-                }
-            }
+            List<String> ebitArray = context.page.getEbit();
 
             log.info(ebitArray.toString());
 
@@ -484,15 +408,15 @@ public class OnVistaParser {
                 ebitMap.put(profitabilityYears.get(i), ebitArray.get(i));
             }
 
-            log.info("Ebit last year: " + ebitMap.get(fundamentalData.getLastYear()));
+            log.info("Ebit last year: " + ebitMap.get(context.fundamentalData.getLastYear()));
 
-            String ebit = ebitMap.get(fundamentalData.getLastYear());
+            String ebit = ebitMap.get(context.fundamentalData.getLastYear());
             if (ebit == null || !isOnvistaNumber(ebit)) {
-                log.info("Trying " + fundamentalData.getLastYear() + "e as last year...");
-                ebit = ebitMap.get(fundamentalData.getLastYear() + "e");
+                log.info("Trying " + context.fundamentalData.getLastYear() + "e as last year...");
+                ebit = ebitMap.get(context.fundamentalData.getLastYear() + "e");
                 if (ebit == null || !isOnvistaNumber(ebit)) {
-                    log.info("Ebit two years ago: " + ebitMap.get(fundamentalData.getTwoYearsAgo()));
-                    ebit = ebitMap.get(fundamentalData.getTwoYearsAgo());
+                    log.info("Ebit two years ago: " + ebitMap.get(context.fundamentalData.getTwoYearsAgo()));
+                    ebit = ebitMap.get(context.fundamentalData.getTwoYearsAgo());
                 }
             }
             return Double.parseDouble(ebit.replace("%", "").replace(",", "."));
@@ -504,24 +428,10 @@ public class OnVistaParser {
      * parses the equity ratio
      * @return equity ratio
      * @param balanceSheetYears the available years
+     * @param context the current parse run
      */
-    private double parseEquityRatio(ArrayList<String> balanceSheetYears) {
-        Pattern eigenkapitalquotePattern = Pattern.compile("<tr>\\s*<td[^/]*Eigenkapitalquote</td>((?!</tr>).)*</tr>");
-        matcher = eigenkapitalquotePattern.matcher(html);
-        ArrayList<String> equityRatioArray = new ArrayList<>();
-
-        while (matcher.find()) {
-            log.info("Matches gefunden!");
-
-            log.info(matcher.group(0));
-            String eigenkapitalquoteOut =  matcher.group(0);
-            eigenkapitalquotePattern = Pattern.compile("(\\s*<td class=\"ZAHL\">(((?!</).)*)</td>\\s*)");
-            matcher = eigenkapitalquotePattern.matcher(eigenkapitalquoteOut);
-            while (matcher.find()) {
-                log.debug(matcher.group(2));
-                equityRatioArray.add(matcher.group(2).trim());
-            }
-        }
+    private double parseEquityRatio(ParseContext context, List<String> balanceSheetYears) {
+        List<String> equityRatioArray = context.page.getEquityRatio();
 
         log.info(equityRatioArray.toString());
 
@@ -534,15 +444,15 @@ public class OnVistaParser {
             equityRatioMap.put(balanceSheetYears.get(i), equityRatioArray.get(i));
         }
 
-        log.info("equity ratio last year: " + equityRatioMap.get(fundamentalData.getLastYear()));
+        log.info("equity ratio last year: " + equityRatioMap.get(context.fundamentalData.getLastYear()));
 
-        String equityRatio = equityRatioMap.get(fundamentalData.getLastYear());
+        String equityRatio = equityRatioMap.get(context.fundamentalData.getLastYear());
         if (equityRatio == null || !isOnvistaNumber(equityRatio)) {
-            log.info("Trying " + fundamentalData.getLastYear() + "e as last year...");
-            equityRatio = equityRatioMap.get(fundamentalData.getLastYear() + "e");
+            log.info("Trying " + context.fundamentalData.getLastYear() + "e as last year...");
+            equityRatio = equityRatioMap.get(context.fundamentalData.getLastYear() + "e");
             if (equityRatio == null || !isOnvistaNumber(equityRatio)) {
-                log.info("equity ratio two years ago: " + equityRatioMap.get(fundamentalData.getTwoYearsAgo()));
-                equityRatio = equityRatioMap.get(fundamentalData.getTwoYearsAgo());
+                log.info("equity ratio two years ago: " + equityRatioMap.get(context.fundamentalData.getTwoYearsAgo()));
+                equityRatio = equityRatioMap.get(context.fundamentalData.getTwoYearsAgo());
             }
         }
         return Double.parseDouble(equityRatio.replace("%", "").replace(",", "."));
@@ -554,18 +464,19 @@ public class OnVistaParser {
      * @param currentRate the stocks current rate
      * @param earningsPerShare eps
      * @return 5 years PER
+     * @param context the current parse run
      */
-    private double calculatePer5years(double currentRate, Map<String, String> earningsPerShare) {
-        double next = parseToDoubleOrZero(earningsPerShare.get(fundamentalData.getNextYear()).replace(",", "."));
-        double current = parseToDoubleOrZero(earningsPerShare.get(fundamentalData.getCurrentYear()).replace(",", "."));
+    private double calculatePer5years(ParseContext context, double currentRate, Map<String, String> earningsPerShare) {
+        double next = parseToDoubleOrZero(earningsPerShare.get(context.fundamentalData.getNextYear()).replace(",", "."));
+        double current = parseToDoubleOrZero(earningsPerShare.get(context.fundamentalData.getCurrentYear()).replace(",", "."));
         // If the data is not up to date at onvista...
-        String lastYearEps = earningsPerShare.get(fundamentalData.getLastYear());
+        String lastYearEps = earningsPerShare.get(context.fundamentalData.getLastYear());
         if (lastYearEps == null) {
-            lastYearEps = earningsPerShare.get(fundamentalData.getLastYear() + "e");
+            lastYearEps = earningsPerShare.get(context.fundamentalData.getLastYear() + "e");
         }
         double last = parseToDoubleOrZero(lastYearEps.replace(",", "."));
-        double twoAgo = parseToDoubleOrZero(earningsPerShare.get(fundamentalData.getTwoYearsAgo()).replace(",", "."));
-        double threeAgo = parseToDoubleOrZero(earningsPerShare.get(fundamentalData.getThreeYearsAgo()).replace(",", "."));
+        double twoAgo = parseToDoubleOrZero(earningsPerShare.get(context.fundamentalData.getTwoYearsAgo()).replace(",", "."));
+        double threeAgo = parseToDoubleOrZero(earningsPerShare.get(context.fundamentalData.getThreeYearsAgo()).replace(",", "."));
 
         double fiveYearsEarnings;
         if (next == 0 && current != 0 && last != 0 && twoAgo != 0 && threeAgo != 0) {
@@ -583,9 +494,10 @@ public class OnVistaParser {
      * @param currentRate the stocks current rate
      * @param earningsPerShare eps
      * @return the current PER
+     * @param context the current parse run
      */
-    private double calculatePer(double currentRate, Map<String, String> earningsPerShare) {
-        double current = parseToDoubleOrZero(earningsPerShare.get(fundamentalData.getCurrentYear()).replace(",", "."));
+    private double calculatePer(ParseContext context, double currentRate, Map<String, String> earningsPerShare) {
+        double current = parseToDoubleOrZero(earningsPerShare.get(context.fundamentalData.getCurrentYear()).replace(",", "."));
         return currentRate / current;
     }
 }
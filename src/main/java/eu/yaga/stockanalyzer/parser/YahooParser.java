@@ -14,9 +14,11 @@ public class YahooParser {
 
     private static final Logger log = LoggerFactory.getLogger(YahooParser.class);
 
+    // the response body keeps its line breaks, so whitespace between the cells is allowed
+    private static final Pattern RECOMMENDATION_PATTERN = Pattern.compile("<tr>\\s*<td [^<]*Durchschn\\. Empfehlung \\(diese Woche\\):</td>\\s*<td[^>]*+>\\s*(\\d,\\d)\\s*</td>");
+
     public static FundamentalData parseAnalystEstimation(String html, FundamentalData fd) {
-        Pattern pattern = Pattern.compile("<tr><td [^<]*Durchschn\\. Empfehlung \\(diese Woche\\):</td><td[^>]*>(\\d,\\d)</td>");
-        Matcher matcher = pattern.matcher(html);
+        Matcher matcher = RECOMMENDATION_PATTERN.matcher(html);
 
         while (matcher.find()) {
             log.info(matcher.group(0));
@@ -6,7 +6,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 /**
  * the Mongo repository that stores fetched and rated data
  */
-public interface FundamentalDataRepository extends MongoRepository<FundamentalData, String> {
+public interface FundamentalDataRepository extends MongoRepository<FundamentalData, String>, FundamentalDataRepositoryCustom {
     FundamentalData findBySymbolOrderByDateDesc(String symbol);
     Long deleteBySymbol(String symbol);
 }
@@ -0,0 +1,72 @@
+package eu.yaga.stockanalyzer.repository;
+
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries of the {@link FundamentalDataRepository} that can't be derived from method names
+ */
+public interface FundamentalDataRepositoryCustom {
+
+    /**
+     * returns the latest fundamental data of every symbol in one query
+     * @return the latest fundamental data sorted by symbol
+     */
+    List<FundamentalData> findLatestPerSymbol();
+
+    /**
+     * returns one page of the latest fundamental data of every symbol
+     * @param pageable the page and sort order, sorted by symbol if the sort is empty
+     * @return the latest fundamental data of the page
+     */
+    List<FundamentalData> findLatestPerSymbol(Pageable pageable);
+
+    /**
+     * returns the given fields of the latest fundamental data of every symbol, the projection is done by the database
+     * @param pageable the page and sort order, all symbols if null
+     * @param fields the fields to return, the symbol is always included
+     * @return the requested fields of the latest fundamental data
+     * @throws IllegalArgumentException if a field or sort property is not a field of {@link FundamentalData}
+     */
+    List<Map<String, Object>> findLatestPerSymbol(Pageable pageable, List<String> fields);
+
+    /**
+     * saves the given fundamental data in one unordered bulk write, new documents are inserted, existing ones replaced
+     * @param fundamentalData the fundamental data to save
+     * @return the number of inserted and updated documents
+     */
+    int bulkSave(Collection<FundamentalData> fundamentalData);
+
+    /**
+     * sets the given fields of the given documents in unordered bulk writes, all other fields are left untouched
+     * @param fundamentalData the changed fundamental data, documents without an id are skipped
+     * @param fields the changed fields, null values are removed from the documents
+     * @return the number of modified documents
+     * @throws IllegalArgumentException if a field is not a field of {@link FundamentalData}
+     */
+    int bulkSet(Collection<FundamentalData> fundamentalData, String... fields);
+
+    /**
+     * returns the stocks with automatic ratings that have been rated before the given date
+     * or whose quarterly figures may have been released since their last rating<br/>
+     * Only the fields needed to rate a stock and report the result are loaded.
+     * @param ratedBefore stocks rated before this date are due
+     * @return the candidates, the caller has to check the quarterly figures against the date of the rating
+     */
+    List<FundamentalData> findRatingCandidates(Date ratedBefore);
+
+    /**
+     * returns the stocks whose next quarterly figures are due or whose last quarterly figures are outdated<br/>
+     * Only the fields needed to check and report the dates are loaded.
+     * @param today stocks with next quarterly figures before this date are due
+     * @param ratedBefore stocks without next quarterly figures are checked if they have been rated before this date
+     * @param figuresBefore ... and their last quarterly figures are older than this date
+     * @return the candidates
+     */
+    List<FundamentalData> findQuarterlyFiguresCandidates(Date today, Date ratedBefore, Date figuresBefore);
+}
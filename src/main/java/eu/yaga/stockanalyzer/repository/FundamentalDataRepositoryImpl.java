@@ -0,0 +1,342 @@
+package eu.yaga.stockanalyzer.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBObject;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Implementation of the {@link FundamentalDataRepositoryCustom} queries
+ */
+class FundamentalDataRepositoryImpl implements FundamentalDataRepositoryCustom {
+
+    private static final Logger log = LoggerFactory.getLogger(FundamentalDataRepositoryImpl.class);
+
+    // documents per bulk write
+    private static final int BULK_BATCH_SIZE = 500;
+
+    private static final Map<String, Field> FIELDS = new HashMap<>();
+
+    static {
+        for (Field field : FundamentalData.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.getName().equals("id")) {
+                field.setAccessible(true);
+                FIELDS.put(field.getName(), field);
+            }
+        }
+    }
+
+    private static final String[] RATING_FIELDS = {
+            "symbol", "name", "stockType", "date", "lastQuarterlyFigures", "automaticRating", "overallRating"};
+
+    private static final String[] QUARTERLY_FIGURES_FIELDS = {
+            "symbol", "name", "date", "lastQuarterlyFigures", "nextQuarterlyFigures", "urls"};
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * creates the indexes of the candidate and latest queries once at startup
+     */
+    @PostConstruct
+    void createIndexes() {
+        createIndex(new Index().on("automaticRating", Sort.Direction.ASC).on("date", Sort.Direction.ASC));
+        createIndex(new Index().on("nextQuarterlyFigures", Sort.Direction.ASC).on("date", Sort.Direction.ASC));
+        createIndex(new Index().on("symbol", Sort.Direction.ASC).on("date", Sort.Direction.DESC));
+    }
+
+    /**
+     * returns the latest fundamental data of every symbol in one aggregation
+     * @return the latest fundamental data sorted by symbol
+     */
+    @Override
+    public List<FundamentalData> findLatestPerSymbol() {
+        return findLatestPerSymbol(null);
+    }
+
+    /**
+     * returns one page of the latest fundamental data of every symbol in one aggregation
+     * @param pageable the page and sort order, all symbols if null
+     * @return the latest fundamental data of the page
+     */
+    @Override
+    public List<FundamentalData> findLatestPerSymbol(Pageable pageable) {
+        Sort sort = getSort(pageable);
+
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(latestFirst());
+        operations.add(group("symbol").first(ROOT).as("latest"));
+        operations.add(replaceRoot("latest"));
+        operations.add(sort(sort));
+        addPage(operations, pageable);
+
+        return mongoTemplate.aggregate(newLatestAggregation(operations), FundamentalData.class, FundamentalData.class).getMappedResults();
+    }
+
+    /**
+     * returns the given fields of the latest fundamental data of every symbol in one aggregation<br/>
+     * Only the requested fields are taken from the latest documents, so the remaining fields never leave the database.
+     * @param pageable the page and sort order, all symbols if null
+     * @param fields the fields to return, the symbol is always included
+     * @return the requested fields of the latest fundamental data
+     */
+    @Override
+    public List<Map<String, Object>> findLatestPerSymbol(Pageable pageable, List<String> fields) {
+        Sort sort = getSort(pageable);
+
+        Set<String> groupFields = new LinkedHashSet<>(fields);
+        for (Sort.Order order : sort) {
+            groupFields.add(order.getProperty());
+        }
+        groupFields.remove("symbol");
+
+        GroupOperation group = group("symbol");
+        for (String field : groupFields) {
+            checkField(field);
+            group = group.first(field).as(field);
+        }
+
+        Set<String> projectedFields = new LinkedHashSet<>(fields);
+        projectedFields.remove("symbol");
+
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(latestFirst());
+        operations.add(group);
+        operations.add(sort(sort));
+        addPage(operations, pageable);
+        operations.add(project(projectedFields.toArray(new String[projectedFields.size()])).and("symbol").previousOperation());
+
+        List<DBObject> results = mongoTemplate.aggregate(newLatestAggregation(operations), FundamentalData.class, DBObject.class).getMappedResults();
+
+        List<Map<String, Object>> projections = new ArrayList<>();
+        for (DBObject result : results) {
+            Map<String, Object> projection = new LinkedHashMap<>();
+            projection.put("symbol", result.get("symbol"));
+            for (String field : projectedFields) {
+                projection.put(field, result.get(field));
+            }
+            projections.add(projection);
+        }
+        return projections;
+    }
+
+    /**
+     * saves the given fundamental data in one unordered bulk write<br/>
+     * Documents without an id are inserted, all others are replaced by an upsert by id like a save would do:
+     * the fields of the document are set and the fields that are null are removed.
+     * @param fundamentalData the fundamental data to save
+     * @return the number of inserted and updated documents
+     */
+    @Override
+    public int bulkSave(Collection<FundamentalData> fundamentalData) {
+        if (fundamentalData.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FundamentalData.class);
+        for (FundamentalData fd : fundamentalData) {
+            if (fd.getId() == null) {
+                bulk.insert(fd);
+            } else {
+                DBObject document = new BasicDBObject();
+                mongoTemplate.getConverter().write(fd, document);
+                bulk.upsert(byId(fd.getId()), toReplacement(document));
+            }
+        }
+
+        BulkWriteResult result = bulk.execute();
+        return result.getInsertedCount() + result.getMatchedCount() + result.getUpserts().size();
+    }
+
+    // bulk updates need update operators, so the converted document is written as $set and the missing fields as $unset
+    private static Update toReplacement(DBObject document) {
+        Update update = new Update();
+        for (String key : document.keySet()) {
+            if (!key.equals("_id")) {
+                update.set(key, document.get(key));
+            }
+        }
+        for (String field : FIELDS.keySet()) {
+            if (!document.containsField(field)) {
+                update.unset(field);
+            }
+        }
+        return update;
+    }
+
+    /**
+     * sets the given fields of the given documents in unordered bulk writes<br/>
+     * Every document gets one update by id with a $set of the given fields, or an $unset if a value is null,
+     * so the rest of the document (e.g. the eps history) is neither read nor written.
+     * @param fundamentalData the changed fundamental data, documents without an id are skipped
+     * @param fields the changed fields, null values are removed from the documents
+     * @return the number of modified documents
+     */
+    @Override
+    public int bulkSet(Collection<FundamentalData> fundamentalData, String... fields) {
+        for (String field : fields) {
+            checkField(field);
+        }
+
+        int modified = 0;
+        BulkOperations bulk = null;
+        int batchSize = 0;
+        for (FundamentalData fd : fundamentalData) {
+            if (fd.getId() == null) {
+                log.warn("Skipping update of unsaved fundamental data: " + fd.getSymbol());
+                continue;
+            }
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FundamentalData.class);
+            }
+            bulk.updateOne(byId(fd.getId()), toUpdate(fd, fields));
+
+            if (++batchSize == BULK_BATCH_SIZE) {
+                modified += modifiedCount(bulk.execute());
+                bulk = null;
+                batchSize = 0;
+            }
+        }
+        if (bulk != null) {
+            modified += modifiedCount(bulk.execute());
+        }
+        return modified;
+    }
+
+    private static int modifiedCount(BulkWriteResult result) {
+        // servers before 2.6 don't report modified documents
+        return result.isModifiedCountAvailable() ? result.getModifiedCount() : result.getMatchedCount();
+    }
+
+    // bulk operations send their queries unmapped, so the id is converted like the repository does it
+    private static Query byId(String id) {
+        return query(where("_id").is(ObjectId.isValid(id) ? new ObjectId(id) : id));
+    }
+
+    // the values are converted here for the same reason
+    private Update toUpdate(FundamentalData fd, String... fields) {
+        Update update = new Update();
+        for (String field : fields) {
+            Object value;
+            try {
+                value = FIELDS.get(field).get(fd);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            if (value == null) {
+                update.unset(field);
+            } else {
+                update.set(field, mongoTemplate.getConverter().convertToMongoType(value));
+            }
+        }
+        return update;
+    }
+
+    /**
+     * returns the stocks with automatic ratings that have been rated before the given date
+     * or whose quarterly figures may have been released since their last rating<br/>
+     * A release after the last rating compares two fields, the query only narrows it down to stocks rated since
+     * the given date with quarterly figures since that date as well.
+     * @param ratedBefore stocks rated before this date are due
+     * @return the candidates with the fields needed by the rating
+     */
+    @Override
+    public List<FundamentalData> findRatingCandidates(Date ratedBefore) {
+        Query query = query(where("automaticRating").is(true).orOperator(
+                where("date").lt(ratedBefore),
+                where("date").gt(ratedBefore).and("lastQuarterlyFigures").gt(ratedBefore)));
+        include(query, RATING_FIELDS);
+        return mongoTemplate.find(query, FundamentalData.class);
+    }
+
+    /**
+     * returns the stocks whose next quarterly figures are due or whose last quarterly figures are outdated
+     * @param today stocks with next quarterly figures before this date are due
+     * @param ratedBefore stocks without next quarterly figures are checked if they have been rated before this date
+     * @param figuresBefore ... and their last quarterly figures are older than this date
+     * @return the candidates with the fields needed by the check
+     */
+    @Override
+    public List<FundamentalData> findQuarterlyFiguresCandidates(Date today, Date ratedBefore, Date figuresBefore) {
+        Query query = query(new Criteria().orOperator(
+                where("nextQuarterlyFigures").lt(today),
+                where("nextQuarterlyFigures").is(null).and("date").lt(ratedBefore).and("lastQuarterlyFigures").lt(figuresBefore)));
+        include(query, QUARTERLY_FIGURES_FIELDS);
+        return mongoTemplate.find(query, FundamentalData.class);
+    }
+
+    private static void include(Query query, String... fields) {
+        for (String field : fields) {
+            query.fields().include(field);
+        }
+    }
+
+    private AggregationOperation latestFirst() {
+        return sort(new Sort(new Sort.Order(Sort.Direction.ASC, "symbol"), new Sort.Order(Sort.Direction.DESC, "date")));
+    }
+
+    private Aggregation newLatestAggregation(List<AggregationOperation> operations) {
+        return newAggregation(operations).withOptions(newAggregationOptions().allowDiskUse(true).build());
+    }
+
+    private Sort getSort(Pageable pageable) {
+        Sort symbolSort = new Sort(Sort.Direction.ASC, "symbol");
+        if (pageable == null || pageable.getSort() == null) {
+            return symbolSort;
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            checkField(order.getProperty());
+        }
+        // the symbol makes the order of equal values stable across pages
+        return pageable.getSort().and(symbolSort);
+    }
+
+    private void addPage(List<AggregationOperation> operations, Pageable pageable) {
+        if (pageable != null) {
+            operations.add(skip((long) pageable.getOffset()));
+            operations.add(limit(pageable.getPageSize()));
+        }
+    }
+
+    private void checkField(String field) {
+        if (!FIELDS.containsKey(field)) {
+            throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    /**
+     * creates an index unless it exists, the queries still work without it
+     * @param index the index
+     */
+    private void createIndex(Index index) {
+        try {
+            mongoTemplate.indexOps(FundamentalData.class).ensureIndex(index);
+        } catch (RuntimeException e) {
+            log.warn("Unable to create index on fundamental data: " + e.getLocalizedMessage());
+        }
+    }
+}
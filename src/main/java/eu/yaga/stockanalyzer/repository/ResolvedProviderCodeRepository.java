@@ -0,0 +1,10 @@
+package eu.yaga.stockanalyzer.repository;
+
+import eu.yaga.stockanalyzer.model.historicaldata.ResolvedProviderCode;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * the Mongo repository that stores the codes under which the quote providers know the symbols
+ */
+public interface ResolvedProviderCodeRepository extends MongoRepository<ResolvedProviderCode, String> {
+}
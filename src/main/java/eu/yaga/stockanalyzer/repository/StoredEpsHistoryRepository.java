@@ -0,0 +1,10 @@
+package eu.yaga.stockanalyzer.repository;
+
+import eu.yaga.stockanalyzer.model.StoredEpsHistory;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * the Mongo repository that stores the archived eps histories
+ */
+public interface StoredEpsHistoryRepository extends MongoRepository<StoredEpsHistory, String> {
+}
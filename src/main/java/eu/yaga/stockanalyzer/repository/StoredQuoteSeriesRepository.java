@@ -0,0 +1,10 @@
+package eu.yaga.stockanalyzer.repository;
+
+import eu.yaga.stockanalyzer.model.historicaldata.StoredQuoteSeries;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * the Mongo repository that stores the daily closes fetched from the quote providers
+ */
+public interface StoredQuoteSeriesRepository extends MongoRepository<StoredQuoteSeries, String> {
+}
@@ -0,0 +1,29 @@
+package eu.yaga.stockanalyzer.schedule;
+
+import eu.yaga.stockanalyzer.service.DailyQuoteUpdateService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Appends the closes of the last trading day to the quote store before the first ratings of the day
+ */
+@Component
+class DailyQuoteUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyQuoteUpdater.class);
+
+    @Autowired
+    private DailyQuoteUpdateService dailyQuoteUpdateService;
+
+    @Scheduled(cron = "0 30 7 * * MON-FRI")
+    void updateQuotes() {
+        log.info("Appending the closes of the last trading day...");
+        Map<String, Integer> appended = dailyQuoteUpdateService.updateLastTradingDay();
+        log.info("Appended closes by exchange: " + appended);
+    }
+}
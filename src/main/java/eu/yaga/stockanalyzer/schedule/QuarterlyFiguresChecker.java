@@ -10,10 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.List;
+import java.util.*;
 
 /**
  * Watches the dates of quarterly figures
@@ -45,7 +42,9 @@ class QuarterlyFiguresChecker {
         cal.add(Calendar.MONTH, -3);
         Date threeMonthAgo = cal.getTime();
 
-        List<FundamentalData> stocks = fundamentalDataRepository.findAll();
+        List<FundamentalData> stocks = fundamentalDataRepository.findQuarterlyFiguresCandidates(today, oneWeekAgo, threeMonthAgo);
+        // the released stocks with the urls of their mails
+        Map<FundamentalData, String> released = new LinkedHashMap<>();
 
         for (FundamentalData stock : stocks) {
             log.info("Checking... " + stock.getName());
@@ -60,16 +59,11 @@ class QuarterlyFiguresChecker {
                 // Update date of last quarterly figures
                 stock.setLastQuarterlyFigures(nextFigures);
                 stock.setNextQuarterlyFigures(null);
-                fundamentalDataRepository.save(stock);
-
-                emailService.send("Neue Quartalszahlen: " + stock.getName() + " (" + stock.getSymbol() +")",
-                        "Für " + stock.getName() + " wurden am " + stock.getLastQuarterlyFigures() +
-                        " neue Quartalszahlen veröffentlicht! \n" + urls);
+                released.put(stock, urls);
 
                 log.info("New quarterly figures released!");
             } else if (nextFigures == null && stock.getDate().before(oneWeekAgo)) {
                 if (stock.getLastQuarterlyFigures().before(threeMonthAgo)) {
-                    fundamentalDataRepository.save(stock);
                     emailService.send("Quartalszahlen Datum prüfen: " + stock.getName() + " (" + stock.getSymbol() +")",
                         "Für " + stock.getName() + " wurden die letzten Quartalszahlen vor mehr als 3 Montaten veröffentlicht (" +
                         stock.getLastQuarterlyFigures() + ") \n" + urls);
@@ -77,5 +71,15 @@ class QuarterlyFiguresChecker {
                 }
             }
         }
+
+        // only the dates of the released figures have changed, the mails are sent once they are saved
+        if (!released.isEmpty()) {
+            fundamentalDataRepository.bulkSet(new ArrayList<>(released.keySet()), "lastQuarterlyFigures", "nextQuarterlyFigures");
+        }
+        for (Map.Entry<FundamentalData, String> stock : released.entrySet()) {
+            emailService.send("Neue Quartalszahlen: " + stock.getKey().getName() + " (" + stock.getKey().getSymbol() +")",
+                    "Für " + stock.getKey().getName() + " wurden am " + stock.getKey().getLastQuarterlyFigures() +
+                    " neue Quartalszahlen veröffentlicht! \n" + stock.getValue());
+        }
     }
 }
@@ -4,17 +4,23 @@ import eu.yaga.stockanalyzer.model.FundamentalData;
 import eu.yaga.stockanalyzer.model.StockType;
 import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
 import eu.yaga.stockanalyzer.service.EmailService;
+import eu.yaga.stockanalyzer.service.FundamentalDataRefreshService;
+import eu.yaga.stockanalyzer.util.RatingBotProperties;
+import eu.yaga.stockanalyzer.util.RequestBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.List;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Scheduled Ratings
@@ -23,7 +29,6 @@ import java.util.List;
 class RatingBot {
 
     private static final Logger log = LoggerFactory.getLogger(RatingBot.class);
-    private static final String API_URL = "http://localhost:8081/api/";
 
     @Autowired
     private EmailService emailService;
@@ -32,7 +37,20 @@ class RatingBot {
     private FundamentalDataRepository fundamentalDataRepository;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private FundamentalDataRefreshService fundamentalDataRefreshService;
+
+    @Autowired
+    private RatingBotProperties ratingBotProperties;
+
+    @Autowired
+    private RequestBudget requestBudget;
+
+    private ExecutorService executor;
+
+    // accounting of all ratings since startup
+    private final AtomicLong ratingCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong ratingMillis = new AtomicLong();
 
     @Scheduled(cron = "0 0/10 8-20 * * MON-FRI")
     void rateStocks() {
@@ -42,16 +60,15 @@ class RatingBot {
         cal.add(Calendar.DAY_OF_MONTH, -7);
         Date oneWeekAgo = cal.getTime();
 
-        List<FundamentalData> stocks = fundamentalDataRepository.findAll();
+        List<FundamentalData> stocks = fundamentalDataRepository.findRatingCandidates(oneWeekAgo);
 
-        int cnt = 0;
+        List<Future<Boolean>> ratings = new ArrayList<>();
+        List<FundamentalData> disabled = Collections.synchronizedList(new ArrayList<>());
+        long tickStart = System.currentTimeMillis();
+        // a rating only starts when a worker is free, so the budgets include the requests of the finished ratings
+        Semaphore workers = new Semaphore(Math.max(1, ratingBotProperties.getWorkers()));
 
         for (FundamentalData stock : stocks) {
-            if (cnt >= 5) {
-                // request limiting
-                break;
-            }
-
             if (stock.getDate() == null) {
                 continue;
             }
@@ -66,43 +83,136 @@ class RatingBot {
             }
 
             if (ratingRequired && stock.isAutomaticRating()) {
-                cnt++;
-                log.info("Rating " + stock.getName());
-                final int oldRating = stock.getOverallRating();
-
                 try {
-                    FundamentalData fundamentalData = restTemplate.getForObject(API_URL + "fundamental-data/" + stock.getSymbol() + "/refresh", FundamentalData.class);
-                    final int newRating = fundamentalData.getOverallRating();
-
-                    log.info(stock.getName() + " (" + stock.getStockType() + ")" + " - old rating: " + oldRating + " new rating: " + newRating);
-
-                    StockType stockType = stock.getStockType();
-
-                    if (stockType == StockType.SMALL_CAP || stockType == StockType.MID_CAP
-                            || stockType == StockType.SMALL_FINANCE || stockType == StockType.MID_FINANCE) {
-                        if (oldRating < 7 && newRating >= 7) {
-                            sendNewRatingMail(stock, newRating, oldRating);
-                        }
-                        if (oldRating > 4 && newRating <= 4) {
-                            sendNewRatingMail(stock, newRating, oldRating);
-                        }
-                    } else {
-                        if (oldRating < 4 && newRating >= 4) {
-                            sendNewRatingMail(stock, newRating, oldRating);
-                        }
-                        if (oldRating > 2 && newRating <= 2) {
-                            sendNewRatingMail(stock, newRating, oldRating);
-                        }
+                    workers.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                String exhausted = requestBudget.getExhausted();
+                if (exhausted != null) {
+                    // request limiting, the remaining stocks are rated in one of the next runs
+                    log.info("Request budget of " + exhausted + " exhausted, postponing remaining ratings");
+                    workers.release();
+                    break;
+                }
+                ratings.add(getExecutor().submit(() -> {
+                    try {
+                        return rateStock(stock, disabled);
+                    } finally {
+                        workers.release();
                     }
-                } catch (Exception e) {
-                    log.error(e.getLocalizedMessage());
-                    log.info("Disabling automatic rating for " + stock.getSymbol());
-                    stock.setAutomaticRating(false);
-                    fundamentalDataRepository.save(stock);
-                    sendRatingsDisabledMail(stock);
+                }));
+            }
+        }
+
+        int errors = 0;
+        for (Future<Boolean> rating : ratings) {
+            try {
+                if (!rating.get()) {
+                    errors++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error(e.getLocalizedMessage());
+                errors++;
+            }
+        }
+
+        // only the flag of the failed stocks has changed
+        if (!disabled.isEmpty()) {
+            fundamentalDataRepository.bulkSet(disabled, "automaticRating");
+        }
+
+        if (!ratings.isEmpty()) {
+            log.info("Rated " + ratings.size() + " stocks in " + (System.currentTimeMillis() - tickStart) + " ms, "
+                    + errors + " errors (total: " + ratingCount.get() + " ratings, " + errorCount.get() + " errors, "
+                    + getAverageRatingMillis() + " ms per rating)");
+        }
+    }
+
+    long getRatingCount() {
+        return ratingCount.get();
+    }
+
+    long getErrorCount() {
+        return errorCount.get();
+    }
+
+    long getAverageRatingMillis() {
+        long count = ratingCount.get();
+        return count == 0 ? 0 : ratingMillis.get() / count;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * rates a stock and notifies about rating changes
+     * @param stock the stock
+     * @param disabled collects the stocks whose automatic rating has been disabled
+     * @return true if the rating succeeded
+     */
+    private boolean rateStock(FundamentalData stock, List<FundamentalData> disabled) {
+        log.info("Rating " + stock.getName());
+        final int oldRating = stock.getOverallRating();
+        long start = System.currentTimeMillis();
+
+        try {
+            FundamentalData fundamentalData;
+            try {
+                fundamentalData = fundamentalDataRefreshService.refreshFundamentalData(stock.getSymbol());
+            } finally {
+                long duration = System.currentTimeMillis() - start;
+                ratingCount.incrementAndGet();
+                ratingMillis.addAndGet(duration);
+                log.info("Refreshed " + stock.getSymbol() + " in " + duration + " ms");
+            }
+            final int newRating = fundamentalData.getOverallRating();
+
+            log.info(stock.getName() + " (" + stock.getStockType() + ")" + " - old rating: " + oldRating + " new rating: " + newRating);
+
+            StockType stockType = stock.getStockType();
+
+            if (stockType == StockType.SMALL_CAP || stockType == StockType.MID_CAP
+                    || stockType == StockType.SMALL_FINANCE || stockType == StockType.MID_FINANCE) {
+                if (oldRating < 7 && newRating >= 7) {
+                    sendNewRatingMail(stock, newRating, oldRating);
+                }
+                if (oldRating > 4 && newRating <= 4) {
+                    sendNewRatingMail(stock, newRating, oldRating);
+                }
+            } else {
+                if (oldRating < 4 && newRating >= 4) {
+                    sendNewRatingMail(stock, newRating, oldRating);
+                }
+                if (oldRating > 2 && newRating <= 2) {
+                    sendNewRatingMail(stock, newRating, oldRating);
                 }
             }
+            return true;
+        } catch (Exception e) {
+            errorCount.incrementAndGet();
+            log.error("Rating " + stock.getSymbol() + " failed: " + e.getLocalizedMessage());
+            log.info("Disabling automatic rating for " + stock.getSymbol());
+            stock.setAutomaticRating(false);
+            disabled.add(stock);
+            sendRatingsDisabledMail(stock);
+            return false;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, ratingBotProperties.getWorkers()));
         }
+        return executor;
     }
 
     private void sendNewRatingMail(FundamentalData stock, int newRating, int oldRating) {
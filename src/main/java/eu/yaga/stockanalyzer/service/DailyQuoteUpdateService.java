@@ -0,0 +1,20 @@
+package eu.yaga.stockanalyzer.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Service that appends the closes of the last trading day to the local quote store
+ */
+@Service
+public interface DailyQuoteUpdateService {
+
+    /**
+     * appends the closes of the last trading day of all stored stocks and all indices to the quote store,
+     * with one request per exchange
+     *
+     * @return the number of appended closes by exchange
+     */
+    Map<String, Integer> updateLastTradingDay();
+}
@@ -0,0 +1,29 @@
+package eu.yaga.stockanalyzer.service;
+
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+
+/**
+ * Service that refreshes, rates and stores the fundamental data of a stock
+ */
+@Service
+public interface FundamentalDataRefreshService {
+
+    /**
+     * refreshes the fundamental data of the given stock from all sources, rates and saves it
+     *
+     * @param symbol Symbol of the stock
+     * @return the rated fundamental data
+     */
+    FundamentalData refreshFundamentalData(String symbol) throws ParseException;
+
+    /**
+     * refreshes the fundamental data of the given stock from all sources and rates it without saving it
+     *
+     * @param symbol Symbol of the stock
+     * @return the rated fundamental data
+     */
+    FundamentalData rateFundamentalData(String symbol) throws ParseException;
+}
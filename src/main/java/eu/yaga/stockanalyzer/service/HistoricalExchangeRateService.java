@@ -2,6 +2,7 @@ package eu.yaga.stockanalyzer.service;
 
 import eu.yaga.stockanalyzer.model.FundamentalData;
 import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
 import org.springframework.stereotype.Service;
 
 import java.text.ParseException;
@@ -23,6 +24,18 @@ public interface HistoricalExchangeRateService {
      */
     List<HistoricalDataQuote> getHistoricalExchangeRates(String symbol, String dateStringFrom, String dateStringTo) throws ParseException;
 
+    /**
+     * This method returns the daily closes of the given stock as one compact series
+     *
+     * @param symbol Symbol of the stock
+     * @param dateStringFrom   Date of the start of the historical data (yyyy-MM-dd)
+     * @param dateStringTo     Date of the end of the historical data (yyyy-MM-dd)
+     * @return the closes sorted by date
+     */
+    default QuoteSeries getQuoteSeries(String symbol, String dateStringFrom, String dateStringTo) throws ParseException {
+        return QuoteSeries.of(symbol, getHistoricalExchangeRates(symbol, dateStringFrom, dateStringTo));
+    }
+
     /**
      * This method returns the stock's reaction to quarterly figures (comparing it to its index)
      *
@@ -52,4 +65,11 @@ public interface HistoricalExchangeRateService {
      * @return a list with the progression of the last 3 months
      */
     List<Double> getReversal3Month(FundamentalData fundamentalData);
+
+    /**
+     * This method loads the exchange rates needed to rate the given stock in advance, so the rating doesn't wait for them
+     * @param fundamentalData of the stock
+     */
+    default void prefetchRatingData(FundamentalData fundamentalData) {
+    }
 }
@@ -0,0 +1,80 @@
+package eu.yaga.stockanalyzer.service;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.springframework.stereotype.Service;
+import org.threeten.bp.LocalDate;
+
+import java.util.List;
+
+/**
+ * Service for the local store of daily closes
+ */
+@Service
+public interface QuoteStoreService {
+
+    /**
+     * Fetches the historical exchange rates of a symbol from a remote provider
+     */
+    interface QuoteFetcher {
+
+        /**
+         * @param symbol Symbol of the stock
+         * @param from first day to fetch
+         * @param to last day to fetch
+         * @return the fetched quotes, an empty list if the provider has no quotes in that range
+         * @throws RuntimeException if the provider could not be queried
+         */
+        List<HistoricalDataQuote> fetch(String symbol, LocalDate from, LocalDate to);
+
+        /**
+         * fetches the quotes without creating an object per quote, if the provider supports it
+         * @param symbol Symbol of the stock
+         * @param from first day to fetch
+         * @param to last day to fetch
+         * @return the fetched closes, an empty series if the provider has no quotes in that range
+         * @throws RuntimeException if the provider could not be queried
+         */
+        default QuoteSeries fetchSeries(String symbol, LocalDate from, LocalDate to) {
+            return QuoteSeries.of(symbol, fetch(symbol, from, to));
+        }
+    }
+
+    /**
+     * This method returns the stored exchange rates of the given stock.
+     * Date ranges that have not been stored yet are fetched with the given fetcher first.
+     *
+     * @param symbol Symbol of the stock
+     * @param from first day of the historical data
+     * @param to last day of the historical data
+     * @param fetcher the remote provider used for missing date ranges
+     * @return Historical Exchange Rates sorted by date
+     */
+    default List<HistoricalDataQuote> getHistoricalExchangeRates(String symbol, LocalDate from, LocalDate to, QuoteFetcher fetcher) {
+        return getQuoteSeries(symbol, from, to, fetcher).toQuoteList();
+    }
+
+    /**
+     * This method returns the stored closes of the given stock without creating an object per quote.
+     * Date ranges that have not been stored yet are fetched with the given fetcher first.
+     *
+     * @param symbol Symbol of the stock
+     * @param from first day of the historical data
+     * @param to last day of the historical data
+     * @param fetcher the remote provider used for missing date ranges
+     * @return the closes sorted by date
+     */
+    QuoteSeries getQuoteSeries(String symbol, LocalDate from, LocalDate to, QuoteFetcher fetcher);
+
+    /**
+     * Appends the close of a single day fetched elsewhere, e.g. by a bulk request for a whole exchange.
+     * The close is only appended if the stored closes reach up to the day before, apart from weekends.
+     * The current day counts as fetched afterwards, so the stored closes are used without asking the provider.
+     *
+     * @param symbol Symbol of the stock
+     * @param day the trading day of the close
+     * @param close the close
+     * @return true if the close has been appended, false if the symbol has no stored closes up to the day before
+     */
+    boolean appendClose(String symbol, LocalDate day, double close);
+}
@@ -0,0 +1,49 @@
+package eu.yaga.stockanalyzer.service;
+
+import eu.yaga.stockanalyzer.exception.TooManyRefreshJobsException;
+import eu.yaga.stockanalyzer.model.RefreshJob;
+import eu.yaga.stockanalyzer.model.StockIndex;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service that refreshes, rates and stores many stocks in the background
+ */
+@Service
+public interface RefreshJobService {
+
+    /**
+     * starts a job refreshing the given stocks
+     *
+     * @param symbols Symbols of the stocks
+     * @return the job, its progress is updated while it runs
+     * @throws IllegalArgumentException if no or too many symbols are given
+     * @throws TooManyRefreshJobsException if the maximum number of jobs is waiting to run
+     */
+    RefreshJob startJob(Collection<String> symbols);
+
+    /**
+     * starts a job refreshing all stored stocks of the given index
+     *
+     * @param stockIndex the index
+     * @return the job, its progress is updated while it runs
+     * @throws IllegalArgumentException if no stocks of the index are stored
+     * @throws TooManyRefreshJobsException if the maximum number of jobs is waiting to run
+     */
+    RefreshJob startJob(StockIndex stockIndex);
+
+    /**
+     * returns a running or recently finished job
+     *
+     * @param id the id of the job
+     * @return the job or null if it is unknown
+     */
+    RefreshJob getJob(String id);
+
+    /**
+     * @return the running and recently finished jobs, oldest first
+     */
+    List<RefreshJob> getJobs();
+}
@@ -0,0 +1,53 @@
+package eu.yaga.stockanalyzer.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Service remembering the code under which a quote provider knows a symbol
+ */
+@Service
+public interface ResolvedCodeService {
+
+    /**
+     * @param provider the name of the provider
+     * @param symbol the symbol
+     * @return the code that last delivered quotes or null if it is unknown
+     */
+    String getCode(String provider, String symbol);
+
+    /**
+     * remembers the code that delivered quotes
+     * @param provider the name of the provider
+     * @param symbol the symbol
+     * @param code the code
+     */
+    void resolved(String provider, String symbol, String code);
+
+    /**
+     * forgets the code if it is still the remembered one, e.g. because the provider rejected it
+     * @param provider the name of the provider
+     * @param symbol the symbol
+     * @param code the failing code
+     */
+    void invalidate(String provider, String symbol, String code);
+
+    /**
+     * sorts candidate codes so the remembered code is tried first, the other candidates keep their order
+     * @param provider the name of the provider
+     * @param symbol the symbol
+     * @param candidates the candidates, they are sorted in place
+     * @param code returns the code of a candidate
+     * @param <T> the type of the candidates
+     * @return the candidates
+     */
+    default <T> List<T> knownFirst(String provider, String symbol, List<T> candidates, Function<T, String> code) {
+        String knownCode = getCode(provider, symbol);
+        if (knownCode != null) {
+            candidates.sort((c1, c2) -> Boolean.compare(!knownCode.equals(code.apply(c1)), !knownCode.equals(code.apply(c2))));
+        }
+        return candidates;
+    }
+}
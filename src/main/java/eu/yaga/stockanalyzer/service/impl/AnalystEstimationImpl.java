@@ -5,9 +5,10 @@ import eu.yaga.stockanalyzer.model.FundamentalDataUrl;
 import eu.yaga.stockanalyzer.parser.DibaParser;
 import eu.yaga.stockanalyzer.parser.YahooParser;
 import eu.yaga.stockanalyzer.service.AnalystEstimationService;
-import eu.yaga.stockanalyzer.util.HttpHelper;
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -19,6 +20,9 @@ public class AnalystEstimationImpl implements AnalystEstimationService{
 
     private static final Logger log = LoggerFactory.getLogger(AnalystEstimationImpl.class);
 
+    @Autowired
+    private PooledHttpClient httpClient;
+
     @Override
     public FundamentalData retrieveAnalystEstimation(FundamentalData fundamentalData) {
         FundamentalDataUrl analystUrl = null;
@@ -39,7 +43,7 @@ public class AnalystEstimationImpl implements AnalystEstimationService{
         if (analystUrl != null) {
             try {
                 URL url = new URL(analystUrl.getUrl());
-                String html = HttpHelper.queryHTML(url);
+                String html = httpClient.queryHTML(url, analystUrl.getType());
 
                 switch (analystUrl.getType()) {
                     case DIBA_ANALYST_ESTIMATION:
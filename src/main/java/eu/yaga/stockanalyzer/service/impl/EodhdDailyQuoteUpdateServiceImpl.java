@@ -0,0 +1,90 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.StockIndex;
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
+import eu.yaga.stockanalyzer.service.DailyQuoteUpdateService;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.threeten.bp.LocalDate;
+
+import java.util.*;
+
+/**
+ * Implementation of the {@link DailyQuoteUpdateService} with the bulk eod requests of eodhistoricaldata.com<br/>
+ * The symbols are mapped to the eodhd code that last delivered their quotes and grouped by exchange.
+ * Each configured exchange is requested once, symbols of other exchanges are fetched on their own when they are rated.
+ */
+public class EodhdDailyQuoteUpdateServiceImpl implements DailyQuoteUpdateService {
+
+    private static final Logger log = LoggerFactory.getLogger(EodhdDailyQuoteUpdateServiceImpl.class);
+
+    @Autowired
+    private FundamentalDataRepository fundamentalDataRepository;
+
+    @Autowired
+    private QuoteStoreService quoteStoreService;
+
+    @Autowired
+    private EodhdQuoteFetcher eodhdQuoteFetcher;
+
+    @Autowired
+    private EodhdProperties eodhdProperties;
+
+    /**
+     * appends the closes of the last trading day of all stored stocks and all indices to the quote store
+     *
+     * @return the number of appended closes by exchange
+     */
+    @Override
+    public Map<String, Integer> updateLastTradingDay() {
+        Set<String> symbols = new TreeSet<>();
+        for (Map<String, Object> stock : fundamentalDataRepository.findLatestPerSymbol(null, Collections.singletonList("symbol"))) {
+            symbols.add((String) stock.get("symbol"));
+        }
+        for (StockIndex stockIndex : StockIndex.values()) {
+            symbols.add(stockIndex.getSymbol());
+        }
+
+        // symbols by eodhd code without exchange, by exchange
+        Map<String, Map<String, List<String>>> exchanges = new TreeMap<>();
+        for (String symbol : symbols) {
+            String code = eodhdQuoteFetcher.buildEodhdCode(symbol).get(0).getCode();
+            int separator = code.lastIndexOf('.');
+            String exchange = code.substring(separator + 1);
+            if (eodhdProperties.getBulkExchanges().contains(exchange)) {
+                exchanges.computeIfAbsent(exchange, e -> new HashMap<>())
+                        .computeIfAbsent(code.substring(0, separator), c -> new ArrayList<>()).add(symbol);
+            }
+        }
+
+        Map<String, Integer> appended = new TreeMap<>();
+        for (Map.Entry<String, Map<String, List<String>>> exchange : exchanges.entrySet()) {
+            List<HistoricalDataQuote> closes = new ArrayList<>();
+            try {
+                int quotes = eodhdQuoteFetcher.fetchLastDay(exchange.getKey(), (code, epochDay, close) -> {
+                    for (String symbol : exchange.getValue().getOrDefault(code, Collections.emptyList())) {
+                        closes.add(new HistoricalDataQuote(symbol, LocalDate.ofEpochDay(epochDay).toString(), close));
+                    }
+                });
+                log.info("Bulk eod data of " + exchange.getKey() + ": " + quotes + " quotes, " + closes.size() + " closes of stored symbols");
+            } catch (RuntimeException e) {
+                log.warn("Error retrieving bulk eod data of " + exchange.getKey() + ": " + e.getLocalizedMessage());
+                continue;
+            }
+
+            // the store is written after the response has been read
+            int count = 0;
+            for (HistoricalDataQuote close : closes) {
+                if (quoteStoreService.appendClose(close.getSymbol(), LocalDate.parse(close.getDate()), close.getClose())) {
+                    count++;
+                }
+            }
+            appended.put(exchange.getKey(), count);
+        }
+        return appended;
+    }
+}
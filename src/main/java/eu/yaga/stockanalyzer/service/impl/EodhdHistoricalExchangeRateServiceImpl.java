@@ -3,15 +3,16 @@ package eu.yaga.stockanalyzer.service.impl;
 import eu.yaga.stockanalyzer.model.FundamentalData;
 import eu.yaga.stockanalyzer.model.RateProgressBean;
 import eu.yaga.stockanalyzer.model.StockIndex;
-import eu.yaga.stockanalyzer.model.eodhd.EodhdQuote;
 import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
 import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
-import eu.yaga.stockanalyzer.util.EodhdCode;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
 import eu.yaga.stockanalyzer.util.EodhdProperties;
+import eu.yaga.stockanalyzer.util.IndexHistoryCache;
+import eu.yaga.stockanalyzer.util.QuoteProviderRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.client.RestTemplate;
 import org.threeten.bp.DateTimeUtils;
 import org.threeten.bp.LocalDate;
 import org.threeten.bp.ZoneId;
@@ -22,7 +23,8 @@ import java.text.ParseException;
 import java.util.*;
 
 /**
- * Implementation of the {@link HistoricalExchangeRateService} for eodhistoricaldata.com
+ * Implementation of the {@link HistoricalExchangeRateService} for eodhistoricaldata.com<br/>
+ * Missing quotes are fetched by the {@link QuoteProviderRouter}, eodhistoricaldata.com is its first provider by default.
  */
 public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchangeRateService {
 
@@ -30,17 +32,25 @@ public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchang
     private EodhdProperties eodhdProperties;
 
     @Autowired
-    private RestTemplate restTemplate;
+    private QuoteProviderRouter quoteProviderRouter;
+
+    @Autowired
+    private QuoteStoreService quoteStoreService;
+
+    @Autowired
+    private IndexHistoryCache indexHistoryCache;
 
     private static final Logger log = LoggerFactory.getLogger(EodhdHistoricalExchangeRateServiceImpl.class);
 
 
     private DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private final String BASE_URL = "https://eodhistoricaldata.com/api/eod/";
+    // days to look back for the prior trading day (weekends and holidays)
+    private static final int LOOKBACK_DAYS = 14;
 
     /**
-     * This method returns historical exchange Rates of the given stock
+     * This method returns historical exchange Rates of the given stock<br/>
+     * The rates are read from the local quote store, only missing date ranges are fetched from the fastest healthy provider
      *
      * @param symbol Symbol of the stock
      * @param dateStringFrom   Date of the start of the historical data (yyyy-MM-dd)
@@ -49,18 +59,21 @@ public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchang
      */
     @Override
     public List<HistoricalDataQuote> getHistoricalExchangeRates(String symbol, String dateStringFrom, String dateStringTo) throws ParseException {
-        log.info("Getting HistoricalExchangeRates for: " + symbol + " " + dateStringFrom + " " + dateStringTo);
-        String[] splitSymbol = symbol.split("\\.");
-        String cleanSymbol = splitSymbol[0];
-        String exchange = "";
-        if (splitSymbol.length > 1) {
-            exchange = splitSymbol[1];
-        }
-
-        List<EodhdCode> eodhdCodeList = buildEodhdCode(cleanSymbol, exchange);
-
-        log.info("Clean Symbol: " + cleanSymbol);
+        return getQuoteSeries(symbol, dateStringFrom, dateStringTo).toQuoteList();
+    }
 
+    /**
+     * This method returns the daily closes of the given stock as one compact series<br/>
+     * The closes are read from the local quote store, only missing date ranges are fetched from the fastest healthy provider
+     *
+     * @param symbol Symbol of the stock
+     * @param dateStringFrom   Date of the start of the historical data (yyyy-MM-dd)
+     * @param dateStringTo     Date of the end of the historical data (yyyy-MM-dd)
+     * @return the closes sorted by date
+     */
+    @Override
+    public QuoteSeries getQuoteSeries(String symbol, String dateStringFrom, String dateStringTo) throws ParseException {
+        log.info("Getting HistoricalExchangeRates for: " + symbol + " " + dateStringFrom + " " + dateStringTo);
         LocalDate dateTo = LocalDate.now();
         if (dateStringTo != null) {
             dateTo = LocalDate.parse(dateStringTo, DateTimeFormatter.ISO_LOCAL_DATE);
@@ -78,62 +91,7 @@ public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchang
             throw new RuntimeException("The from date has to be before the to date!");
         }
 
-        List<HistoricalDataQuote> quoteList = new ArrayList<>();
-
-        String urlParams = "?period=d&fmt=json&api_token=" + eodhdProperties.getAuth().getToken()
-                + "&from=" + dateStringFrom + "&to=" + dateStringTo;
-
-        for (EodhdCode code : eodhdCodeList) {
-            EodhdQuote[] quotes = new EodhdQuote[0];
-            try {
-                quotes = restTemplate.getForObject(BASE_URL + code.getCode() + urlParams, EodhdQuote[].class);
-            } catch (Exception e) {
-                log.warn("error retrieving eod data");
-            }
-
-            if (quotes.length > 0) {
-                for (EodhdQuote quote : quotes) {
-                    quoteList.add(new HistoricalDataQuote(code.getSymbol(), quote.getDate(), quote.getClose()));
-                }
-                break;
-            }
-        }
-
-        return quoteList;
-    }
-
-    /**
-     * Generates a list of eodhdCodes to try
-     * @param cleanSymbol the stocks symbol
-     * @param exchange the symbol of the exchange
-     * @return a list of Strings with eodhd codes
-     */
-    private List<EodhdCode> buildEodhdCode(String cleanSymbol, String exchange) {
-
-        List<EodhdCode> eodhdCodeList = new ArrayList<>();
-
-        if (cleanSymbol.startsWith("^")) {
-            String cutSymbol = cleanSymbol.replace("^", "");
-            eodhdCodeList.add(new EodhdCode(cutSymbol, cutSymbol + ".INDX", null, null));
-        } else {
-            switch (exchange) {
-                case "F":
-                case "DE":
-                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".XETRA", "EUR", "Close"));
-                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".F", "EUR", "Close"));
-                    break;
-                case "US":
-                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".US", "USD", "Close"));
-                    break;
-                case "AS":
-                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".AS", "EUR", "Last"));
-                    break;
-                default:
-                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".US", "USD", "Close"));
-            }
-        }
-
-        return eodhdCodeList;
+        return quoteStoreService.getQuoteSeries(symbol, dateFrom, dateTo, quoteProviderRouter);
     }
 
     /**
@@ -155,31 +113,27 @@ public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchang
 
             LocalDate date = DateTimeUtils.toInstant(dateLegacy).atZone(ZoneId.systemDefault()).toLocalDate();
 
-            String dateString = date.format(dtf);
-            String priorDay = date.minusDays(1).format(dtf);
+            QuoteSeries ratesSymbol = getWindowContaining(symbol, date);
+            int posSymbol = ratesSymbol.floor(date.toEpochDay());
+            int posSymbolPriorDay = posSymbol - 1;
 
-            List<HistoricalDataQuote> ratesSymbol = getHistoricalExchangeRates(symbol, priorDay, dateString);
-            LocalDate dateTmp = date;
-
-            int cnt = 0;
-            while (ratesSymbol.size() < 2 && cnt <= 7) {
-                cnt++;
-                dateTmp = dateTmp.minusDays(1);
-                priorDay = dateTmp.format(dtf);
-                ratesSymbol = getHistoricalExchangeRates(symbol, priorDay, dateString);
-            }
-
-            if (ratesSymbol.size() < 2) {
+            if (posSymbolPriorDay < 0) {
                 throw new RuntimeException("Unable to get historical exchange rates for " + symbol);
             }
 
-            List<HistoricalDataQuote> ratesIndex = getHistoricalExchangeRates(indexSymbol, priorDay, dateString);
+            QuoteSeries ratesIndex = getWindowContaining(indexSymbol, date);
+            int posIndex = ratesIndex.floor(ratesSymbol.getEpochDay(posSymbol));
+            int posIndexPriorDay = ratesIndex.floor(ratesSymbol.getEpochDay(posSymbolPriorDay));
+
+            if (posIndex < 0 || posIndexPriorDay < 0) {
+                throw new RuntimeException("Unable to get historical exchange rates for " + indexSymbol);
+            }
 
             // calculate Data
-            double closeSymbol = ratesSymbol.get(0).getClose();
-            double closeSymbolPriorDay = ratesSymbol.get(1).getClose();
-            double closeIndex = ratesIndex.get(0).getClose();
-            double closeIndexPriorDay = ratesIndex.get(1).getClose();
+            double closeSymbol = ratesSymbol.getClose(posSymbol);
+            double closeSymbolPriorDay = ratesSymbol.getClose(posSymbolPriorDay);
+            double closeIndex = ratesIndex.getClose(posIndex);
+            double closeIndexPriorDay = ratesIndex.getClose(posIndexPriorDay);
 
             double progressSymbol = (1 - closeSymbolPriorDay / closeSymbol) * 100;
             log.info("progressSymbol " + symbol + ": " + progressSymbol);
@@ -232,105 +186,151 @@ public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchang
         String stockIndex = fundamentalData.getStockIndex().getSymbol();
 
         if (symbol != null && stockIndex != null) {
-            LocalDate lastMonth = LocalDate.now().minusMonths(1);
-            LocalDate twoMonthAgo = LocalDate.now().minusMonths(2);
-            LocalDate threeMonthAgo = LocalDate.now().minusMonths(3);
-            LocalDate fourMonthAgo = LocalDate.now().minusMonths(4);
-
-            LocalDate endOfLastMonth = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
-            LocalDate endOfTwoMonthAgo = twoMonthAgo.withDayOfMonth(twoMonthAgo.lengthOfMonth());
-            LocalDate endOfThreeMonthAgo = threeMonthAgo.withDayOfMonth(threeMonthAgo.lengthOfMonth());
-            LocalDate endOfFourMonthAgo = fourMonthAgo.withDayOfMonth(fourMonthAgo.lengthOfMonth());
-
-            RateProgressBean symbolProgressLastMonthBean = getRateProgress(symbol, endOfLastMonth, endOfTwoMonthAgo);
-            RateProgressBean symbolProgressTwoMonthAgoBean = getRateProgress(symbol, endOfTwoMonthAgo, endOfThreeMonthAgo);
-            RateProgressBean symbolProgressThreeMonthAgoBean = getRateProgress(symbol, endOfThreeMonthAgo, endOfFourMonthAgo);
-
-            double symbolProgressLastMonth = symbolProgressLastMonthBean.getProgress();
-            double symbolProgressTwoMonthAgo = symbolProgressTwoMonthAgoBean.getProgress();
-            double symbolProgressThreeMonthAgo = symbolProgressThreeMonthAgoBean.getProgress();
-
-            double indexProgressLastMonth = getIndexRateProgress(
-                    fundamentalData.getStockIndex(),
-                    symbolProgressLastMonthBean.getBaseDateQuote().getDate(),
-                    symbolProgressLastMonthBean.getCompareDateQuote().getDate());
-            double indexProgressTwoMonthAgo = getIndexRateProgress(
-                    fundamentalData.getStockIndex(),
-                    symbolProgressTwoMonthAgoBean.getBaseDateQuote().getDate(),
-                    symbolProgressTwoMonthAgoBean.getCompareDateQuote().getDate());
-            double indexProgressThreeMonthAgo = getIndexRateProgress(
-                    fundamentalData.getStockIndex(),
-                    symbolProgressThreeMonthAgoBean.getBaseDateQuote().getDate(),
-                    symbolProgressThreeMonthAgoBean.getCompareDateQuote().getDate());
-
-            List<Double> reversalList = new ArrayList<>();
-            reversalList.add(symbolProgressLastMonth - indexProgressLastMonth);
-            reversalList.add(symbolProgressTwoMonthAgo - indexProgressTwoMonthAgo);
-            reversalList.add(symbolProgressThreeMonthAgo - indexProgressThreeMonthAgo);
-
-            return reversalList;
-        } else {
-            List<Double> reversalList = new ArrayList<>();
-            reversalList.add(-999.0);
-            return reversalList;
+            try {
+                QuoteSeries ratesSymbol = getRatingWindow(symbol);
+                QuoteSeries ratesIndex = getRatingWindow(stockIndex);
+
+                LocalDate lastMonth = LocalDate.now().minusMonths(1);
+                LocalDate twoMonthAgo = LocalDate.now().minusMonths(2);
+                LocalDate threeMonthAgo = LocalDate.now().minusMonths(3);
+                LocalDate fourMonthAgo = LocalDate.now().minusMonths(4);
+
+                LocalDate endOfLastMonth = lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
+                LocalDate endOfTwoMonthAgo = twoMonthAgo.withDayOfMonth(twoMonthAgo.lengthOfMonth());
+                LocalDate endOfThreeMonthAgo = threeMonthAgo.withDayOfMonth(threeMonthAgo.lengthOfMonth());
+                LocalDate endOfFourMonthAgo = fourMonthAgo.withDayOfMonth(fourMonthAgo.lengthOfMonth());
+
+                RateProgressBean symbolProgressLastMonthBean = getRateProgress(ratesSymbol, endOfLastMonth, endOfTwoMonthAgo);
+                RateProgressBean symbolProgressTwoMonthAgoBean = getRateProgress(ratesSymbol, endOfTwoMonthAgo, endOfThreeMonthAgo);
+                RateProgressBean symbolProgressThreeMonthAgoBean = getRateProgress(ratesSymbol, endOfThreeMonthAgo, endOfFourMonthAgo);
+
+                double symbolProgressLastMonth = symbolProgressLastMonthBean.getProgress();
+                double symbolProgressTwoMonthAgo = symbolProgressTwoMonthAgoBean.getProgress();
+                double symbolProgressThreeMonthAgo = symbolProgressThreeMonthAgoBean.getProgress();
+
+                double indexProgressLastMonth = getIndexRateProgress(
+                        fundamentalData.getStockIndex(),
+                        ratesIndex,
+                        symbolProgressLastMonthBean.getBaseDateQuote().getDate(),
+                        symbolProgressLastMonthBean.getCompareDateQuote().getDate());
+                double indexProgressTwoMonthAgo = getIndexRateProgress(
+                        fundamentalData.getStockIndex(),
+                        ratesIndex,
+                        symbolProgressTwoMonthAgoBean.getBaseDateQuote().getDate(),
+                        symbolProgressTwoMonthAgoBean.getCompareDateQuote().getDate());
+                double indexProgressThreeMonthAgo = getIndexRateProgress(
+                        fundamentalData.getStockIndex(),
+                        ratesIndex,
+                        symbolProgressThreeMonthAgoBean.getBaseDateQuote().getDate(),
+                        symbolProgressThreeMonthAgoBean.getCompareDateQuote().getDate());
+
+                List<Double> reversalList = new ArrayList<>();
+                reversalList.add(symbolProgressLastMonth - indexProgressLastMonth);
+                reversalList.add(symbolProgressTwoMonthAgo - indexProgressTwoMonthAgo);
+                reversalList.add(symbolProgressThreeMonthAgo - indexProgressThreeMonthAgo);
+
+                return reversalList;
+            } catch (ParseException e) {
+                log.error(e.getLocalizedMessage());
+            }
         }
 
+        List<Double> reversalList = new ArrayList<>();
+        reversalList.add(-999.0);
+        return reversalList;
     }
 
     /**
-     * returns the rate progress from today
+     * This method loads the rating windows of the stock and its index and the rates around the last quarterly figures
+     *
+     * @param fundamentalData of the stock
+     */
+    @Override
+    public void prefetchRatingData(FundamentalData fundamentalData) {
+        String symbol = fundamentalData.getSymbol();
+        String indexSymbol = fundamentalData.getStockIndex() != null ? fundamentalData.getStockIndex().getSymbol() : null;
+        Date dateLegacy = fundamentalData.getLastQuarterlyFigures();
+        LocalDate date = dateLegacy != null ? DateTimeUtils.toInstant(dateLegacy).atZone(ZoneId.systemDefault()).toLocalDate() : null;
+
+        try {
+            for (String windowSymbol : Arrays.asList(symbol, indexSymbol)) {
+                if (windowSymbol != null) {
+                    getRatingWindow(windowSymbol);
+                    if (date != null) {
+                        getWindowContaining(windowSymbol, date);
+                    }
+                }
+            }
+        } catch (ParseException e) {
+            log.error(e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * returns the daily closes of the rating window (the last months up to today) in one request
      * @param symbol the symbol
-     * @param amount the amount of units to be subtracted
-     * @param chronoUnit the unit of the amount (days, months, ...)
-     * @return the rate progress
+     * @return the closes of the rating window
      */
-    private RateProgressBean getRateProgress(String symbol, int amount, ChronoUnit chronoUnit) {
+    private QuoteSeries getRatingWindow(String symbol) throws ParseException {
         LocalDate today = LocalDate.now();
-        LocalDate compareDate = today.minus(amount, chronoUnit);
-        return getRateProgress(symbol, today, compareDate);
+        LocalDate windowStart = today.minusMonths(eodhdProperties.getRatingWindowMonths());
+        return loadWindow(symbol, windowStart.format(dtf), today.format(dtf));
     }
 
     /**
-     * returns the rate progress from the base date
+     * returns the rating window if it contains the given date with some prior trading days,
+     * otherwise a short window ending at the given date
      * @param symbol the symbol
-     * @param baseDate the reference date
-     * @param compareDate the date to compare with
-     * @return the rate progress
+     * @param date the date that has to be contained
+     * @return the closes of the window
      */
-    private RateProgressBean getRateProgress(String symbol, LocalDate baseDate, LocalDate compareDate) {
-        try {
-            if (symbol != null && baseDate != null && compareDate != null) {
-                // Fetch data
-                LocalDate baseDateMinus = baseDate.minusDays(1);
-
-                List<HistoricalDataQuote> ratesToday = getHistoricalExchangeRates(symbol, baseDateMinus.format(dtf), baseDate.format(dtf));
-                int cnt = 0;
-                while (ratesToday.size() < 1 && cnt <= 10) {
-                    cnt++;
-                    baseDateMinus = baseDateMinus.minusDays(1);
-                    ratesToday = getHistoricalExchangeRates(symbol, baseDateMinus.format(dtf), baseDate.format(dtf));
-                }
-
-                // Find data for compareDate
-                LocalDate compareDateMinus = compareDate.minusDays(1);
+    private QuoteSeries getWindowContaining(String symbol, LocalDate date) throws ParseException {
+        LocalDate windowStart = LocalDate.now().minusMonths(eodhdProperties.getRatingWindowMonths());
+        LocalDate lookbackStart = date.minusDays(LOOKBACK_DAYS);
+        if (lookbackStart.isBefore(windowStart)) {
+            return loadWindow(symbol, lookbackStart.format(dtf), date.format(dtf));
+        }
+        return getRatingWindow(symbol);
+    }
 
-                List<HistoricalDataQuote> ratesCompareDate = getHistoricalExchangeRates(symbol, compareDateMinus.format(dtf), compareDate.format(dtf));
-                cnt = 0;
-                while (ratesCompareDate.size() < 1 && cnt <= 10) {
-                    cnt++;
-                    compareDateMinus = compareDateMinus.minusDays(1);
-                    ratesCompareDate = getHistoricalExchangeRates(symbol, compareDateMinus.format(dtf), compareDate.format(dtf));
-                }
+    /**
+     * loads the closes of a date range, index histories are loaded once and shared between all ratings of the day
+     * @param symbol the symbol
+     * @param dateStringFrom first day of the range (yyyy-MM-dd)
+     * @param dateStringTo last day of the range (yyyy-MM-dd)
+     * @return the closes of the range
+     */
+    private QuoteSeries loadWindow(String symbol, String dateStringFrom, String dateStringTo) throws ParseException {
+        if (!isStockIndex(symbol)) {
+            return getQuoteSeries(symbol, dateStringFrom, dateStringTo);
+        }
 
-                double closeToday = ratesToday.get(0).getClose();
-                log.info("closeToday: " + closeToday);
-                double closeCompareDate = ratesCompareDate.get(0).getClose();
-                log.info("closeCompareDate: " + closeCompareDate);
+        return indexHistoryCache.getOrLoad(symbol, dateStringFrom, dateStringTo,
+                () -> getQuoteSeries(symbol, dateStringFrom, dateStringTo));
+    }
 
-                double rateProgress = (closeToday - closeCompareDate) / closeCompareDate * 100;
-                log.info("rateProgress: " + rateProgress);
+    private boolean isStockIndex(String symbol) {
+        for (StockIndex stockIndex : StockIndex.values()) {
+            if (stockIndex.getSymbol().equals(symbol)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                return new RateProgressBean(ratesToday.get(0), ratesCompareDate.get(0), rateProgress);
+    /**
+     * returns the rate progress from today
+     * @param symbol the symbol
+     * @param amount the amount of units to be subtracted
+     * @param chronoUnit the unit of the amount (days, months, ...)
+     * @return the rate progress
+     */
+    private RateProgressBean getRateProgress(String symbol, int amount, ChronoUnit chronoUnit) {
+        try {
+            if (symbol != null) {
+                LocalDate today = LocalDate.now();
+                LocalDate compareDate = today.minus(amount, chronoUnit);
+                return getRateProgress(getRatingWindow(symbol), today, compareDate);
             }
             return null;
         } catch (ParseException e) {
@@ -339,33 +339,39 @@ public class EodhdHistoricalExchangeRateServiceImpl implements HistoricalExchang
     }
 
     /**
-     * returns the index' rate progress from the base date with backup data source
-     * @param index the StockIndex
-     * @param baseDateString the reference date
-     * @param compareDateString the date to compare with
+     * returns the rate progress from the base date, using the last close on or before each date
+     * @param rates the closes of the symbol
+     * @param baseDate the reference date
+     * @param compareDate the date to compare with
      * @return the rate progress
      */
-    private double getIndexRateProgress(StockIndex index, String baseDateString, String compareDateString) {
-        if (index != null && baseDateString != null && compareDateString != null) {
+    private RateProgressBean getRateProgress(QuoteSeries rates, LocalDate baseDate, LocalDate compareDate) {
+        int posToday = rates.floor(baseDate.toEpochDay());
+        int posCompareDate = rates.floor(compareDate.toEpochDay());
 
-            List<HistoricalDataQuote> ratesToday = null;
-            List<HistoricalDataQuote> ratesCompareDate = null;
-            try {
-                ratesToday = getHistoricalExchangeRates(index.getSymbol(), compareDateString, baseDateString);
-                ratesCompareDate = getHistoricalExchangeRates(index.getSymbol(), compareDateString, baseDateString);
-            } catch (ParseException e) {
-                e.printStackTrace();
-            }
+        if (posToday < 0 || posCompareDate < 0) {
+            throw new RuntimeException("Unable to get historical exchange rates for " + rates.getSymbol());
+        }
 
-            double closeToday = ratesToday.get(0).getClose();
-            log.info("closeToday: " + closeToday);
-            double closeCompareDate = ratesCompareDate.get(0).getClose();
-            log.info("closeCompareDate: " + closeCompareDate);
+        double rateProgress = rates.getProgress(posToday, posCompareDate);
+        log.info("rateProgress " + rates.getSymbol() + ": " + rateProgress);
 
-            double rateProgress = (closeToday - closeCompareDate) / closeCompareDate * 100;
-            log.info("rateProgress: " + rateProgress);
+        return new RateProgressBean(rates.toQuote(posToday), rates.toQuote(posCompareDate), rateProgress);
+    }
 
-            return rateProgress;
+    /**
+     * returns the index' rate progress from the base date
+     * @param index the StockIndex
+     * @param rates the closes of the index
+     * @param baseDateString the reference date
+     * @param compareDateString the date to compare with
+     * @return the rate progress
+     */
+    private double getIndexRateProgress(StockIndex index, QuoteSeries rates, String baseDateString, String compareDateString) {
+        if (index != null && baseDateString != null && compareDateString != null) {
+            LocalDate baseDate = LocalDate.parse(baseDateString, dtf);
+            LocalDate compareDate = LocalDate.parse(compareDateString, dtf);
+            return getRateProgress(rates, baseDate, compareDate).getProgress();
         }
         return -9999;
     }
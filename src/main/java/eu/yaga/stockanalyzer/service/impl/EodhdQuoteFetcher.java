@@ -0,0 +1,199 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.parser.EodhdQuoteParser;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import eu.yaga.stockanalyzer.service.ResolvedCodeService;
+import eu.yaga.stockanalyzer.util.EodhdCode;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import eu.yaga.stockanalyzer.util.RequestBudget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.format.DateTimeFormatter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetches historical exchange rates from eodhistoricaldata.com<br/>
+ * A symbol may be listed under several eodhd codes (e.g. XETRA and Frankfurt), they are tried one after another.
+ * The code that delivered quotes is stored per symbol and tried first next time, until eodhd rejects it.
+ * An answer without quotes for the stored code is final, the other codes are only tried if the symbol is not resolved yet.
+ * The responses are streamed into primitive arrays by the {@link EodhdQuoteParser}.
+ */
+public class EodhdQuoteFetcher implements QuoteStoreService.QuoteFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EodhdQuoteFetcher.class);
+
+    static final String PROVIDER = "eodhd";
+
+    private static final String BASE_URL = "https://eodhistoricaldata.com/api/eod/";
+    private static final String BULK_URL = "https://eodhistoricaldata.com/api/eod-bulk-last-day/";
+
+    private final DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final RestTemplate restTemplate;
+    private final EodhdProperties eodhdProperties;
+    private final ResolvedCodeService resolvedCodeService;
+    private final RequestBudget requestBudget;
+    private final EodhdQuoteParser quoteParser = new EodhdQuoteParser();
+
+    public EodhdQuoteFetcher(RestTemplate restTemplate, EodhdProperties eodhdProperties, ResolvedCodeService resolvedCodeService) {
+        this(restTemplate, eodhdProperties, resolvedCodeService, null);
+    }
+
+    public EodhdQuoteFetcher(RestTemplate restTemplate, EodhdProperties eodhdProperties, ResolvedCodeService resolvedCodeService,
+                             RequestBudget requestBudget) {
+        this.restTemplate = restTemplate;
+        this.eodhdProperties = eodhdProperties;
+        this.resolvedCodeService = resolvedCodeService;
+        this.requestBudget = requestBudget;
+    }
+
+    /**
+     * Fetches historical exchange rates from eodhistoricaldata.com
+     *
+     * @param symbol Symbol of the stock
+     * @param dateFrom first day of the historical data
+     * @param dateTo last day of the historical data
+     * @return Historical Exchange Rates, an empty list if no code has quotes in that range
+     * @throws RuntimeException if no code could be queried
+     */
+    @Override
+    public List<HistoricalDataQuote> fetch(String symbol, LocalDate dateFrom, LocalDate dateTo) {
+        return fetchSeries(symbol, dateFrom, dateTo).toQuoteList();
+    }
+
+    /**
+     * Fetches the closes from eodhistoricaldata.com without creating an object per quote
+     *
+     * @param symbol Symbol of the stock
+     * @param dateFrom first day of the historical data
+     * @param dateTo last day of the historical data
+     * @return the closes, an empty series if no code has quotes in that range
+     * @throws RuntimeException if no code could be queried
+     */
+    @Override
+    public QuoteSeries fetchSeries(String symbol, LocalDate dateFrom, LocalDate dateTo) {
+        List<EodhdCode> eodhdCodeList = buildEodhdCode(symbol);
+        String knownCode = resolvedCodeService.getCode(PROVIDER, symbol);
+
+        String urlParams = "?period=d&fmt=json&api_token=" + eodhdProperties.getAuth().getToken()
+                + "&from=" + dateFrom.format(dtf) + "&to=" + dateTo.format(dtf);
+        boolean adjusted = eodhdProperties.isAdjustedCloses();
+
+        RuntimeException lastError = null;
+        boolean answered = false;
+        for (EodhdCode code : eodhdCodeList) {
+            QuoteSeries quotes;
+            charge();
+            try {
+                quotes = restTemplate.execute(URI.create(BASE_URL + code.getCode() + urlParams), HttpMethod.GET, null,
+                        response -> quoteParser.parse(code.getSymbol(), response.getBody(), adjusted));
+                answered = true;
+            } catch (RuntimeException e) {
+                log.warn("Error retrieving eod data of " + code.getCode() + ": " + e.getLocalizedMessage());
+                if (isRejected(e)) {
+                    resolvedCodeService.invalidate(PROVIDER, symbol, code.getCode());
+                }
+                lastError = e;
+                continue;
+            }
+
+            if (quotes != null && !quotes.isEmpty()) {
+                resolvedCodeService.resolved(PROVIDER, symbol, code.getCode());
+                return quotes;
+            }
+            if (code.getCode().equals(knownCode)) {
+                // the code has delivered quotes before, there are just none in that range
+                return QuoteSeries.empty(symbol);
+            }
+        }
+
+        if (!answered && lastError != null) {
+            throw new RuntimeException("Unable to retrieve eod data for " + symbol, lastError);
+        }
+
+        return QuoteSeries.empty(symbol);
+    }
+
+    private void charge() {
+        if (requestBudget != null) {
+            requestBudget.charge(RequestBudget.EODHD);
+        }
+    }
+
+    /**
+     * timeouts and server errors say nothing about the code, neither do rejected tokens or rate limits
+     * @return true if eodhd rejected the requested code
+     */
+    private static boolean isRejected(RuntimeException e) {
+        if (!(e instanceof HttpClientErrorException)) {
+            return false;
+        }
+        HttpStatus status = ((HttpClientErrorException) e).getStatusCode();
+        return status != HttpStatus.UNAUTHORIZED && status != HttpStatus.FORBIDDEN && status != HttpStatus.TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Fetches the closes of the last trading day of all symbols of an exchange in one request
+     *
+     * @param exchange the eodhd exchange code, e.g. XETRA, US or INDX
+     * @param consumer receives the closes by eodhd code without exchange
+     * @return the number of quotes of the exchange
+     * @throws RuntimeException if the exchange could not be queried
+     */
+    public int fetchLastDay(String exchange, EodhdQuoteParser.BulkQuoteConsumer consumer) {
+        String url = BULK_URL + exchange + "?fmt=json&api_token=" + eodhdProperties.getAuth().getToken();
+        boolean adjusted = eodhdProperties.isAdjustedCloses();
+        charge();
+        return restTemplate.execute(URI.create(url), HttpMethod.GET, null,
+                response -> quoteParser.parseBulk(response.getBody(), adjusted, consumer));
+    }
+
+    /**
+     * Generates a list of eodhdCodes to try, the code that last delivered quotes first
+     * @param symbol the stocks symbol with the exchange
+     * @return a list of eodhd codes
+     */
+    List<EodhdCode> buildEodhdCode(String symbol) {
+        String[] splitSymbol = symbol.split("\\.");
+        String cleanSymbol = splitSymbol[0];
+        String exchange = "";
+        if (splitSymbol.length > 1) {
+            exchange = splitSymbol[1];
+        }
+
+        List<EodhdCode> eodhdCodeList = new ArrayList<>();
+
+        if (cleanSymbol.startsWith("^")) {
+            String cutSymbol = cleanSymbol.replace("^", "");
+            eodhdCodeList.add(new EodhdCode(cutSymbol, cutSymbol + ".INDX", null, null));
+        } else {
+            switch (exchange) {
+                case "F":
+                case "DE":
+                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".XETRA", "EUR", "Close"));
+                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".F", "EUR", "Close"));
+                    break;
+                case "US":
+                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".US", "USD", "Close"));
+                    break;
+                case "AS":
+                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".AS", "EUR", "Last"));
+                    break;
+                default:
+                    eodhdCodeList.add(new EodhdCode(cleanSymbol, cleanSymbol + ".US", "USD", "Close"));
+            }
+        }
+
+        return resolvedCodeService.knownFirst(PROVIDER, symbol, eodhdCodeList, EodhdCode::getCode);
+    }
+}
@@ -5,9 +5,10 @@ import eu.yaga.stockanalyzer.model.FundamentalDataUrl;
 import eu.yaga.stockanalyzer.model.FundamentalDataUrlType;
 import eu.yaga.stockanalyzer.parser.FinanzenNetParser;
 import eu.yaga.stockanalyzer.service.EarningsRevisionService;
-import eu.yaga.stockanalyzer.util.HttpHelper;
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -19,6 +20,9 @@ public class FinanzenNetEarningsRevisionServiceImpl implements EarningsRevisionS
 
     private static final Logger log = LoggerFactory.getLogger(FinanzenNetEarningsRevisionServiceImpl.class);
 
+    @Autowired
+    private PooledHttpClient httpClient;
+
     @Override
     public FundamentalData retrieveEarningsRevision(FundamentalData fundamentalData) {
         URL url = null;
@@ -34,7 +38,7 @@ public class FinanzenNetEarningsRevisionServiceImpl implements EarningsRevisionS
         }
 
         if (url != null) {
-            String html = HttpHelper.queryHTML(url);
+            String html = httpClient.queryHTML(url, FundamentalDataUrlType.EARNINGS_REVISION);
             fundamentalData = FinanzenNetParser.parseEarningsRevisions(html, fundamentalData);
         }
 
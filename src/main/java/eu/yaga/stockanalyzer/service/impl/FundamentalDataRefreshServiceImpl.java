@@ -0,0 +1,273 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.EarningsPerShare;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.StoredEpsHistory;
+import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
+import eu.yaga.stockanalyzer.repository.StoredEpsHistoryRepository;
+import eu.yaga.stockanalyzer.service.*;
+import eu.yaga.stockanalyzer.util.EpsHistory;
+import eu.yaga.stockanalyzer.util.RefreshProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PreDestroy;
+import java.text.ParseException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of the {@link FundamentalDataRefreshService} combining all fundamental data sources<br/>
+ * The sources don't depend on each other, so they are queried at the same time. Every source works on its own copy
+ * of the stored data and its results are merged before the stock is rated. If a source takes longer than its timeout,
+ * or if it can't be started because the refresh pool is full, the stored values of that source are kept.
+ */
+public class FundamentalDataRefreshServiceImpl implements FundamentalDataRefreshService {
+
+    private static final Logger log = LoggerFactory.getLogger(FundamentalDataRefreshServiceImpl.class);
+
+    @Autowired
+    private FundamentalDataService fundamentalDataService;
+
+    @Autowired
+    private EarningsRevisionService earningsRevisionService;
+
+    @Autowired
+    private AnalystEstimationService analystEstimationService;
+
+    @Autowired
+    private HistoricalExchangeRateService historicalExchangeRateService;
+
+    @Autowired
+    private StockRatingBusinessService stockRatingBusinessService;
+
+    @Autowired
+    private FundamentalDataRepository fundamentalDataRepository;
+
+    @Autowired
+    private StoredEpsHistoryRepository storedEpsHistoryRepository;
+
+    @Autowired
+    private RefreshProperties refreshProperties;
+
+    private ExecutorService executor;
+
+    /**
+     * refreshes the fundamental data of the given stock from all sources, rates and saves it
+     *
+     * @param symbol Symbol of the stock
+     * @return the rated fundamental data
+     */
+    @Override
+    public FundamentalData refreshFundamentalData(String symbol) throws ParseException {
+        FundamentalData fundamentalData = rateFundamentalData(symbol);
+
+        FundamentalData saved = fundamentalDataRepository.save(fundamentalData);
+        log.info("SAVED: " + saved);
+
+        return fundamentalData;
+    }
+
+    /**
+     * refreshes the fundamental data of the given stock from all sources and rates it without saving it
+     *
+     * @param symbol Symbol of the stock
+     * @return the rated fundamental data
+     */
+    @Override
+    public FundamentalData rateFundamentalData(String symbol) throws ParseException {
+        FundamentalData storedData = fundamentalDataRepository.findBySymbolOrderByDateDesc(symbol);
+        log.info("Got Fundamental Data: " + storedData);
+
+        long start = System.currentTimeMillis();
+        Future<FundamentalData> onvista = supply(() -> fundamentalDataService.getFundamentalData(symbol, sourceCopy(symbol, storedData)));
+        Future<FundamentalData> earningsRevision = supply(() -> earningsRevisionService.retrieveEarningsRevision(sourceCopy(symbol, storedData)));
+        Future<FundamentalData> analystEstimation = supply(() -> analystEstimationService.retrieveAnalystEstimation(sourceCopy(symbol, storedData)));
+        // warms up the quote store, the rating reads the rates from there
+        Future<FundamentalData> historicalRates = storedData == null ? CompletableFuture.completedFuture(null) : supply(() -> {
+            historicalExchangeRateService.prefetchRatingData(storedData);
+            return storedData;
+        });
+
+        FundamentalData newFundamentalData = join(symbol, "onvista", onvista, start);
+        if (newFundamentalData == null) {
+            if (storedData == null) {
+                throw new IllegalStateException("No fundamental data of " + symbol + " within the timeout");
+            }
+            newFundamentalData = storedData;
+        }
+        log.info("Got new Fundamental Data: " + newFundamentalData);
+
+        FundamentalData revisionData = join(symbol, "earningsRevision", earningsRevision, start);
+        if (revisionData != null) {
+            newFundamentalData.setEarningsRevision(revisionData.getEarningsRevision());
+        }
+        log.info("Got Earnings Revision: " + newFundamentalData.getEarningsRevision());
+
+        FundamentalData estimationData = join(symbol, "analystEstimation", analystEstimation, start);
+        if (estimationData != null) {
+            newFundamentalData.setAnalystEstimation(estimationData.getAnalystEstimation());
+            newFundamentalData.setAnalystEstimationCount(estimationData.getAnalystEstimationCount());
+        }
+        log.info("Got Analyst Estimation: " + newFundamentalData.getAnalystEstimation());
+
+        join(symbol, "historicalRates", historicalRates, start);
+
+        FundamentalData fundamentalData = storedData;
+        if (fundamentalData != null) {
+            fundamentalData.setSymbol(newFundamentalData.getSymbol());
+            fundamentalData.setDate(newFundamentalData.getDate());
+            fundamentalData.setBusinessYears(newFundamentalData.getBusinessYears());
+            fundamentalData.setRoe(newFundamentalData.getRoe());
+            fundamentalData.setEbit(newFundamentalData.getEbit());
+            fundamentalData.setEquityRatio(newFundamentalData.getEquityRatio());
+            fundamentalData.setAsk(newFundamentalData.getAsk());
+            fundamentalData.setEpsCurrentYear(newFundamentalData.getEpsCurrentYear());
+            fundamentalData.setEpsNextYear(newFundamentalData.getEpsNextYear());
+            fundamentalData.setEpsHistory(newFundamentalData.getEpsHistory());
+            fundamentalData.setPer5years(newFundamentalData.getPer5years());
+            fundamentalData.setPerCurrent(newFundamentalData.getPerCurrent());
+            fundamentalData.setMarketCapitalization(newFundamentalData.getMarketCapitalization());
+            fundamentalData.setEarningsRevision(newFundamentalData.getEarningsRevision());
+            fundamentalData.setAnalystEstimation(newFundamentalData.getAnalystEstimation());
+            fundamentalData.setAnalystEstimationCount(newFundamentalData.getAnalystEstimationCount());
+        } else {
+            fundamentalData = newFundamentalData;
+        }
+
+        compactEpsHistory(symbol, fundamentalData);
+
+        fundamentalData = stockRatingBusinessService.rate(fundamentalData);
+        log.info("Fundamental Data rated: " + fundamentalData);
+
+        return fundamentalData;
+    }
+
+    /**
+     * reduces the eps history to its changes and keeps the latest changes in the fundamental data,
+     * the older ones are moved to the {@link StoredEpsHistory} of the stock
+     * @param symbol the symbol of the stock
+     * @param fundamentalData the fundamental data
+     */
+    private void compactEpsHistory(String symbol, FundamentalData fundamentalData) {
+        TreeMap<String, EarningsPerShare> epsHistory = EpsHistory.changePoints(fundamentalData.getEpsHistory());
+        SortedMap<String, EarningsPerShare> archived = EpsHistory.removeOldest(epsHistory, refreshProperties.getEpsHistoryEntries());
+
+        if (!archived.isEmpty()) {
+            StoredEpsHistory storedEpsHistory = storedEpsHistoryRepository.findOne(symbol);
+            if (storedEpsHistory == null) {
+                storedEpsHistory = new StoredEpsHistory(symbol);
+            }
+            TreeMap<String, EarningsPerShare> changes = new TreeMap<>(storedEpsHistory.getChanges());
+            changes.putAll(archived);
+            storedEpsHistory.setChanges(EpsHistory.changePoints(changes));
+            storedEpsHistoryRepository.save(storedEpsHistory);
+            log.info("Archived " + archived.size() + " eps history entries of " + symbol);
+        }
+
+        fundamentalData.setEpsHistory(epsHistory);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * copies the stored data a source needs, so the sources never modify the same object
+     * @param symbol the symbol of the stock
+     * @param fundamentalData the stored data or null
+     * @return the copy
+     */
+    private static FundamentalData sourceCopy(String symbol, FundamentalData fundamentalData) {
+        FundamentalData copy = new FundamentalData();
+        copy.setSymbol(symbol);
+        if (fundamentalData != null) {
+            copy.setStockType(fundamentalData.getStockType());
+            copy.setUrls(fundamentalData.getUrls());
+            copy.setEpsHistory(new TreeMap<>(fundamentalData.getEpsHistory()));
+            copy.setEarningsRevision(fundamentalData.getEarningsRevision());
+            copy.setAnalystEstimation(fundamentalData.getAnalystEstimation());
+            copy.setAnalystEstimationCount(fundamentalData.getAnalystEstimationCount());
+        }
+        return copy;
+    }
+
+    /**
+     * starts a source on the refresh pool, a source that doesn't fit into the full pool fails right away
+     * instead of blocking the refreshing thread
+     */
+    private <T> Future<T> supply(Supplier<T> source) {
+        try {
+            return getExecutor().submit(source::get);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * waits for a source until its timeout (counted from the start of the refresh) has passed
+     * @param symbol the symbol of the stock
+     * @param source the name of the source
+     * @param result the running source
+     * @param start the start of the refresh (epoch millis)
+     * @return the result of the source or null if it has timed out or has been rejected by the full pool
+     */
+    private <T> T join(String symbol, String source, Future<T> result, long start) {
+        Integer timeoutSeconds = refreshProperties.getTimeoutSeconds().get(source);
+        try {
+            if (timeoutSeconds == null) {
+                return result.get();
+            }
+            long remaining = start + TimeUnit.SECONDS.toMillis(timeoutSeconds) - System.currentTimeMillis();
+            return result.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // frees the pool thread of a hung source
+            result.cancel(true);
+            log.warn("No response of " + source + " for " + symbol + " within " + timeoutSeconds + " seconds, keeping the last known values");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while refreshing " + symbol, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RejectedExecutionException) {
+                log.warn("The refresh pool is full, skipping " + source + " for " + symbol + " and keeping the last known values");
+                return null;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = Math.max(1, refreshProperties.getThreads());
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, refreshProperties.getQueueCapacity())),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "refresh-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+}
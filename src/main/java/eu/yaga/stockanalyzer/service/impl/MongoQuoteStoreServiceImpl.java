@@ -0,0 +1,256 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.model.historicaldata.StoredQuoteSeries;
+import eu.yaga.stockanalyzer.repository.StoredQuoteSeriesRepository;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of the {@link QuoteStoreService} keeping one document of daily closes per symbol in MongoDB
+ */
+public class MongoQuoteStoreServiceImpl implements QuoteStoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoQuoteStoreServiceImpl.class);
+
+    // symbols share a fixed number of locks, so the locks don't grow with the number of symbols
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired
+    private StoredQuoteSeriesRepository storedQuoteSeriesRepository;
+
+    private final Object[] symbolLocks = new Object[LOCK_STRIPES];
+
+    // the running fetch of each symbol, requests for the same symbol wait for it instead of fetching again
+    private final ConcurrentMap<String, Fetch> fetches = new ConcurrentHashMap<>();
+
+    /**
+     * The date range a request is fetching, completed once its quotes are merged
+     */
+    private static class Fetch {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Fetch(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean covers(LocalDate from, LocalDate to) {
+            return !from.isBefore(this.from) && !to.isAfter(this.to);
+        }
+    }
+
+    public MongoQuoteStoreServiceImpl() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            symbolLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * This method returns the stored closes of the given stock.
+     * Date ranges that have not been stored yet are fetched with the given fetcher first.
+     * Closes up to yesterday are final, so the current day is fetched at most once per day.
+     * The lock of the symbol is only held while reading and merging, one request per symbol fetches at a time
+     * and the others wait for its quotes.
+     * The returned series shares the arrays of the stored document, merges always create new arrays.
+     *
+     * @param symbol Symbol of the stock
+     * @param from first day of the historical data
+     * @param to last day of the historical data
+     * @param fetcher the remote provider used for missing date ranges
+     * @return the closes sorted by date
+     */
+    @Override
+    public QuoteSeries getQuoteSeries(String symbol, LocalDate from, LocalDate to, QuoteFetcher fetcher) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+
+        while (true) {
+            List<LocalDate[]> missing;
+            synchronized (lockFor(symbol)) {
+                StoredQuoteSeries stored = findStored(symbol);
+                missing = missingRanges(stored, from, end, today);
+                if (missing.isEmpty()) {
+                    return slice(stored, from, to);
+                }
+            }
+
+            Fetch fetch = new Fetch(missing.get(0)[0], missing.get(missing.size() - 1)[1]);
+            Fetch running = fetches.putIfAbsent(symbol, fetch);
+            if (running != null) {
+                running.done.join();
+                if (running.covers(from, end)) {
+                    // the quotes the running fetch got are all there is for now
+                    synchronized (lockFor(symbol)) {
+                        return slice(findStored(symbol), from, to);
+                    }
+                }
+                continue;
+            }
+
+            try {
+                List<QuoteSeries> fetched = new ArrayList<>();
+                for (LocalDate[] range : missing) {
+                    fetched.add(fetchRange(symbol, range[0], range[1], fetcher));
+                }
+
+                synchronized (lockFor(symbol)) {
+                    StoredQuoteSeries stored = findStored(symbol);
+                    boolean changed = false;
+                    for (int i = 0; i < missing.size(); i++) {
+                        if (fetched.get(i) != null) {
+                            changed = merge(stored, missing.get(i)[0], missing.get(i)[1], today, fetched.get(i)) || changed;
+                        }
+                    }
+                    if (changed) {
+                        storedQuoteSeriesRepository.save(stored);
+                    }
+                    return slice(stored, from, to);
+                }
+            } finally {
+                fetches.remove(symbol, fetch);
+                fetch.done.complete(null);
+            }
+        }
+    }
+
+    private StoredQuoteSeries findStored(String symbol) {
+        StoredQuoteSeries stored = storedQuoteSeriesRepository.findOne(symbol);
+        return stored != null ? stored : new StoredQuoteSeries(symbol);
+    }
+
+    private static QuoteSeries slice(StoredQuoteSeries stored, LocalDate from, LocalDate to) {
+        return new QuoteSeries(stored.getSymbol(), stored.getEpochDays(), stored.getCloses()).slice(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * @return the date ranges of the request that have to be fetched, in ascending order
+     */
+    private static List<LocalDate[]> missingRanges(StoredQuoteSeries stored, LocalDate from, LocalDate end, LocalDate today) {
+        List<LocalDate[]> missing = new ArrayList<>();
+        if (!stored.hasCoverage()) {
+            if (!from.isAfter(end)) {
+                missing.add(new LocalDate[]{from, end});
+            }
+            return missing;
+        }
+
+        LocalDate coveredFrom = LocalDate.ofEpochDay(stored.getCoveredFrom());
+        LocalDate coveredTo = LocalDate.ofEpochDay(stored.getCoveredTo());
+        if (from.isBefore(coveredFrom)) {
+            missing.add(new LocalDate[]{from, coveredFrom.minusDays(1)});
+        }
+        boolean fetchedToday = stored.getLastFetched() != null && stored.getLastFetched() >= today.toEpochDay();
+        if (end.isAfter(coveredTo) && !fetchedToday) {
+            missing.add(new LocalDate[]{coveredTo.plusDays(1), end});
+        }
+        return missing;
+    }
+
+    /**
+     * fetches a date range from the provider
+     * @return the quotes or null if the provider could not be queried
+     */
+    private QuoteSeries fetchRange(String symbol, LocalDate from, LocalDate to, QuoteFetcher fetcher) {
+        log.info("Fetching missing quotes for " + symbol + " from " + from + " to " + to);
+        try {
+            return fetcher.fetchSeries(symbol, from, to);
+        } catch (RuntimeException e) {
+            log.warn("Unable to fetch quotes for " + symbol + ", using stored quotes only: " + e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    /**
+     * merges the quotes of a fetched date range into the stored series
+     * @return true if the stored series has been changed
+     */
+    private boolean merge(StoredQuoteSeries stored, LocalDate from, LocalDate to, LocalDate today, QuoteSeries quotes) {
+        if (quotes.isEmpty() && !stored.hasCoverage() && containsWeekday(from, to)) {
+            // e.g. a symbol no provider knows yet, the range stays uncovered and is fetched again next time.
+            // Next to stored quotes the provider knows the symbol, the range is empty (e.g. before the IPO) and stays covered.
+            log.info("No quotes for " + stored.getSymbol() + " from " + from + " to " + to + ", the range is not stored");
+            return false;
+        }
+
+        stored.merge((int) from.toEpochDay(), (int) to.toEpochDay(), quotes.toEpochDayArray(), quotes.toCloseArray());
+
+        // the close of the current day is not final yet
+        int finalTo = (int) Math.min(to.toEpochDay(), today.minusDays(1).toEpochDay());
+        if (!stored.hasCoverage()) {
+            stored.setCoveredFrom((int) from.toEpochDay());
+            stored.setCoveredTo(finalTo);
+        } else {
+            stored.setCoveredFrom(Math.min(stored.getCoveredFrom(), (int) from.toEpochDay()));
+            stored.setCoveredTo(Math.max(stored.getCoveredTo(), finalTo));
+        }
+        if (!to.isBefore(today)) {
+            stored.setLastFetched((int) today.toEpochDay());
+        }
+
+        return true;
+    }
+
+    private static boolean containsWeekday(LocalDate from, LocalDate to) {
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object lockFor(String symbol) {
+        return symbolLocks[(symbol.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * Appends the close of a single day fetched elsewhere.
+     * The close is only appended if the stored closes reach up to the day before, apart from weekends.
+     *
+     * @param symbol Symbol of the stock
+     * @param day the trading day of the close
+     * @param close the close
+     * @return true if the close has been appended, false if the symbol has no stored closes up to the day before
+     */
+    @Override
+    public boolean appendClose(String symbol, LocalDate day, double close) {
+        LocalDate today = LocalDate.now();
+
+        synchronized (lockFor(symbol)) {
+            StoredQuoteSeries stored = storedQuoteSeriesRepository.findOne(symbol);
+            if (stored == null || !stored.hasCoverage()) {
+                return false;
+            }
+
+            LocalDate coveredTo = LocalDate.ofEpochDay(stored.getCoveredTo());
+            for (LocalDate gap = coveredTo.plusDays(1); gap.isBefore(day); gap = gap.plusDays(1)) {
+                if (gap.getDayOfWeek() != DayOfWeek.SATURDAY && gap.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                    return false;
+                }
+            }
+
+            int epochDay = (int) day.toEpochDay();
+            stored.merge(epochDay, epochDay, new int[]{epochDay}, new double[]{close});
+            // the close of the current day is not final yet
+            if (day.isBefore(today) && epochDay > stored.getCoveredTo()) {
+                stored.setCoveredTo(epochDay);
+            }
+            stored.setLastFetched((int) today.toEpochDay());
+            storedQuoteSeriesRepository.save(stored);
+            return true;
+        }
+    }
+}
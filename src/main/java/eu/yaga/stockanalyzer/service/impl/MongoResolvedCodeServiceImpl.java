@@ -0,0 +1,55 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.ResolvedProviderCode;
+import eu.yaga.stockanalyzer.repository.ResolvedProviderCodeRepository;
+import eu.yaga.stockanalyzer.service.ResolvedCodeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of the {@link ResolvedCodeService} storing the codes in MongoDB<br/>
+ * Every code is read once and kept in memory, it is only written when it changes.
+ */
+public class MongoResolvedCodeServiceImpl implements ResolvedCodeService {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoResolvedCodeServiceImpl.class);
+
+    // marks symbols without a stored code, so they aren't read again
+    private static final String UNKNOWN = "";
+
+    @Autowired
+    private ResolvedProviderCodeRepository resolvedProviderCodeRepository;
+
+    private final ConcurrentMap<String, String> codes = new ConcurrentHashMap<>();
+
+    @Override
+    public String getCode(String provider, String symbol) {
+        String code = codes.computeIfAbsent(ResolvedProviderCode.id(provider, symbol), id -> {
+            ResolvedProviderCode stored = resolvedProviderCodeRepository.findOne(id);
+            return stored != null && stored.getCode() != null ? stored.getCode() : UNKNOWN;
+        });
+        return UNKNOWN.equals(code) ? null : code;
+    }
+
+    @Override
+    public void resolved(String provider, String symbol, String code) {
+        String previous = codes.put(ResolvedProviderCode.id(provider, symbol), code);
+        if (!code.equals(previous)) {
+            log.info("Resolved " + symbol + " at " + provider + " to " + code);
+            resolvedProviderCodeRepository.save(new ResolvedProviderCode(provider, symbol, code));
+        }
+    }
+
+    @Override
+    public void invalidate(String provider, String symbol, String code) {
+        String id = ResolvedProviderCode.id(provider, symbol);
+        if (codes.replace(id, code, UNKNOWN)) {
+            log.info("Code " + code + " of " + symbol + " at " + provider + " failed, trying all candidates again");
+            resolvedProviderCodeRepository.delete(id);
+        }
+    }
+}
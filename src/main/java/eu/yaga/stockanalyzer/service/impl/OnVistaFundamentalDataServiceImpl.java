@@ -5,13 +5,15 @@ import eu.yaga.stockanalyzer.model.FundamentalDataUrl;
 import eu.yaga.stockanalyzer.model.FundamentalDataUrlType;
 import eu.yaga.stockanalyzer.parser.OnVistaParser;
 import eu.yaga.stockanalyzer.service.FundamentalDataService;
-import eu.yaga.stockanalyzer.util.HttpHelper;
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
@@ -27,6 +29,9 @@ public class OnVistaFundamentalDataServiceImpl implements FundamentalDataService
     private
     OnVistaParser onVistaParser;
 
+    @Autowired
+    private PooledHttpClient httpClient;
+
     /**
      * This method returns fundamental data of the given stock
      *
@@ -51,8 +56,12 @@ public class OnVistaFundamentalDataServiceImpl implements FundamentalDataService
             url = getUrlForSymbol(symbol);
         }
 
-        String html = HttpHelper.queryHTML(url);
-        return onVistaParser.getFundamentalData(html, fundamentalData);
+        // the page is parsed while it is received or read from the cache
+        try {
+            return httpClient.query(url, FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA, reader -> onVistaParser.getFundamentalData(reader, fundamentalData));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read onvista page " + url, e);
+        }
     }
 
     private URL getUrlForSymbol(String symbol) {
@@ -64,7 +73,7 @@ public class OnVistaFundamentalDataServiceImpl implements FundamentalDataService
             URL searchUrl =
                     new URL("http://www.onvista.de/onvista/boxes/assetSearch.json?doSubmit=Suchen&portfolioName=&searchValue=" + searchSymbol);
 
-            String html = HttpHelper.queryHTML(searchUrl);
+            String html = httpClient.queryHTML(searchUrl);
             JSONObject jsonObject = new JSONObject(html);
             JSONArray jsonArray = jsonObject.getJSONObject("onvista").getJSONObject("results").getJSONArray("asset");
             for (int i = 0; i < jsonArray.length(); i++) {
@@ -1,18 +1,15 @@
 package eu.yaga.stockanalyzer.service.impl;
 
-import com.jimmoores.quandl.DataSetRequest;
-import com.jimmoores.quandl.QuandlSession;
-import com.jimmoores.quandl.Row;
-import com.jimmoores.quandl.TabularResult;
-import com.jimmoores.quandl.util.QuandlRuntimeException;
 import eu.yaga.stockanalyzer.model.FundamentalData;
 import eu.yaga.stockanalyzer.model.RateProgressBean;
 import eu.yaga.stockanalyzer.model.StockIndex;
 import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
 import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
-import eu.yaga.stockanalyzer.util.HttpHelper;
+import eu.yaga.stockanalyzer.service.ResolvedCodeService;
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
+import eu.yaga.stockanalyzer.util.QuandlClient;
 import eu.yaga.stockanalyzer.util.QuandlCode;
-import eu.yaga.stockanalyzer.util.QuandlProperties;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +20,7 @@ import org.threeten.bp.ZoneId;
 import org.threeten.bp.format.DateTimeFormatter;
 import org.threeten.bp.temporal.ChronoUnit;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.NumberFormat;
@@ -38,10 +36,18 @@ import java.util.Locale;
 public class QuandlHistoricalExchangeRateServiceImpl implements HistoricalExchangeRateService {
 
     @Autowired
-    private QuandlProperties quandlProperties;
+    private QuandlClient quandlClient;
+
+    @Autowired
+    private PooledHttpClient httpClient;
+
+    @Autowired
+    private ResolvedCodeService resolvedCodeService;
 
     private static final Logger log = LoggerFactory.getLogger(QuandlHistoricalExchangeRateServiceImpl.class);
 
+    private static final String PROVIDER = "quandl";
+
     // Quandl Frankfurt Stock Exchange / XETRA
     private static final String FSE_PREFIX = "FSE/";
     private static final String FSE_POSTFIX = "_X";
@@ -65,6 +71,7 @@ public class QuandlHistoricalExchangeRateServiceImpl implements HistoricalExchan
      * @param dateStringFrom   Date of the start of the historical data (yyyy-MM-dd)
      * @param dateStringTo     Date of the end of the historical data (yyyy-MM-dd)
      * @return Historical Exchange Rates
+     * @throws RuntimeException if the request of every quandl code failed
      */
     @Override
     public List<HistoricalDataQuote> getHistoricalExchangeRates(String symbol, String dateStringFrom, String dateStringTo) throws ParseException {
@@ -76,7 +83,8 @@ public class QuandlHistoricalExchangeRateServiceImpl implements HistoricalExchan
             exchange = splitSymbol[1];
         }
 
-        List<QuandlCode> quandlCodeList = buildQuandlCode(cleanSymbol, exchange);
+        // the code that delivered quotes last time first
+        List<QuandlCode> quandlCodeList = resolvedCodeService.knownFirst(PROVIDER, symbol, buildQuandlCode(cleanSymbol, exchange), QuandlCode::getCode);
 
         log.info("Clean Symbol: " + cleanSymbol);
 
@@ -98,36 +106,36 @@ public class QuandlHistoricalExchangeRateServiceImpl implements HistoricalExchan
         }
 
         List<HistoricalDataQuote> quoteList = new ArrayList<>();
-        QuandlSession session = QuandlSession.create(quandlProperties.getAuth().getToken());
+        IOException lastError = null;
         for (QuandlCode quandlCode : quandlCodeList) {
             log.info("Querying: " + quandlCode.getCode() + " closeColumn: " + quandlCode.getCloseColumnName() + " from: " + dateFrom + " to: " + dateTo);
             try {
-                DataSetRequest request = DataSetRequest.Builder
-                        .of(quandlCode.getCode())
-                        .withStartDate(dateFrom)
-                        .withEndDate(dateTo)
-                        .build();
-                log.info("Requesting " + request);
-                TabularResult tabularResult = session.getDataSet(request);
-
-                log.info(tabularResult.toPrettyPrintedString());
-
-                for (Row row : tabularResult) {
-                    if (quandlCode.getCode().equals(US_PREFIX)) {
-                        if (!row.getString("TICKER").equals(cleanSymbol)) {
-                            continue;
-                        }
-                    }
-                    String dateString = row.getString("Date");
-                    double close = row.getDouble(quandlCode.getCloseColumnName());
-                    quoteList.add(new HistoricalDataQuote(symbol, dateString, close));
+                QuoteSeries closes = quandlClient.getCloses(quandlCode.getCode(), quandlCode.getCloseColumnName(), dateFrom.format(dtf), dateTo.format(dtf));
+
+                // newest quote first
+                for (int pos = closes.size() - 1; pos >= 0; pos--) {
+                    quoteList.add(new HistoricalDataQuote(symbol, closes.getDate(pos).toString(), closes.getClose(pos)));
                 }
+                if (!quoteList.isEmpty()) {
+                    resolvedCodeService.resolved(PROVIDER, symbol, quandlCode.getCode());
+                }
+                lastError = null;
                 break;
-            } catch (QuandlRuntimeException e) {
-                log.warn("Error requesting quandl code: " + quandlCode.getCode(), e);
+            } catch (QuandlClient.InvalidDataSetException e) {
+                log.warn("Invalid quandl code " + quandlCode.getCode() + ": " + e.getLocalizedMessage());
+                resolvedCodeService.invalidate(PROVIDER, symbol, quandlCode.getCode());
+                lastError = e;
+            } catch (IOException e) {
+                // network errors and server errors tell nothing about the code, so it is kept
+                log.warn("Error requesting quandl code " + quandlCode.getCode() + ": " + e.getLocalizedMessage());
+                lastError = e;
             }
         }
 
+        // only a code answering without quotes means there are none, failed codes tell nothing
+        if (lastError != null) {
+            throw new RuntimeException("Unable to get historical exchange rates for " + symbol + " from quandl", lastError);
+        }
         return quoteList;
     }
 
@@ -414,7 +422,7 @@ public class QuandlHistoricalExchangeRateServiceImpl implements HistoricalExchan
             String dateGermanString = dtfGermany.format(date);
 
             URL idxUrl = new URL(index.getOnvistaApiUrl() + dateGermanString);
-            String resultJson = HttpHelper.queryHTML(idxUrl);
+            String resultJson = httpClient.queryHTML(idxUrl);
             JSONObject jsonObject = new JSONObject(resultJson);
 
             NumberFormat format = NumberFormat.getInstance(Locale.GERMANY);
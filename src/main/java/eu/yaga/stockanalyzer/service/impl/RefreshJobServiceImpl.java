@@ -0,0 +1,226 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.exception.TooManyRefreshJobsException;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.RefreshJob;
+import eu.yaga.stockanalyzer.model.StockIndex;
+import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
+import eu.yaga.stockanalyzer.service.FundamentalDataRefreshService;
+import eu.yaga.stockanalyzer.service.RefreshJobService;
+import eu.yaga.stockanalyzer.util.RefreshProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Implementation of the {@link RefreshJobService}<br/>
+ * Jobs run one after another, the stocks of a job are rated by a few workers at the same time. All ratings of a job
+ * share the connection pool of the http client and the cached index histories, and they are saved in one bulk write
+ * when the job is done. Only a few jobs may wait for the running one, so the queue and the kept jobs stay bounded.
+ */
+public class RefreshJobServiceImpl implements RefreshJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshJobServiceImpl.class);
+
+    @Autowired
+    private FundamentalDataRefreshService fundamentalDataRefreshService;
+
+    @Autowired
+    private FundamentalDataRepository fundamentalDataRepository;
+
+    @Autowired
+    private RefreshProperties refreshProperties;
+
+    private ExecutorService jobExecutor;
+    private ExecutorService workers;
+
+    private Map<String, RefreshJob> jobs;
+
+    @Override
+    public RefreshJob startJob(Collection<String> symbols) {
+        Set<String> distinctSymbols = new LinkedHashSet<>();
+        if (symbols != null) {
+            for (String symbol : symbols) {
+                if (symbol != null && !symbol.trim().isEmpty()) {
+                    distinctSymbols.add(symbol.trim());
+                }
+            }
+        }
+        if (distinctSymbols.isEmpty()) {
+            throw new IllegalArgumentException("No symbols given");
+        }
+        if (distinctSymbols.size() > refreshProperties.getMaxJobSymbols()) {
+            throw new IllegalArgumentException("At most " + refreshProperties.getMaxJobSymbols() + " symbols per job");
+        }
+
+        RefreshJob job = new RefreshJob(distinctSymbols);
+        synchronized (this) {
+            try {
+                getJobExecutor().submit(() -> runJob(job));
+            } catch (RejectedExecutionException e) {
+                throw new TooManyRefreshJobsException(refreshProperties.getMaxQueuedJobs() + " refresh jobs are already waiting, try again later");
+            }
+            getJobMap().put(job.getId(), job);
+        }
+        log.info("Starting refresh job " + job.getId() + " for " + distinctSymbols.size() + " stocks");
+        return job;
+    }
+
+    @Override
+    public RefreshJob startJob(StockIndex stockIndex) {
+        List<String> symbols = new ArrayList<>();
+        for (Map<String, Object> stock : fundamentalDataRepository.findLatestPerSymbol(null, Collections.singletonList("stockIndex"))) {
+            if (stockIndex.name().equals(stock.get("stockIndex"))) {
+                symbols.add((String) stock.get("symbol"));
+            }
+        }
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("No stocks of " + stockIndex.getDescription());
+        }
+        return startJob(symbols);
+    }
+
+    @Override
+    public synchronized RefreshJob getJob(String id) {
+        return getJobMap().get(id);
+    }
+
+    @Override
+    public synchronized List<RefreshJob> getJobs() {
+        return new ArrayList<>(getJobMap().values());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (jobExecutor != null) {
+            jobExecutor.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * rates all stocks of the job and saves the rated ones in one bulk write
+     * @param job the job
+     */
+    private void runJob(RefreshJob job) {
+        long start = System.currentTimeMillis();
+        job.setState(RefreshJob.State.RUNNING);
+
+        Map<String, Future<FundamentalData>> ratings = new LinkedHashMap<>();
+        for (Map.Entry<String, RefreshJob.SymbolStatus> stock : job.getSymbols().entrySet()) {
+            ratings.put(stock.getKey(), getWorkers().submit(() -> rateStock(stock.getKey(), stock.getValue())));
+        }
+
+        Map<String, FundamentalData> rated = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<FundamentalData>> rating : ratings.entrySet()) {
+            try {
+                FundamentalData fundamentalData = rating.getValue().get();
+                if (fundamentalData != null) {
+                    rated.put(rating.getKey(), fundamentalData);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Future<FundamentalData> pending : ratings.values()) {
+                    pending.cancel(true);
+                }
+                // nothing is saved, so no stock of the job is left rated or running
+                for (RefreshJob.SymbolStatus status : job.getSymbols().values()) {
+                    if (status.getState() != RefreshJob.SymbolState.FAILED) {
+                        status.setError("Refresh job interrupted");
+                        status.setState(RefreshJob.SymbolState.FAILED);
+                    }
+                }
+                finish(job, start);
+                return;
+            } catch (ExecutionException e) {
+                log.error(e.getLocalizedMessage());
+            }
+        }
+
+        job.setState(RefreshJob.State.SAVING);
+        try {
+            int saved = fundamentalDataRepository.bulkSave(rated.values());
+            log.info("Saved " + saved + " stocks of refresh job " + job.getId());
+            setState(job, rated.keySet(), RefreshJob.SymbolState.SAVED, null);
+        } catch (RuntimeException e) {
+            log.error("Saving refresh job " + job.getId() + " failed: " + e.getLocalizedMessage());
+            setState(job, rated.keySet(), RefreshJob.SymbolState.FAILED, "Saving failed: " + e.getLocalizedMessage());
+        }
+
+        finish(job, start);
+    }
+
+    private static void finish(RefreshJob job, long start) {
+        job.setFinished(new Date());
+        job.setState(RefreshJob.State.FINISHED);
+        log.info("Finished refresh job " + job.getId() + " in " + (System.currentTimeMillis() - start) + " ms: " + job.getSummary());
+    }
+
+    /**
+     * refreshes and rates one stock of a job
+     * @param symbol the symbol of the stock
+     * @param status the status of the stock
+     * @return the rated fundamental data or null if the refresh failed
+     */
+    private FundamentalData rateStock(String symbol, RefreshJob.SymbolStatus status) {
+        status.setState(RefreshJob.SymbolState.RUNNING);
+        long start = System.currentTimeMillis();
+        try {
+            FundamentalData fundamentalData = fundamentalDataRefreshService.rateFundamentalData(symbol);
+            status.setOverallRating(fundamentalData.getOverallRating());
+            status.setState(RefreshJob.SymbolState.RATED);
+            return fundamentalData;
+        } catch (Exception e) {
+            log.error("Refreshing " + symbol + " failed: " + e.getLocalizedMessage());
+            status.setError(e.getLocalizedMessage());
+            status.setState(RefreshJob.SymbolState.FAILED);
+            return null;
+        } finally {
+            status.setMillis(System.currentTimeMillis() - start);
+        }
+    }
+
+    private static void setState(RefreshJob job, Set<String> symbols, RefreshJob.SymbolState state, String error) {
+        for (String symbol : symbols) {
+            RefreshJob.SymbolStatus status = job.getSymbols().get(symbol);
+            if (status != null) {
+                status.setError(error);
+                status.setState(state);
+            }
+        }
+    }
+
+    private Map<String, RefreshJob> getJobMap() {
+        if (jobs == null) {
+            int keptJobs = Math.max(1, refreshProperties.getKeptJobs());
+            jobs = new LinkedHashMap<String, RefreshJob>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RefreshJob> eldest) {
+                    return size() > keptJobs && eldest.getValue().getState() == RefreshJob.State.FINISHED;
+                }
+            };
+        }
+        return jobs;
+    }
+
+    private synchronized ExecutorService getJobExecutor() {
+        if (jobExecutor == null) {
+            jobExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, refreshProperties.getMaxQueuedJobs())), new ThreadPoolExecutor.AbortPolicy());
+        }
+        return jobExecutor;
+    }
+
+    private synchronized ExecutorService getWorkers() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(Math.max(1, refreshProperties.getJobWorkers()));
+        }
+        return workers;
+    }
+}
@@ -6,7 +6,7 @@ import eu.yaga.stockanalyzer.model.StockIndex;
 import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
 import eu.yaga.stockanalyzer.model.historicaldata.YqlHistoricalDataQuery;
 import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
-import eu.yaga.stockanalyzer.util.HttpHelper;
+import eu.yaga.stockanalyzer.util.PooledHttpClient;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +44,9 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private PooledHttpClient httpClient;
+
     /**
      * This method returns historical exchange Rates of the given stock
      *
@@ -51,6 +54,7 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
      * @param dateStringFrom   Date of the start of the historical data (yyyy-MM-dd)
      * @param dateStringTo     Date of the end of the historical data (yyyy-MM-dd)
      * @return Historical Exchange Rates
+     * @throws RuntimeException if the request failed
      */
     @Override
     public List<HistoricalDataQuote> getHistoricalExchangeRates(String symbol, String dateStringFrom, String dateStringTo) throws ParseException {
@@ -80,16 +84,18 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
 
         String queryString = String.format(YQL_QUERY_HISTORICAL_RATES, symbol, sdf.format(dateFrom), sdf.format(dateTo));
 
-        YqlHistoricalDataQuery queryResult = new YqlHistoricalDataQuery();
+        YqlHistoricalDataQuery queryResult;
         try {
             log.info("Querying: " + YQL_BASE_URL + queryString + YQL_QUERY_POSTFIX);
             queryResult = restTemplate.getForObject(YQL_BASE_URL + queryString + YQL_QUERY_POSTFIX, YqlHistoricalDataQuery.class);
         } catch (Exception e) {
             log.error("YqlHistoricalDataQuery failed: " + e.getLocalizedMessage());
+            throw new RuntimeException("Unable to get historical exchange rates for " + symbol + " from yahoo", e);
         }
-        log.info(queryResult.toString());
+        log.info(String.valueOf(queryResult));
 
-        if (queryResult.getQuery() != null
+        if (queryResult != null
+                && queryResult.getQuery() != null
                 && queryResult.getQuery().getResults() != null
                 && queryResult.getQuery().getResults().getQuote() != null) {
             return queryResult.getQuery().getResults().getQuote();
@@ -131,7 +137,7 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
                 ratesSymbol = getHistoricalExchangeRates(symbol, priorDay, dateString);
             }
 
-            List<HistoricalDataQuote> ratesIndex = getHistoricalExchangeRates(indexSymbol, priorDay, dateString);
+            List<HistoricalDataQuote> ratesIndex = getIndexRates(indexSymbol, priorDay, dateString);
             if (ratesIndex.size() == 0) {
                 ratesIndex = getRatesIndexFromBackupProvider(fundamentalData.getStockIndex(), ratesSymbol);
             }
@@ -314,8 +320,8 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
                 LocalDate compareDate = LocalDate.parse(compareDateString, dtf);
                 LocalDate compareDateMinus = compareDate.minusDays(1);
 
-                List<HistoricalDataQuote> ratesToday = getHistoricalExchangeRates(index.getSymbol(), baseDateMinus.format(dtf), baseDate.format(dtf));
-                List<HistoricalDataQuote> ratesCompareDate = getHistoricalExchangeRates(index.getSymbol(), compareDateMinus.format(dtf), compareDate.format(dtf));
+                List<HistoricalDataQuote> ratesToday = getIndexRates(index.getSymbol(), baseDateMinus.format(dtf), baseDate.format(dtf));
+                List<HistoricalDataQuote> ratesCompareDate = getIndexRates(index.getSymbol(), compareDateMinus.format(dtf), compareDate.format(dtf));
 
                 if (ratesToday.size() < 1 || ratesCompareDate.size() < 1) {
                     ratesToday.add(getRatesIndexFromBackupProvider(index, baseDate));
@@ -338,6 +344,21 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
         }
     }
 
+    /**
+     * returns the historical exchange rates of an index, an empty list if the request failed so the backup provider is used
+     * @param indexSymbol the symbol of the index
+     * @param dateStringFrom Date of the start of the historical data (yyyy-MM-dd)
+     * @param dateStringTo Date of the end of the historical data (yyyy-MM-dd)
+     * @return Historical Exchange Rates
+     */
+    private List<HistoricalDataQuote> getIndexRates(String indexSymbol, String dateStringFrom, String dateStringTo) throws ParseException {
+        try {
+            return getHistoricalExchangeRates(indexSymbol, dateStringFrom, dateStringTo);
+        } catch (RuntimeException e) {
+            return new ArrayList<>();
+        }
+    }
+
     private List<HistoricalDataQuote> getRatesIndexFromBackupProvider(StockIndex stockIndex, List<HistoricalDataQuote> compareStock) {
         List<HistoricalDataQuote> quotes = new ArrayList<>();
 
@@ -356,7 +377,7 @@ public class YahooHistoricalExchangeRateServiceImpl implements HistoricalExchang
             String dateGermanString = dtfGermany.format(date);
 
             URL idxUrl = new URL(index.getOnvistaApiUrl() + dateGermanString);
-            String resultJson = HttpHelper.queryHTML(idxUrl);
+            String resultJson = httpClient.queryHTML(idxUrl);
             JSONObject jsonObject = new JSONObject(resultJson);
 
             NumberFormat format = NumberFormat.getInstance(Locale.GERMANY);
@@ -4,6 +4,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Automatically loaded properties for eodhistoricaldata.com
  */
@@ -27,6 +31,19 @@ public class EodhdProperties {
 
     private Auth auth;
 
+    // months of daily closes fetched at once for a rating
+    private int ratingWindowMonths = 13;
+
+    // index histories kept in memory for the current day
+    private int indexCacheSize = 32;
+
+    // stores the closes adjusted for splits and dividends instead of the traded closes.
+    // Changing it only affects quotes fetched afterwards, so the quote store should be emptied as well
+    private boolean adjustedCloses = false;
+
+    // exchanges whose closes of the last trading day are fetched in one bulk request every morning, INDX for the indices
+    private List<String> bulkExchanges = new ArrayList<>(Arrays.asList("XETRA", "US", "AS", "INDX"));
+
     public Auth getAuth() {
         return auth;
     }
@@ -34,4 +51,36 @@ public class EodhdProperties {
     public void setAuth(Auth auth) {
         this.auth = auth;
     }
+
+    public int getRatingWindowMonths() {
+        return ratingWindowMonths;
+    }
+
+    public void setRatingWindowMonths(int ratingWindowMonths) {
+        this.ratingWindowMonths = ratingWindowMonths;
+    }
+
+    public int getIndexCacheSize() {
+        return indexCacheSize;
+    }
+
+    public void setIndexCacheSize(int indexCacheSize) {
+        this.indexCacheSize = indexCacheSize;
+    }
+
+    public boolean isAdjustedCloses() {
+        return adjustedCloses;
+    }
+
+    public void setAdjustedCloses(boolean adjustedCloses) {
+        this.adjustedCloses = adjustedCloses;
+    }
+
+    public List<String> getBulkExchanges() {
+        return bulkExchanges;
+    }
+
+    public void setBulkExchanges(List<String> bulkExchanges) {
+        this.bulkExchanges = bulkExchanges;
+    }
 }
@@ -0,0 +1,52 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.EarningsPerShare;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Compaction of eps histories (earnings per share keyed by date, yyyy-MM-dd)<br/>
+ * An entry is valid until the next one, so only the entries that differ from their predecessor carry information.
+ */
+public final class EpsHistory {
+
+    private EpsHistory() {
+    }
+
+    /**
+     * returns the entries of the given history that differ from their predecessor
+     * @param history the history in any order
+     * @return the change points sorted by date
+     */
+    public static TreeMap<String, EarningsPerShare> changePoints(Map<String, EarningsPerShare> history) {
+        TreeMap<String, EarningsPerShare> changePoints = new TreeMap<>();
+        EarningsPerShare previous = null;
+        for (Map.Entry<String, EarningsPerShare> entry : new TreeMap<>(history).entrySet()) {
+            if (!entry.getValue().equals(previous)) {
+                changePoints.put(entry.getKey(), entry.getValue());
+                previous = entry.getValue();
+            }
+        }
+        return changePoints;
+    }
+
+    /**
+     * removes all but the latest entries of the given history
+     * @param history the history sorted by date
+     * @param maxEntries the number of entries to keep
+     * @return the removed entries
+     */
+    public static SortedMap<String, EarningsPerShare> removeOldest(TreeMap<String, EarningsPerShare> history, int maxEntries) {
+        SortedMap<String, EarningsPerShare> removed = new TreeMap<>();
+        Iterator<Map.Entry<String, EarningsPerShare>> entries = history.entrySet().iterator();
+        while (history.size() > Math.max(1, maxEntries) && entries.hasNext()) {
+            Map.Entry<String, EarningsPerShare> entry = entries.next();
+            removed.put(entry.getKey(), entry.getValue());
+            entries.remove();
+        }
+        return removed;
+    }
+}
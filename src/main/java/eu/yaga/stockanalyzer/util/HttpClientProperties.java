@@ -0,0 +1,146 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.FundamentalDataUrlType;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Automatically loaded properties for the shared http client
+ */
+@ConfigurationProperties(prefix = "http.client")
+@Validated
+@Component
+public class HttpClientProperties {
+
+    public static class Cache {
+
+        // directory of the cached responses, an empty value disables the cache
+        private String directory = "http-cache";
+
+        // minutes a cached page is used without asking the server, by FundamentalDataUrlType.
+        // 0 revalidates every time (conditional GET), pages of other types are not cached
+        private Map<String, Integer> ttlMinutes = new LinkedHashMap<>();
+
+        public Cache() {
+            ttlMinutes.put(FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA.name(), 720);
+            ttlMinutes.put(FundamentalDataUrlType.EARNINGS_REVISION.name(), 720);
+            ttlMinutes.put(FundamentalDataUrlType.DIBA_ANALYST_ESTIMATION.name(), 720);
+            ttlMinutes.put(FundamentalDataUrlType.YAHOO_ANALYST_ESTIMATION.name(), 720);
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public Map<String, Integer> getTtlMinutes() {
+            return ttlMinutes;
+        }
+
+        public void setTtlMinutes(Map<String, Integer> ttlMinutes) {
+            this.ttlMinutes = ttlMinutes;
+        }
+    }
+
+    private int connectTimeoutMillis = 5000;
+
+    // maximum time without data while a response is received
+    private int readTimeoutMillis = 20000;
+
+    // maximum time to wait for a free pooled connection
+    private int poolTimeoutMillis = 10000;
+
+    private int maxConnections = 40;
+
+    private int maxConnectionsPerHost = 8;
+
+    private int maxRedirects = 5;
+
+    // idle connections are closed after this time
+    private int idleSeconds = 30;
+
+    // pooled connections idle for longer are checked before they are reused
+    private int validateAfterInactivityMillis = 2000;
+
+    private Cache cache = new Cache();
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public int getPoolTimeoutMillis() {
+        return poolTimeoutMillis;
+    }
+
+    public void setPoolTimeoutMillis(int poolTimeoutMillis) {
+        this.poolTimeoutMillis = poolTimeoutMillis;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxRedirects() {
+        return maxRedirects;
+    }
+
+    public void setMaxRedirects(int maxRedirects) {
+        this.maxRedirects = maxRedirects;
+    }
+
+    public int getIdleSeconds() {
+        return idleSeconds;
+    }
+
+    public void setIdleSeconds(int idleSeconds) {
+        this.idleSeconds = idleSeconds;
+    }
+
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+}
@@ -0,0 +1,161 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.threeten.bp.LocalDate;
+
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Size-bounded cache of index histories shared by all ratings<br/>
+ * Entries are keyed by index symbol and date range and only live for the trading day they were loaded on,
+ * the least recently used entry is dropped when the cache is full. A history is loaded once, ratings asking for it
+ * while it is being loaded wait for that load.
+ */
+public class IndexHistoryCache {
+
+    /**
+     * Loads a history that is not in the cache
+     */
+    public interface HistoryLoader {
+        QuoteSeries load() throws ParseException;
+    }
+
+    private static class Entry {
+        private final long loadedOn;
+        private final CompletableFuture<QuoteSeries> history;
+
+        Entry(long loadedOn, CompletableFuture<QuoteSeries> history) {
+            this.loadedOn = loadedOn;
+            this.history = history;
+        }
+    }
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Creates a cache holding at most the given number of histories
+     * @param maxEntries the maximum number of histories
+     */
+    public IndexHistoryCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * returns the history loaded today for the given range or loads it<br/>
+     * Only the first caller of a range loads it, concurrent callers of the same range wait for its result.
+     * Failed loads and empty histories are not kept.
+     * @param symbol the index symbol
+     * @param from first day of the range (yyyy-MM-dd)
+     * @param to last day of the range (yyyy-MM-dd)
+     * @param loader loads the history if it has not been loaded today
+     * @return the history
+     * @throws ParseException if the loader fails to parse the range
+     */
+    public QuoteSeries getOrLoad(String symbol, String from, String to, HistoryLoader loader) throws ParseException {
+        String key = key(symbol, from, to);
+        CompletableFuture<QuoteSeries> history;
+        boolean load = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.loadedOn != today() || entry.history.isCompletedExceptionally()) {
+                entry = new Entry(today(), new CompletableFuture<>());
+                entries.put(key, entry);
+                load = true;
+            }
+            history = entry.history;
+        }
+
+        if (load) {
+            try {
+                QuoteSeries loaded = loader.load();
+                history.complete(loaded);
+                if (loaded.isEmpty()) {
+                    remove(key, history);
+                }
+                return loaded;
+            } catch (Throwable e) {
+                // waiting callers are released even by errors of the loader
+                remove(key, history);
+                history.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return history.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ParseException) {
+                throw (ParseException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void remove(String key, CompletableFuture<QuoteSeries> history) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.history == history) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * returns the history loaded today for the given range
+     * @param symbol the index symbol
+     * @param from first day of the range (yyyy-MM-dd)
+     * @param to last day of the range (yyyy-MM-dd)
+     * @return the history or null if it has not been loaded today or is still being loaded
+     */
+    synchronized QuoteSeries get(String symbol, String from, String to) {
+        String key = key(symbol, from, to);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.loadedOn != today()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.history.isDone() && !entry.history.isCompletedExceptionally() ? entry.history.join() : null;
+    }
+
+    /**
+     * stores a history loaded today
+     * @param symbol the index symbol
+     * @param from first day of the range (yyyy-MM-dd)
+     * @param to last day of the range (yyyy-MM-dd)
+     * @param history the history
+     */
+    synchronized void put(String symbol, String from, String to, QuoteSeries history) {
+        entries.put(key(symbol, from, to), new Entry(today(), CompletableFuture.completedFuture(history)));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static String key(String symbol, String from, String to) {
+        return symbol + "|" + from + "|" + to;
+    }
+
+    private static long today() {
+        return LocalDate.now().toEpochDay();
+    }
+}
@@ -0,0 +1,282 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.FundamentalDataUrlType;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Http client shared by all scrapes<br/>
+ * Connections are pooled per host and kept alive, so most requests skip the TCP and TLS handshakes.
+ * Responses are decompressed (gzip/deflate) and redirect chains are followed up to a limit.
+ * Connections idle for a while are checked before they are reused and closed in the background later on.
+ * Pages of the configured {@link FundamentalDataUrlType}s are kept in a {@link ResponseCache}.
+ * Requests for pages of a type are charged to the {@link RequestBudget} of its provider.
+ */
+public class PooledHttpClient implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PooledHttpClient.class);
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/48.0.2564.109 Safari/537.36";
+
+    /**
+     * Processes a response body while it is received
+     * @param <T> the result type
+     */
+    public interface BodyReader<T> {
+        T read(Reader body) throws IOException;
+    }
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    private final ResponseCache responseCache;
+    private final Map<String, Integer> cacheTtlMinutes;
+
+    private final RequestBudget requestBudget;
+
+    public PooledHttpClient(HttpClientProperties properties) {
+        this(properties, null);
+    }
+
+    public PooledHttpClient(HttpClientProperties properties, RequestBudget requestBudget) {
+        this.requestBudget = requestBudget;
+        String cacheDirectory = properties.getCache().getDirectory();
+        responseCache = cacheDirectory == null || cacheDirectory.isEmpty() ? null : new ResponseCache(Paths.get(cacheDirectory));
+        cacheTtlMinutes = properties.getCache().getTtlMinutes();
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerHost());
+        connectionManager.setValidateAfterInactivity(properties.getValidateAfterInactivityMillis());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(properties.getConnectTimeoutMillis())
+                .setSocketTimeout(properties.getReadTimeoutMillis())
+                .setConnectionRequestTimeout(properties.getPoolTimeoutMillis())
+                .setRedirectsEnabled(true)
+                .setMaxRedirects(properties.getMaxRedirects())
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setUserAgent(USER_AGENT)
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return the underlying client, e.g. for a RestTemplate
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * requests the given url and returns the response body
+     * @param url the url
+     * @return the response body or an empty string if the request failed
+     */
+    public String queryHTML(URL url) {
+        return queryHTML(url, null);
+    }
+
+    /**
+     * requests the given url and hands the response body to the given reader while it is received<br/>
+     * The connection is returned to the pool afterwards, even if the body has not been read completely.
+     * @param url the url
+     * @param bodyReader processes the response body
+     * @param <T> the result type
+     * @return the result of the body reader
+     * @throws IOException if the request fails or the response status is not 2xx
+     */
+    public <T> T query(URL url, BodyReader<T> bodyReader) throws IOException {
+        return execute(url, null, null, response -> readBody(url, response, bodyReader));
+    }
+
+    /**
+     * requests a page of the given type and returns the response body, the page is cached if configured for the type
+     * @param url the url
+     * @param type the type of the page
+     * @return the response body or an empty string if the request failed
+     */
+    public String queryHTML(URL url, FundamentalDataUrlType type) {
+        try {
+            return query(url, type, PooledHttpClient::readFully);
+        } catch (IOException e) {
+            log.error("Request to " + url + " failed: " + e.getLocalizedMessage());
+            return "";
+        }
+    }
+
+    /**
+     * requests a page of the given type and hands the response body to the given reader<br/>
+     * If pages of the type are cached, a cached page younger than the configured TTL is read without any request.
+     * An older page is revalidated with its ETag and Last-Modified date and only downloaded again if it has changed.
+     * @param url the url
+     * @param type the type of the page
+     * @param bodyReader processes the response body
+     * @param <T> the result type
+     * @return the result of the body reader
+     * @throws IOException if the request fails or the response status is not 2xx
+     */
+    public <T> T query(URL url, FundamentalDataUrlType type, BodyReader<T> bodyReader) throws IOException {
+        Integer ttlMinutes = type != null ? cacheTtlMinutes.get(type.name()) : null;
+        if (responseCache == null || ttlMinutes == null || ttlMinutes < 0) {
+            return execute(url, type, null, response -> readBody(url, response, bodyReader));
+        }
+
+        ResponseCache.Entry entry = responseCache.get(url);
+        if (entry != null && System.currentTimeMillis() - entry.getStoredAt() < TimeUnit.MINUTES.toMillis(ttlMinutes)) {
+            log.info("Cached response ... " + url);
+            cacheHitCount.incrementAndGet();
+        } else {
+            entry = revalidate(url, type, entry);
+        }
+
+        try (Reader body = responseCache.openBody(entry)) {
+            return bodyReader.read(body);
+        }
+    }
+
+    private ResponseCache.Entry revalidate(URL url, FundamentalDataUrlType type, ResponseCache.Entry entry) throws IOException {
+        return execute(url, type, entry, response -> {
+            if (entry != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                log.info("Response Code ... " + HttpStatus.SC_NOT_MODIFIED);
+                notModifiedCount.incrementAndGet();
+                return responseCache.touch(entry);
+            }
+            return readBody(url, response,
+                    body -> responseCache.put(url, header(response, HttpHeaders.ETAG), header(response, HttpHeaders.LAST_MODIFIED), body));
+        });
+    }
+
+    private <T> T execute(URL url, FundamentalDataUrlType type, ResponseCache.Entry validators, ResponseHandler<T> responseHandler) throws IOException {
+        HttpGet request;
+        try {
+            request = new HttpGet(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid URL " + url, e);
+        }
+        if (validators != null && validators.getEtag() != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, validators.getEtag());
+        }
+        if (validators != null && validators.getLastModified() != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, validators.getLastModified());
+        }
+
+        log.info("Request URL ... " + url);
+        requestCount.incrementAndGet();
+        if (requestBudget != null && type != null) {
+            requestBudget.charge(type);
+        }
+
+        try {
+            return httpClient.execute(request, responseHandler);
+        } catch (IOException e) {
+            errorCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private static <T> T readBody(URL url, HttpResponse response, BodyReader<T> bodyReader) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        log.info("Response Code ... " + status);
+        if (status < 200 || status >= 300) {
+            throw new HttpResponseException(status, "Unexpected response status for " + url);
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            throw new IOException("Empty response for " + url);
+        }
+        Charset charset = ContentType.getOrDefault(entity).getCharset();
+        try (Reader body = new InputStreamReader(entity.getContent(), charset != null ? charset : StandardCharsets.UTF_8)) {
+            return bodyReader.read(body);
+        }
+    }
+
+    private static String header(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * @return the pool usage in total and per host, the number of requests and failed requests,
+     * and the number of pages read from the cache without a request or after a 304 response
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("requests", requestCount.get());
+        statistics.put("errors", errorCount.get());
+        statistics.put("cacheHits", cacheHitCount.get());
+        statistics.put("notModified", notModifiedCount.get());
+        statistics.put("total", toMap(connectionManager.getTotalStats()));
+
+        Map<String, Object> hosts = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            hosts.put(route.getTargetHost().toURI(), toMap(connectionManager.getStats(route)));
+        }
+        statistics.put("hosts", hosts);
+        return statistics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private static Map<String, Integer> toMap(PoolStats stats) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("available", stats.getAvailable());
+        map.put("pending", stats.getPending());
+        map.put("max", stats.getMax());
+        return map;
+    }
+
+    private static String readFully(Reader body) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            sb.append(buffer, 0, read);
+        }
+        return sb.toString();
+    }
+}
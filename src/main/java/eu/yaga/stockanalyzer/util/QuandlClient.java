@@ -0,0 +1,194 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.threeten.bp.LocalDate;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived client of the quandl data set api shared by all requests<br/>
+ * The requests go through the {@link PooledHttpClient}, so the connections to quandl are kept alive and reused.
+ * Only the date and close column of a data set are kept. Date-window responses are cached: windows ending before today
+ * don't change any more and stay until they are dropped as least recently used, windows reaching today live for the day.
+ */
+public class QuandlClient {
+
+    /**
+     * quandl doesn't know the requested data set, or the data set can't be read
+     */
+    public static class InvalidDataSetException extends IOException {
+
+        public InvalidDataSetException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static class Entry {
+        private final long loadedOn;
+        private final QuoteSeries closes;
+
+        Entry(long loadedOn, QuoteSeries closes) {
+            this.loadedOn = loadedOn;
+            this.closes = closes;
+        }
+    }
+
+    private final PooledHttpClient httpClient;
+    private final QuandlProperties properties;
+    private final Map<String, Entry> windows;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong cacheHitCount = new AtomicLong();
+
+    public QuandlClient(PooledHttpClient httpClient, QuandlProperties properties) {
+        this.httpClient = httpClient;
+        this.properties = properties;
+        int maxEntries = properties.getCacheSize();
+        windows = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * returns the closes of a data set within the given window
+     * @param code the quandl code of the data set (e.g. FSE/ABC_X)
+     * @param closeColumn the name of the close column
+     * @param from first day of the window (yyyy-MM-dd)
+     * @param to last day of the window (yyyy-MM-dd)
+     * @return the closes by date with the code as symbol, days without a close are left out
+     * @throws InvalidDataSetException if quandl doesn't know the code or the data set has no such column
+     * @throws IOException if the request fails
+     */
+    public QuoteSeries getCloses(String code, String closeColumn, String from, String to) throws IOException {
+        String key = code + "|" + closeColumn + "|" + from + "|" + to;
+        QuoteSeries cached = getCached(key);
+        if (cached != null) {
+            cacheHitCount.incrementAndGet();
+            return cached;
+        }
+
+        requestCount.incrementAndGet();
+        QuoteSeries closes;
+        try {
+            closes = httpClient.query(url(code, from, to), body -> {
+                try {
+                    return parse(code, closeColumn, new JSONObject(new JSONTokener(body)));
+                } catch (JSONException e) {
+                    throw new InvalidDataSetException("Invalid data set " + code + ": " + e.getLocalizedMessage(), e);
+                }
+            });
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw new InvalidDataSetException("Unknown data set " + code, e);
+            }
+            throw e;
+        }
+
+        long today = LocalDate.now().toEpochDay();
+        // an empty window may still be filled later on
+        if (LocalDate.parse(to).toEpochDay() < today && !closes.isEmpty()) {
+            put(key, new Entry(Long.MAX_VALUE, closes));
+        } else {
+            put(key, new Entry(today, closes));
+        }
+        return closes;
+    }
+
+    private synchronized QuoteSeries getCached(String key) {
+        Entry entry = windows.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.loadedOn != Long.MAX_VALUE && entry.loadedOn != LocalDate.now().toEpochDay()) {
+            windows.remove(key);
+            return null;
+        }
+        return entry.closes;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        windows.put(key, entry);
+    }
+
+    private URL url(String code, String from, String to) throws IOException {
+        StringBuilder url = new StringBuilder(properties.getBaseUrl())
+                .append("datasets/").append(code).append("/data.json?order=asc")
+                .append("&start_date=").append(from)
+                .append("&end_date=").append(to);
+        QuandlProperties.Auth auth = properties.getAuth();
+        if (auth != null && auth.getToken() != null && !auth.getToken().isEmpty()) {
+            url.append("&api_key=").append(encode(auth.getToken()));
+        }
+        return new URL(url.toString());
+    }
+
+    private static String encode(String value) throws UnsupportedEncodingException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static QuoteSeries parse(String code, String closeColumn, JSONObject response) throws IOException {
+        JSONObject dataSet = response.getJSONObject("dataset_data");
+        JSONArray columnNames = dataSet.getJSONArray("column_names");
+        int dateIndex = -1;
+        int closeIndex = -1;
+        for (int i = 0; i < columnNames.length(); i++) {
+            if ("Date".equals(columnNames.getString(i))) {
+                dateIndex = i;
+            } else if (closeColumn.equals(columnNames.getString(i))) {
+                closeIndex = i;
+            }
+        }
+        if (dateIndex < 0 || closeIndex < 0) {
+            throw new InvalidDataSetException("Data set " + code + " has no Date and " + closeColumn + " column: " + columnNames, null);
+        }
+
+        JSONArray data = dataSet.getJSONArray("data");
+        int[] epochDays = new int[data.length()];
+        double[] closes = new double[data.length()];
+        int size = 0;
+        for (int i = 0; i < data.length(); i++) {
+            JSONArray row = data.getJSONArray(i);
+            if (row.isNull(closeIndex)) {
+                continue;
+            }
+            epochDays[size] = (int) LocalDate.parse(row.getString(dateIndex)).toEpochDay();
+            closes[size] = row.getDouble(closeIndex);
+            size++;
+        }
+        if (size < epochDays.length) {
+            epochDays = Arrays.copyOf(epochDays, size);
+            closes = Arrays.copyOf(closes, size);
+        }
+        return new QuoteSeries(code, epochDays, closes);
+    }
+
+    /**
+     * @return the number of requests sent to quandl, the number of windows read from the cache and the cached windows
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("requests", requestCount.get());
+        statistics.put("cacheHits", cacheHitCount.get());
+        synchronized (this) {
+            statistics.put("cachedWindows", windows.size());
+        }
+        return statistics;
+    }
+}
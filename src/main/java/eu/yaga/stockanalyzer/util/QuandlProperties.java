@@ -5,7 +5,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
 /**
- * Automatically loaded properties for sending emails
+ * Automatically loaded properties for the quandl api
  */
 @ConfigurationProperties(prefix = "quandl")
 @Validated
@@ -27,6 +27,12 @@ public class QuandlProperties {
 
     private Auth auth;
 
+    // base url of the api, e.g. a local stub server in tests
+    private String baseUrl = "https://www.quandl.com/api/v3/";
+
+    // date-window responses kept in memory, windows ending before today are kept until they are dropped as least recently used
+    private int cacheSize = 1024;
+
     public Auth getAuth() {
         return auth;
     }
@@ -34,4 +40,20 @@ public class QuandlProperties {
     public void setAuth(Auth auth) {
         this.auth = auth;
     }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
 }
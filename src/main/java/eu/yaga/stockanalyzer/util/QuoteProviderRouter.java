@@ -0,0 +1,368 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.LocalDate;
+
+import java.io.Closeable;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Routes the requests for missing quotes to the fastest healthy provider<br/>
+ * Every provider is scored by its average latency and error rate over the last minutes. A request goes to the provider
+ * that last delivered quotes for the symbol if it is healthy, otherwise to the provider with the best score.
+ * If it doesn't answer within the hedge delay or fails, the next provider is asked as well and the first answer with quotes wins.
+ * An answer without quotes from the first healthy provider is final, the symbol simply has no quotes in the range.
+ * Providers answering without quotes while another one has quotes are scored like failed ones.
+ * The providers share a bounded pool, a request that doesn't fit is skipped like a failed one.
+ */
+public class QuoteProviderRouter implements QuoteStoreService.QuoteFetcher, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteProviderRouter.class);
+
+    // requests needed before a provider may be considered unhealthy
+    private static final int MIN_SAMPLES = 3;
+
+    // samples kept per provider, older ones are dropped even within the window
+    private static final int MAX_SAMPLES = 1000;
+
+    /**
+     * Rolling latency and error statistics of one provider
+     */
+    static class ProviderHealth {
+
+        private static class Sample {
+            private final long time;
+            private final long millis;
+            private final boolean failed;
+
+            Sample(long time, long millis, boolean failed) {
+                this.time = time;
+                this.millis = millis;
+                this.failed = failed;
+            }
+        }
+
+        private final Deque<Sample> samples = new ArrayDeque<>();
+        private final long windowMillis;
+
+        ProviderHealth(long windowMillis) {
+            this.windowMillis = windowMillis;
+        }
+
+        synchronized void record(long millis, boolean failed) {
+            samples.addLast(new Sample(System.currentTimeMillis(), millis, failed));
+            if (samples.size() > MAX_SAMPLES) {
+                samples.removeFirst();
+            }
+        }
+
+        synchronized int getSamples() {
+            prune();
+            return samples.size();
+        }
+
+        synchronized double getErrorRate() {
+            prune();
+            if (samples.isEmpty()) {
+                return 0;
+            }
+            return samples.stream().filter(sample -> sample.failed).count() / (double) samples.size();
+        }
+
+        synchronized long getAverageMillis() {
+            prune();
+            return (long) samples.stream().mapToLong(sample -> sample.millis).average().orElse(0);
+        }
+
+        /**
+         * @param untriedMillis the latency assumed for a provider without requests in the window
+         * @param errorPenaltyMillis the penalty at a 100% error rate
+         * @return the score, lower is better
+         */
+        synchronized long getScore(long untriedMillis, long errorPenaltyMillis) {
+            if (getSamples() == 0) {
+                return untriedMillis;
+            }
+            return getAverageMillis() + (long) (getErrorRate() * errorPenaltyMillis);
+        }
+
+        private void prune() {
+            long oldest = System.currentTimeMillis() - windowMillis;
+            while (!samples.isEmpty() && samples.peekFirst().time < oldest) {
+                samples.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * The answer of one provider
+     */
+    private static class Attempt {
+        private final String provider;
+        private final long start = System.currentTimeMillis();
+        private QuoteSeries quotes;
+        private RuntimeException error;
+        private long millis;
+
+        Attempt(String provider) {
+            this.provider = provider;
+        }
+    }
+
+    private final Map<String, QuoteStoreService.QuoteFetcher> providers;
+    private final Map<String, ProviderHealth> health = new LinkedHashMap<>();
+    private final ConcurrentMap<String, String> symbolProviders = new ConcurrentHashMap<>();
+    private final QuoteRoutingProperties properties;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a router over the given providers
+     * @param providers the providers by name, providers missing in the configured order are not asked
+     * @param properties the routing properties
+     */
+    public QuoteProviderRouter(Map<String, QuoteStoreService.QuoteFetcher> providers, QuoteRoutingProperties properties) {
+        this.properties = properties;
+        this.providers = new LinkedHashMap<>();
+        for (String name : properties.getProviders()) {
+            QuoteStoreService.QuoteFetcher provider = providers.get(name);
+            if (provider == null) {
+                log.warn("Unknown quote provider " + name + " is ignored");
+                continue;
+            }
+            this.providers.put(name, provider);
+            health.put(name, new ProviderHealth(TimeUnit.SECONDS.toMillis(properties.getWindowSeconds())));
+        }
+        if (this.providers.isEmpty()) {
+            throw new IllegalArgumentException("No quote provider configured, known providers: " + providers.keySet());
+        }
+
+        // a cancelled request may still block in its read, so a degraded provider must not take more threads than the pool has
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "quote-provider-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    /**
+     * Adapts a {@link HistoricalExchangeRateService} to a provider of this router
+     * @param service the service
+     * @return the provider
+     */
+    public static QuoteStoreService.QuoteFetcher providerOf(HistoricalExchangeRateService service) {
+        return (symbol, from, to) -> {
+            // the services don't accept ranges of a single day
+            LocalDate requestFrom = from.equals(to) ? from.minusDays(1) : from;
+            try {
+                return service.getHistoricalExchangeRates(symbol, requestFrom.toString(), to.toString()).stream()
+                        .filter(quote -> quote.getDate().compareTo(from.toString()) >= 0)
+                        .collect(Collectors.toList());
+            } catch (ParseException e) {
+                throw new IllegalArgumentException(e);
+            }
+        };
+    }
+
+    /**
+     * fetches the quotes from the providers in the order of {@link #rank(String)}
+     * @param symbol Symbol of the stock
+     * @param from first day to fetch
+     * @param to last day to fetch
+     * @return the quotes of the first provider answering with quotes, an empty list if the first healthy provider
+     * or all providers answered without quotes
+     * @throws RuntimeException if no provider answered in time
+     */
+    @Override
+    public List<HistoricalDataQuote> fetch(String symbol, LocalDate from, LocalDate to) {
+        return fetchSeries(symbol, from, to).toQuoteList();
+    }
+
+    /**
+     * fetches the closes from the providers in the order of {@link #rank(String)}
+     * @param symbol Symbol of the stock
+     * @param from first day to fetch
+     * @param to last day to fetch
+     * @return the closes of the first provider answering with quotes, an empty series if the first healthy provider
+     * or all providers answered without quotes
+     * @throws RuntimeException if no provider answered in time
+     */
+    @Override
+    public QuoteSeries fetchSeries(String symbol, LocalDate from, LocalDate to) {
+        List<String> ranking = rank(symbol);
+        CompletionService<Attempt> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<Attempt>, Attempt> running = new HashMap<>();
+        List<Attempt> empty = new ArrayList<>();
+        RuntimeException lastError = null;
+        long deadline = System.currentTimeMillis() + properties.getTimeoutMillis();
+        int next = 0;
+        boolean askNext = true;
+
+        try {
+            while (askNext || !running.isEmpty()) {
+                if (askNext) {
+                    // after a failure or rejection the next provider is asked, an answer without quotes doesn't need another one
+                    askNext = false;
+                    if (next >= ranking.size()) {
+                        continue;
+                    }
+                    String provider = ranking.get(next++);
+                    try {
+                        submit(completionService, running, provider, symbol, from, to);
+                    } catch (RejectedExecutionException e) {
+                        log.warn("Quote provider pool is full, skipping " + provider + " for " + symbol);
+                        lastError = e;
+                        askNext = true;
+                    }
+                    continue;
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                boolean hedge = next < ranking.size();
+                Future<Attempt> done = completionService.poll(hedge ? Math.min(properties.getHedgeAfterMillis(), remaining) : remaining, TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    if (hedge && System.currentTimeMillis() < deadline) {
+                        log.info("Quote provider is slow for " + symbol + ", asking " + ranking.get(next) + " as well");
+                        askNext = true;
+                    }
+                    continue;
+                }
+
+                Attempt attempt = running.remove(done);
+                if (attempt.error != null) {
+                    log.warn("Quote provider " + attempt.provider + " failed for " + symbol + ": " + attempt.error.getLocalizedMessage());
+                    health.get(attempt.provider).record(attempt.millis, true);
+                    lastError = attempt.error;
+                    askNext = running.isEmpty();
+                } else if (attempt.quotes == null || attempt.quotes.isEmpty()) {
+                    empty.add(attempt);
+                    if (attempt.provider.equals(ranking.get(0)) && isHealthy(health.get(attempt.provider))) {
+                        break;
+                    }
+                    // an unhealthy provider may have lost the quotes
+                    askNext = running.isEmpty() && !isHealthy(health.get(attempt.provider));
+                } else {
+                    health.get(attempt.provider).record(attempt.millis, false);
+                    // the others should have had quotes as well
+                    for (Attempt emptyAttempt : empty) {
+                        health.get(emptyAttempt.provider).record(emptyAttempt.millis, true);
+                    }
+                    symbolProviders.put(symbol, attempt.provider);
+                    return attempt.quotes;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching quotes for " + symbol, e);
+        } finally {
+            // slower than the answer or too slow at all
+            boolean timedOut = System.currentTimeMillis() >= deadline;
+            for (Map.Entry<Future<Attempt>, Attempt> entry : running.entrySet()) {
+                entry.getKey().cancel(true);
+                health.get(entry.getValue().provider).record(System.currentTimeMillis() - entry.getValue().start, timedOut);
+            }
+        }
+
+        if (!empty.isEmpty()) {
+            for (Attempt emptyAttempt : empty) {
+                health.get(emptyAttempt.provider).record(emptyAttempt.millis, false);
+            }
+            return QuoteSeries.empty(symbol);
+        }
+        if (lastError == null) {
+            throw new RuntimeException("No quote provider answered within " + properties.getTimeoutMillis() + "ms for " + symbol);
+        }
+        throw new RuntimeException("Unable to retrieve quotes for " + symbol + " from " + ranking, lastError);
+    }
+
+    private void submit(CompletionService<Attempt> completionService, Map<Future<Attempt>, Attempt> running,
+                        String provider, String symbol, LocalDate from, LocalDate to) {
+        Attempt attempt = new Attempt(provider);
+        running.put(completionService.submit(() -> {
+            try {
+                attempt.quotes = providers.get(provider).fetchSeries(symbol, from, to);
+            } catch (RuntimeException e) {
+                attempt.error = e;
+            }
+            attempt.millis = System.currentTimeMillis() - attempt.start;
+            return attempt;
+        }), attempt);
+    }
+
+    /**
+     * ranks the providers for a request: the provider that last delivered quotes for the symbol if it is healthy,
+     * then the healthy providers by score, then the unhealthy ones
+     * @param symbol the symbol
+     * @return the names of the providers
+     */
+    List<String> rank(String symbol) {
+        Map<String, Long> scores = new HashMap<>();
+        Set<String> unhealthy = new HashSet<>();
+        for (Map.Entry<String, ProviderHealth> entry : health.entrySet()) {
+            ProviderHealth providerHealth = entry.getValue();
+            scores.put(entry.getKey(), providerHealth.getScore(properties.getHedgeAfterMillis(), properties.getErrorPenaltyMillis()));
+            if (!isHealthy(providerHealth)) {
+                unhealthy.add(entry.getKey());
+            }
+        }
+
+        // the sort is stable, equal scores keep the configured order
+        List<String> ranking = new ArrayList<>(providers.keySet());
+        ranking.sort(Comparator.comparing((String name) -> unhealthy.contains(name)).thenComparing(scores::get));
+
+        String symbolProvider = symbolProviders.get(symbol);
+        if (symbolProvider != null && !unhealthy.contains(symbolProvider) && ranking.remove(symbolProvider)) {
+            ranking.add(0, symbolProvider);
+        }
+        return ranking;
+    }
+
+    private boolean isHealthy(ProviderHealth providerHealth) {
+        return providerHealth.getSamples() < MIN_SAMPLES || providerHealth.getErrorRate() < properties.getMaxErrorRate();
+    }
+
+    /**
+     * @return the score, average latency, error rate and number of requests of every provider within the window
+     * and the number of symbols last served by each provider
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Long> symbols = symbolProviders.values().stream()
+                .collect(Collectors.groupingBy(provider -> provider, TreeMap::new, Collectors.counting()));
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        for (Map.Entry<String, ProviderHealth> entry : health.entrySet()) {
+            ProviderHealth providerHealth = entry.getValue();
+            Map<String, Object> provider = new LinkedHashMap<>();
+            provider.put("score", providerHealth.getScore(properties.getHedgeAfterMillis(), properties.getErrorPenaltyMillis()));
+            provider.put("averageMillis", providerHealth.getAverageMillis());
+            provider.put("errorRate", providerHealth.getErrorRate());
+            provider.put("requests", providerHealth.getSamples());
+            provider.put("symbols", symbols.getOrDefault(entry.getKey(), 0L));
+            statistics.put(entry.getKey(), provider);
+        }
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,106 @@
+package eu.yaga.stockanalyzer.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Automatically loaded properties for routing quote requests to the historical rate providers
+ */
+@ConfigurationProperties(prefix = "quotes")
+@Validated
+@Component
+public class QuoteRoutingProperties {
+
+    // providers asked for missing quotes, the order breaks ties between equally healthy providers
+    private List<String> providers = new ArrayList<>(Arrays.asList("eodhd", "quandl", "yahoo"));
+
+    // milliseconds after which a request is also sent to the next provider, the first answer with quotes wins
+    private long hedgeAfterMillis = 3000;
+
+    // milliseconds a request waits for all providers together
+    private long timeoutMillis = 30000;
+
+    // seconds a request is part of the latency and error score of its provider
+    private int windowSeconds = 300;
+
+    // milliseconds added to the score of a provider per failed request, at a 100% error rate
+    private long errorPenaltyMillis = 10000;
+
+    // error rate from which a provider is only asked if all others failed
+    private double maxErrorRate = 0.5;
+
+    // threads asking the providers for all requests
+    private int threads = 8;
+
+    // provider requests waiting for a thread, if the queue is full the provider is skipped like a failed one
+    private int queueCapacity = 32;
+
+    public List<String> getProviders() {
+        return providers;
+    }
+
+    public void setProviders(List<String> providers) {
+        this.providers = providers;
+    }
+
+    public long getHedgeAfterMillis() {
+        return hedgeAfterMillis;
+    }
+
+    public void setHedgeAfterMillis(long hedgeAfterMillis) {
+        this.hedgeAfterMillis = hedgeAfterMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public void setWindowSeconds(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+    }
+
+    public long getErrorPenaltyMillis() {
+        return errorPenaltyMillis;
+    }
+
+    public void setErrorPenaltyMillis(long errorPenaltyMillis) {
+        this.errorPenaltyMillis = errorPenaltyMillis;
+    }
+
+    public double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    public void setMaxErrorRate(double maxErrorRate) {
+        this.maxErrorRate = maxErrorRate;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,75 @@
+package eu.yaga.stockanalyzer.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Automatically loaded properties for the scheduled ratings
+ */
+@ConfigurationProperties(prefix = "ratingbot")
+@Validated
+@Component
+public class RatingBotProperties {
+
+    public static class RateLimit {
+
+        private int capacity;
+        private double perMinute;
+
+        public RateLimit() {}
+
+        public RateLimit(int capacity, double perMinute) {
+            this.capacity = capacity;
+            this.perMinute = perMinute;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getPerMinute() {
+            return perMinute;
+        }
+
+        public void setPerMinute(double perMinute) {
+            this.perMinute = perMinute;
+        }
+    }
+
+    // number of stocks rated at the same time
+    private int workers = 4;
+
+    // request budget per data provider, every request sent to a provider takes one token, ratings wait while a budget is empty
+    private Map<String, RateLimit> rateLimits = new LinkedHashMap<>();
+
+    public RatingBotProperties() {
+        rateLimits.put("onvista", new RateLimit(10, 1));
+        rateLimits.put("finanzennet", new RateLimit(10, 1));
+        rateLimits.put("analyst", new RateLimit(10, 1));
+        rateLimits.put("eodhd", new RateLimit(20, 2));
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public Map<String, RateLimit> getRateLimits() {
+        return rateLimits;
+    }
+
+    public void setRateLimits(Map<String, RateLimit> rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+}
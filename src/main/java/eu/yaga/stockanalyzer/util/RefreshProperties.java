@@ -0,0 +1,112 @@
+package eu.yaga.stockanalyzer.util;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Automatically loaded properties for refreshing the fundamental data of a stock
+ */
+@ConfigurationProperties(prefix = "refresh")
+@Validated
+@Component
+public class RefreshProperties {
+
+    // threads querying the sources of all refreshes
+    private int threads = 8;
+
+    // sources waiting for a thread, if the queue is full a source is skipped like after its timeout
+    private int queueCapacity = 64;
+
+    // seconds a refresh waits for a source before it keeps the last known value
+    private Map<String, Integer> timeoutSeconds = new LinkedHashMap<>();
+
+    // stocks of a refresh job rated at the same time
+    private int jobWorkers = 4;
+
+    // maximum number of stocks of one refresh job
+    private int maxJobSymbols = 1000;
+
+    // finished refresh jobs whose progress can still be requested
+    private int keptJobs = 20;
+
+    // refresh jobs waiting for the running one, further jobs are rejected
+    private int maxQueuedJobs = 5;
+
+    // latest changes of the eps history kept in the fundamental data, older ones are archived
+    private int epsHistoryEntries = 20;
+
+    public RefreshProperties() {
+        timeoutSeconds.put("onvista", 60);
+        timeoutSeconds.put("earningsRevision", 30);
+        timeoutSeconds.put("analystEstimation", 30);
+        timeoutSeconds.put("historicalRates", 60);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Map<String, Integer> getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public void setTimeoutSeconds(Map<String, Integer> timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public int getJobWorkers() {
+        return jobWorkers;
+    }
+
+    public void setJobWorkers(int jobWorkers) {
+        this.jobWorkers = jobWorkers;
+    }
+
+    public int getMaxJobSymbols() {
+        return maxJobSymbols;
+    }
+
+    public void setMaxJobSymbols(int maxJobSymbols) {
+        this.maxJobSymbols = maxJobSymbols;
+    }
+
+    public int getKeptJobs() {
+        return keptJobs;
+    }
+
+    public void setKeptJobs(int keptJobs) {
+        this.keptJobs = keptJobs;
+    }
+
+    public int getMaxQueuedJobs() {
+        return maxQueuedJobs;
+    }
+
+    public void setMaxQueuedJobs(int maxQueuedJobs) {
+        this.maxQueuedJobs = maxQueuedJobs;
+    }
+
+    public int getEpsHistoryEntries() {
+        return epsHistoryEntries;
+    }
+
+    public void setEpsHistoryEntries(int epsHistoryEntries) {
+        this.epsHistoryEntries = epsHistoryEntries;
+    }
+}
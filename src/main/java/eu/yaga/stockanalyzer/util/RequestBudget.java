@@ -0,0 +1,75 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.FundamentalDataUrlType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request budgets of the data providers<br/>
+ * The clients of the providers take one token per request they send, cached pages cost nothing.
+ * A request is never held back, an empty budget goes into debt and the scheduled ratings wait until it is refilled.
+ */
+public class RequestBudget {
+
+    public static final String ONVISTA = "onvista";
+    public static final String FINANZENNET = "finanzennet";
+    public static final String ANALYST = "analyst";
+    public static final String EODHD = "eodhd";
+
+    private final Map<String, TokenBucket> buckets = new LinkedHashMap<>();
+
+    /**
+     * Creates full budgets
+     * @param rateLimits the limits by provider, providers without limit are not accounted
+     */
+    public RequestBudget(Map<String, RatingBotProperties.RateLimit> rateLimits) {
+        for (Map.Entry<String, RatingBotProperties.RateLimit> rateLimit : rateLimits.entrySet()) {
+            buckets.put(rateLimit.getKey(), new TokenBucket(rateLimit.getValue().getCapacity(), rateLimit.getValue().getPerMinute()));
+        }
+    }
+
+    /**
+     * takes one request of the given provider's budget
+     * @param provider the provider
+     */
+    public void charge(String provider) {
+        TokenBucket bucket = buckets.get(provider);
+        if (bucket != null) {
+            bucket.take();
+        }
+    }
+
+    /**
+     * takes one request of the budget of the provider serving pages of the given type
+     * @param type the type of the page
+     */
+    public void charge(FundamentalDataUrlType type) {
+        switch (type) {
+            case ONVISTA_FUNDAMENTAL_DATA:
+                charge(ONVISTA);
+                break;
+            case EARNINGS_REVISION:
+                charge(FINANZENNET);
+                break;
+            case DIBA_ANALYST_ESTIMATION:
+            case YAHOO_ANALYST_ESTIMATION:
+                charge(ANALYST);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return the first provider without a request left, null if every provider has requests left
+     */
+    public String getExhausted() {
+        for (Map.Entry<String, TokenBucket> bucket : buckets.entrySet()) {
+            if (bucket.getValue().available() < 1) {
+                return bucket.getKey();
+            }
+        }
+        return null;
+    }
+}
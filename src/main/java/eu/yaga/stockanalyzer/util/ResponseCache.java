@@ -0,0 +1,190 @@
+package eu.yaga.stockanalyzer.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of response bodies keyed by URL<br/>
+ * Every response is stored as one gzip file: a small header with the URL and the validators (ETag, Last-Modified)
+ * followed by the body. The modification time of the file is the time the response was stored or last revalidated.
+ * Files are replaced atomically, so concurrent readers always see a complete response.
+ */
+public class ResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * A cached response
+     */
+    public static class Entry {
+        private final Path file;
+        private final long storedAt;
+        private final String etag;
+        private final String lastModified;
+
+        private Entry(Path file, long storedAt, String etag, String lastModified) {
+            this.file = file;
+            this.storedAt = storedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return the time the response was stored or last revalidated (epoch millis)
+         */
+        public long getStoredAt() {
+            return storedAt;
+        }
+
+        /**
+         * @return the ETag of the response or null
+         */
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return the Last-Modified date of the response or null
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private final Path directory;
+
+    /**
+     * Creates a cache storing its files in the given directory
+     * @param directory the directory, it is created if necessary
+     */
+    public ResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * returns the cached response of the given url
+     * @param url the url
+     * @return the entry or null if the url has not been cached or the file can't be read
+     */
+    public Entry get(URL url) {
+        Path file = file(url);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = open(file)) {
+            return readHeader(file, in, url);
+        } catch (IOException e) {
+            log.warn("Unable to read cached response of " + url + ": " + e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    /**
+     * opens the cached body of the given entry
+     * @param entry the entry
+     * @return the body decoded as UTF-8, it has to be closed by the caller
+     * @throws IOException if the file can't be read
+     */
+    public Reader openBody(Entry entry) throws IOException {
+        DataInputStream in = open(entry.file);
+        try {
+            // skip the header
+            in.readUTF();
+            in.readUTF();
+            in.readUTF();
+            return new InputStreamReader(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * stores the given response
+     * @param url the url
+     * @param etag the ETag of the response or null
+     * @param lastModified the Last-Modified date of the response or null
+     * @param body the response body, it is read to the end
+     * @return the new entry
+     * @throws IOException if the response can't be read or stored
+     */
+    public Entry put(URL url, String etag, String lastModified, Reader body) throws IOException {
+        Files.createDirectories(directory);
+        Path file = file(url);
+        Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE))) {
+                out.writeUTF(url.toString());
+                out.writeUTF(etag != null ? etag : "");
+                out.writeUTF(lastModified != null ? lastModified : "");
+
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                char[] buffer = new char[BUFFER_SIZE];
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    writer.write(buffer, 0, read);
+                }
+                writer.flush();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return new Entry(file, Files.getLastModifiedTime(file).toMillis(), etag, lastModified);
+    }
+
+    /**
+     * marks the given entry as revalidated now, e.g. after a 304 response
+     * @param entry the entry
+     * @return the updated entry
+     * @throws IOException if the file can't be updated
+     */
+    public Entry touch(Entry entry) throws IOException {
+        long now = System.currentTimeMillis();
+        Files.setLastModifiedTime(entry.file, FileTime.fromMillis(now));
+        return new Entry(entry.file, now, entry.etag, entry.lastModified);
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)), BUFFER_SIZE));
+    }
+
+    private static Entry readHeader(Path file, DataInputStream in, URL url) throws IOException {
+        String storedUrl = in.readUTF();
+        if (!storedUrl.equals(url.toString())) {
+            // hash collision
+            return null;
+        }
+        long storedAt = Files.getLastModifiedTime(file).toMillis();
+        String etag = in.readUTF();
+        String lastModified = in.readUTF();
+        return new Entry(file, storedAt, etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified);
+    }
+
+    private Path file(URL url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest.digest(url.toString().getBytes(StandardCharsets.UTF_8))) {
+                name.append(String.format("%02x", b));
+            }
+            return directory.resolve(name.append(".gz").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
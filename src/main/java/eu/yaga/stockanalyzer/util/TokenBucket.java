@@ -0,0 +1,73 @@
+package eu.yaga.stockanalyzer.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request budget of a data provider<br/>
+ * The bucket holds up to capacity tokens and is refilled continuously with the given rate,
+ * every request takes one token.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a full bucket
+     * @param capacity the maximum number of tokens (burst)
+     * @param tokensPerMinute the number of tokens added per minute
+     */
+    public TokenBucket(int capacity, double tokensPerMinute) {
+        if (capacity < 1 || tokensPerMinute < 0) {
+            throw new IllegalArgumentException("capacity must be positive and tokensPerMinute must not be negative");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * takes a token if one is available
+     * @return true if a token has been taken
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * takes a token even if none is available, the missing tokens are refilled before the next one can be acquired
+     */
+    public synchronized void take() {
+        refill();
+        tokens--;
+    }
+
+    /**
+     * returns a token that has been taken but not used
+     */
+    public synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * @return the number of whole tokens currently available
+     */
+    public synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,105 @@
+package eu.yaga.stockanalyzer.model.historicaldata;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link QuoteSeries}
+ */
+public class QuoteSeriesTest {
+
+    private static final String SYMBOL = "ABC.DE";
+
+    // Friday
+    private LocalDate friday = LocalDate.of(2017, 3, 10);
+
+    private QuoteSeries series;
+
+    @Before
+    public void init() {
+        List<HistoricalDataQuote> quotes = new ArrayList<>();
+        // unsorted on purpose: Mon 13th, Thu 9th, Fri 10th
+        quotes.add(new HistoricalDataQuote(SYMBOL, "2017-03-13", 13));
+        quotes.add(new HistoricalDataQuote(SYMBOL, "2017-03-09", 9));
+        quotes.add(new HistoricalDataQuote(SYMBOL, "2017-03-10", 10));
+        series = QuoteSeries.of(SYMBOL, quotes);
+    }
+
+    @Test
+    public void testFloorOnTradingDay() {
+        int pos = series.floor(friday.toEpochDay());
+
+        assertEquals(friday.toEpochDay(), series.getEpochDay(pos));
+        assertEquals(10, series.getClose(pos), 0);
+    }
+
+    @Test
+    public void testFloorOnWeekend() {
+        int pos = series.floor(friday.plusDays(2).toEpochDay());
+
+        assertEquals(friday.toEpochDay(), series.getEpochDay(pos));
+    }
+
+    @Test
+    public void testCeilingOnWeekend() {
+        int pos = series.ceiling(friday.plusDays(1).toEpochDay());
+
+        assertEquals(friday.plusDays(3).toEpochDay(), series.getEpochDay(pos));
+        assertEquals(13, series.getClose(pos), 0);
+    }
+
+    @Test
+    public void testOutOfRange() {
+        assertEquals(-1, series.floor(friday.minusDays(2).toEpochDay()));
+        assertEquals(-1, series.ceiling(friday.plusDays(4).toEpochDay()));
+        assertEquals(2, series.floor(friday.plusYears(1).toEpochDay()));
+        assertTrue(QuoteSeries.of(SYMBOL, new ArrayList<>()).floor(friday.toEpochDay()) < 0);
+    }
+
+    @Test
+    public void testSliceSharesTheCloses() {
+        QuoteSeries slice = series.slice(friday.toEpochDay(), friday.plusDays(3).toEpochDay());
+
+        assertEquals(2, slice.size());
+        assertEquals(SYMBOL, slice.getSymbol());
+        assertEquals(10, slice.getClose(0), 0);
+        assertEquals(0, slice.floor(friday.plusDays(2).toEpochDay()));
+        assertEquals(-1, slice.floor(friday.minusDays(1).toEpochDay()));
+        assertEquals(-1, slice.ceiling(friday.plusDays(4).toEpochDay()));
+        assertTrue(series.slice(friday.plusDays(1).toEpochDay(), friday.plusDays(2).toEpochDay()).isEmpty());
+
+        try {
+            slice.getClose(2);
+            fail("the slice must not expose closes outside of its range");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testProgress() {
+        assertEquals(30, series.getProgress(2, 1), 0.0001);
+        // Sunday to Thursday: Friday's close compared to Thursday's close
+        assertEquals(100.0 / 9, series.getProgress(friday.plusDays(2).toEpochDay(), friday.minusDays(1).toEpochDay()), 0.0001);
+        assertTrue(Double.isNaN(series.getProgress(friday.toEpochDay(), friday.minusDays(2).toEpochDay())));
+    }
+
+    @Test
+    public void testQuoteListView() {
+        List<HistoricalDataQuote> quotes = series.slice(friday.toEpochDay(), friday.plusDays(10).toEpochDay()).toQuoteList();
+
+        assertEquals(2, quotes.size());
+        assertEquals("2017-03-10", quotes.get(0).getDate());
+        assertEquals(SYMBOL, quotes.get(0).getSymbol());
+        assertEquals(13, quotes.get(1).getClose(), 0);
+        assertTrue(QuoteSeries.empty(SYMBOL).toQuoteList().isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package eu.yaga.stockanalyzer.parser;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link EodhdQuoteParser}
+ */
+public class EodhdQuoteParserTest {
+
+    private static final String SYMBOL = "ABC";
+
+    private EodhdQuoteParser parser = new EodhdQuoteParser();
+
+    @Test
+    public void testDateAndCloseAreRead() throws Exception {
+        QuoteSeries series = parse("[{\"date\":\"2017-03-09\",\"open\":9.5,\"high\":10.5,\"low\":9.25,\"close\":10.1,\"adjusted_close\":9.9,\"volume\":1200},"
+                + "{\"date\":\"2017-03-10\",\"open\":10.1,\"high\":11,\"low\":10,\"close\":11,\"adjusted_close\":10.8,\"volume\":900}]", false);
+
+        assertEquals(SYMBOL, series.getSymbol());
+        assertEquals(2, series.size());
+        assertEquals(LocalDate.of(2017, 3, 9), series.getDate(0));
+        assertEquals(10.1, series.getClose(0), 0);
+        assertEquals(LocalDate.of(2017, 3, 10), series.getDate(1));
+        assertEquals(11, series.getClose(1), 0);
+    }
+
+    @Test
+    public void testAdjustedCloses() throws Exception {
+        QuoteSeries series = parse("[{\"date\":\"2017-03-09\",\"close\":10.1,\"adjusted_close\":9.9},"
+                + "{\"date\":\"2017-03-10\",\"close\":11}]", true);
+
+        assertEquals(9.9, series.getClose(0), 0);
+        // falls back to the close
+        assertEquals(11, series.getClose(1), 0);
+    }
+
+    @Test
+    public void testQuotesWithoutCloseAreLeftOut() throws Exception {
+        QuoteSeries series = parse("[{\"date\":\"2017-03-08\",\"close\":null},{\"date\":\"2017-03-09\",\"close\":\"NA\"},"
+                + "{\"date\":\"2017-03-10\",\"close\":\"11.5\",\"extra\":{\"nested\":[1,2]}}]", false);
+
+        assertEquals(1, series.size());
+        assertEquals(11.5, series.getClose(0), 0);
+    }
+
+    @Test
+    public void testUnsortedQuotesAreSorted() throws Exception {
+        QuoteSeries series = parse("[{\"date\":\"2017-03-10\",\"close\":11},{\"date\":\"2017-03-09\",\"close\":10}]", false);
+
+        assertEquals(LocalDate.of(2017, 3, 9), series.getDate(0));
+        assertEquals(10, series.getClose(0), 0);
+    }
+
+    @Test
+    public void testManyQuotesGrowTheArrays() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        LocalDate date = LocalDate.of(2007, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"date\":\"").append(date.plusDays(i)).append("\",\"close\":").append(i).append('}');
+        }
+        QuoteSeries series = parse(json.append(']').toString(), false);
+
+        assertEquals(1000, series.size());
+        assertEquals(date.plusDays(999), series.getDate(999));
+        assertEquals(999, series.getClose(999), 0);
+    }
+
+    @Test
+    public void testDecimalsAreParsedExactly() throws Exception {
+        String[] closes = {"0.1", "10.2", "-3.75", "123.4567", "99999.99999", "0.000001", "1234567.891234567891", "1.5e3", "2E-2", "7.0"};
+        StringBuilder json = new StringBuilder("[");
+        LocalDate date = LocalDate.of(2017, 1, 1);
+        for (int i = 0; i < closes.length; i++) {
+            json.append(i > 0 ? "," : "").append("{\"date\":\"").append(date.plusDays(i)).append("\",\"close\":").append(closes[i]).append('}');
+        }
+        QuoteSeries series = parse(json.append(']').toString(), false);
+
+        for (int i = 0; i < closes.length; i++) {
+            assertEquals(closes[i], Double.parseDouble(closes[i]), series.getClose(i), 0);
+        }
+    }
+
+    @Test
+    public void testBulkQuotes() throws Exception {
+        String json = "[{\"code\":\"ABC\",\"exchange_short_name\":\"XETRA\",\"date\":\"2017-03-10\",\"open\":9.5,\"close\":10.1,\"adjusted_close\":9.9,\"volume\":1200},"
+                + "{\"code\":\"XYZ\",\"exchange_short_name\":\"XETRA\",\"date\":\"2017-03-10\",\"close\":null},"
+                + "{\"code\":\"DEF\",\"exchange_short_name\":\"XETRA\",\"date\":\"2017-03-09\",\"close\":20}]";
+        List<String> quotes = new ArrayList<>();
+
+        int count = parser.parseBulk(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), true,
+                (code, epochDay, close) -> quotes.add(code + " " + LocalDate.ofEpochDay(epochDay) + " " + close));
+
+        assertEquals(3, count);
+        assertEquals(Arrays.asList("ABC 2017-03-10 9.9", "DEF 2017-03-09 20.0"), quotes);
+    }
+
+    @Test
+    public void testErrorResponseFails() throws Exception {
+        try {
+            parse("{\"error\":\"Invalid token\"}", false);
+            fail("an object is no eod response");
+        } catch (JsonParseException e) {
+            assertTrue(e.getMessage().contains("array"));
+        }
+    }
+
+    private QuoteSeries parse(String json, boolean adjusted) throws IOException {
+        return parser.parse(SYMBOL, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), adjusted);
+    }
+}
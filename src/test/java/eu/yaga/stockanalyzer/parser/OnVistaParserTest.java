@@ -0,0 +1,155 @@
+package eu.yaga.stockanalyzer.parser;
+
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.StockType;
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.service.CurrentStockQuotesService;
+import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link OnVistaParser}
+ */
+public class OnVistaParserTest {
+
+    // hand-written fixtures in the table layout of onvista, no recorded pages are available;
+    // the year placeholders are replaced with the current business years
+    private static final String[] PAGES = {"abcde", "fghij", "klmno"};
+
+    @InjectMocks
+    private OnVistaParser parser;
+
+    @Mock
+    private HistoricalExchangeRateService historicalExchangeRateService;
+
+    @Mock
+    private CurrentStockQuotesService currentStockQuotesService;
+
+    private Map<String, String> html = new HashMap<>();
+
+    @Before
+    public void init() throws Exception {
+        initMocks(this);
+        doAnswer(invocation -> {
+            String symbol = invocation.getArgumentAt(0, String.class);
+            List<HistoricalDataQuote> quotes = new ArrayList<>();
+            quotes.add(new HistoricalDataQuote(symbol, LocalDate.now().minusDays(1).toString(), symbol.length() * 10.0));
+            return QuoteSeries.of(symbol, quotes);
+        }).when(historicalExchangeRateService).getQuoteSeries(anyString(), anyString(), anyString());
+
+        for (String page : PAGES) {
+            html.put(page, loadPage(page));
+        }
+    }
+
+    @Test
+    public void testParseFundamentalData() {
+        FundamentalData fd = parse("abcde");
+
+        int year = LocalDate.now().getYear();
+        assertEquals(Arrays.asList((year + 1) + "e", year + "e", String.valueOf(year - 1), String.valueOf(year - 2), String.valueOf(year - 3)), fd.getBusinessYears());
+        assertEquals(14.2, fd.getRoe(), 0.0001);
+        assertEquals(9.4, fd.getEbit(), 0.0001);
+        assertEquals(1502.75, fd.getMarketCapitalization(), 0.0001);
+        assertEquals(43.8, fd.getEquityRatio(), 0.0001);
+        assertEquals(1.52, fd.getEpsCurrentYear(), 0.0001);
+        assertEquals(1.70, fd.getEpsNextYear(), 0.0001);
+        assertEquals(80.0, fd.getAsk(), 0.0001);
+        assertEquals(80.0 / 1.52, fd.getPerCurrent(), 0.0001);
+    }
+
+    @Test
+    public void testParseFromStreamInSmallChunks() throws Exception {
+        String expected = describe(parse("abcde"));
+
+        // markup the tokenizer has to skip, the page arrives a few characters at a time
+        String page = "<script>var rows = '<tr><td>Eigenkapitalrendite</td><td class=\"ZAHL\">1,0%</td></tr>';</script>"
+                + "<!-- <span>Geschäftsjahresende: 30.06.</span> -->"
+                + "<table><thead><tr><th>Aktie</th><th class=\"ZAHL\">Kurs</th></tr></thead></table>"
+                + html.get("abcde");
+        Reader reader = new FilterReader(new StringReader(page)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 7));
+            }
+        };
+
+        FundamentalData fd = new FundamentalData();
+        fd.setSymbol("ABCDE.DE");
+        fd.setStockType(StockType.LARGE_CAP);
+
+        assertEquals(expected, describe(parser.getFundamentalData(reader, fd)));
+    }
+
+    @Test
+    public void testFinanceStockFallsBackToTwoYearsAgo() {
+        FundamentalData fd = parse("klmno");
+
+        assertEquals(0, fd.getEbit(), 0);
+        assertEquals(9.5, fd.getRoe(), 0.0001);
+    }
+
+    @Test
+    public void testConcurrentParsingMatchesSequentialResults() throws Exception {
+        Map<String, String> expected = new HashMap<>();
+        for (String page : PAGES) {
+            expected.put(page, describe(parse(page)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                String page = PAGES[i % PAGES.length];
+                results.add(executor.submit(() -> describe(parse(page))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(PAGES[i % PAGES.length]), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private FundamentalData parse(String page) {
+        FundamentalData fd = new FundamentalData();
+        fd.setSymbol(page.toUpperCase() + ".DE");
+        fd.setStockType(page.equals("klmno") ? StockType.LARGE_FINANCE : StockType.LARGE_CAP);
+        return parser.getFundamentalData(html.get(page), fd);
+    }
+
+    private String describe(FundamentalData fd) {
+        return fd.getSymbol() + " " + fd.getBusinessYears() + " " + fd.getRoe() + " " + fd.getEbit() + " "
+                + fd.getMarketCapitalization() + " " + fd.getEquityRatio() + " " + fd.getEpsCurrentYear() + " "
+                + fd.getEpsNextYear() + " " + fd.getAsk() + " " + fd.getPer5years() + " " + fd.getPerCurrent();
+    }
+
+    private String loadPage(String page) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/onvista/" + page + ".html");
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+            int year = LocalDate.now().getYear();
+            return scanner.next()
+                    .replace("{Y-3}", String.valueOf(year - 3))
+                    .replace("{Y-2}", String.valueOf(year - 2))
+                    .replace("{Y-1}", String.valueOf(year - 1))
+                    .replace("{Y}", String.valueOf(year))
+                    .replace("{Y+1}", String.valueOf(year + 1));
+        }
+    }
+}
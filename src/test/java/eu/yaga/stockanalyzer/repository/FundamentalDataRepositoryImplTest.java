@@ -0,0 +1,300 @@
+package eu.yaga.stockanalyzer.repository;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteResult;
+import com.mongodb.DBObject;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.IndexOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link FundamentalDataRepositoryImpl}
+ */
+public class FundamentalDataRepositoryImplTest {
+
+    @InjectMocks
+    private FundamentalDataRepositoryImpl repository;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private IndexOperations indexOperations;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    @Mock
+    private MongoConverter mongoConverter;
+
+    @Before
+    public void init() {
+        initMocks(this);
+        doReturn(indexOperations).when(mongoTemplate).indexOps(FundamentalData.class);
+    }
+
+    @Test
+    public void testLatestPerSymbolInOneAggregation() {
+        List<FundamentalData> latest = new ArrayList<>();
+        latest.add(new FundamentalData());
+        doReturn(new AggregationResults<>(latest, new BasicDBObject()))
+                .when(mongoTemplate).aggregate(any(Aggregation.class), eq(FundamentalData.class), eq(FundamentalData.class));
+
+        List<FundamentalData> result = repository.findLatestPerSymbol();
+        repository.findLatestPerSymbol();
+
+        assertEquals(1, result.size());
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(2)).aggregate(aggregation.capture(), eq(FundamentalData.class), eq(FundamentalData.class));
+        verify(indexOperations, never()).ensureIndex(any(Index.class));
+
+        DBObject command = aggregation.getValue().toDbObject("fundamentalData", Aggregation.DEFAULT_CONTEXT);
+        List<?> pipeline = (List<?>) command.get("pipeline");
+        assertEquals(4, pipeline.size());
+        assertEquals("{ \"$sort\" : { \"symbol\" : 1 , \"date\" : -1}}", pipeline.get(0).toString());
+        assertEquals("{ \"$group\" : { \"_id\" : \"$symbol\" , \"latest\" : { \"$first\" : \"$$ROOT\"}}}", pipeline.get(1).toString());
+        assertEquals("{ \"$replaceRoot\" : { \"newRoot\" : \"$latest\"}}", pipeline.get(2).toString());
+    }
+
+    @Test
+    public void testPageIsSortedAndLimitedInTheDatabase() {
+        doReturn(new AggregationResults<>(new ArrayList<>(), new BasicDBObject()))
+                .when(mongoTemplate).aggregate(any(Aggregation.class), eq(FundamentalData.class), eq(FundamentalData.class));
+
+        repository.findLatestPerSymbol(new PageRequest(2, 20, new Sort(Sort.Direction.DESC, "overallRating")));
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(FundamentalData.class), eq(FundamentalData.class));
+        List<?> pipeline = (List<?>) aggregation.getValue().toDbObject("fundamentalData", Aggregation.DEFAULT_CONTEXT).get("pipeline");
+        assertEquals(6, pipeline.size());
+        assertEquals("{ \"$sort\" : { \"overallRating\" : -1 , \"symbol\" : 1}}", pipeline.get(3).toString());
+        assertEquals("{ \"$skip\" : 40}", pipeline.get(4).toString());
+        assertEquals("{ \"$limit\" : 20}", pipeline.get(5).toString());
+    }
+
+    @Test
+    public void testProjectionOnlyGroupsRequestedFields() {
+        List<DBObject> rows = new ArrayList<>();
+        rows.add(new BasicDBObject("name", "Abcde").append("overallRating", 5).append("symbol", "ABC.DE"));
+        doReturn(new AggregationResults<>(rows, new BasicDBObject()))
+                .when(mongoTemplate).aggregate(any(Aggregation.class), eq(FundamentalData.class), eq(DBObject.class));
+
+        List<Map<String, Object>> result = repository.findLatestPerSymbol(null, Arrays.asList("symbol", "name", "overallRating"));
+
+        assertEquals(1, result.size());
+        assertEquals(Arrays.asList("symbol", "name", "overallRating"), new ArrayList<>(result.get(0).keySet()));
+        assertEquals("ABC.DE", result.get(0).get("symbol"));
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(FundamentalData.class), eq(DBObject.class));
+        List<?> pipeline = (List<?>) aggregation.getValue().toDbObject("fundamentalData", Aggregation.DEFAULT_CONTEXT).get("pipeline");
+        assertEquals(4, pipeline.size());
+        assertEquals("{ \"$group\" : { \"_id\" : \"$symbol\" , \"name\" : { \"$first\" : \"$name\"} , \"overallRating\" : { \"$first\" : \"$overallRating\"}}}", pipeline.get(1).toString());
+        assertEquals("{ \"$project\" : { \"name\" : 1 , \"overallRating\" : 1 , \"_id\" : 0 , \"symbol\" : \"$_id\"}}", pipeline.get(3).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFieldIsRejected() {
+        repository.findLatestPerSymbol(null, Arrays.asList("symbol", "$where"));
+    }
+
+    @Test
+    public void testBulkSaveInsertsNewAndUpsertsExistingDocuments() {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        doReturn(1).when(result).getInsertedCount();
+        doReturn(1).when(result).getMatchedCount();
+        doReturn(Collections.emptyList()).when(result).getUpserts();
+        doReturn(bulkOperations).when(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, FundamentalData.class);
+        doReturn(mongoConverter).when(mongoTemplate).getConverter();
+        doReturn(result).when(bulkOperations).execute();
+        doAnswer(invocation -> {
+            DBObject document = invocation.getArgumentAt(1, DBObject.class);
+            document.put("_id", new ObjectId("58f1c2d3e4a5b6c7d8e9f0a1"));
+            document.put("symbol", "ABC.DE");
+            return null;
+        }).when(mongoConverter).write(any(), any(DBObject.class));
+
+        FundamentalData newStock = new FundamentalData();
+        FundamentalData storedStock = new FundamentalData();
+        storedStock.setId("58f1c2d3e4a5b6c7d8e9f0a1");
+        storedStock.setSymbol("ABC.DE");
+
+        assertEquals(2, repository.bulkSave(Arrays.asList(newStock, storedStock)));
+
+        verify(bulkOperations).insert(newStock);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations).upsert(query.capture(), update.capture());
+        // stored documents have ObjectIds and the bulk query is not mapped
+        assertEquals(new ObjectId("58f1c2d3e4a5b6c7d8e9f0a1"), query.getValue().getQueryObject().get("_id"));
+        DBObject updateObject = update.getValue().getUpdateObject();
+        assertEquals("ABC.DE", ((DBObject) updateObject.get("$set")).get("symbol"));
+        assertFalse(((DBObject) updateObject.get("$set")).containsField("_id"));
+        // fields that became null are removed like a save would do
+        assertTrue(((DBObject) updateObject.get("$unset")).containsField("lastQuarterlyFigures"));
+        assertFalse(((DBObject) updateObject.get("$unset")).containsField("symbol"));
+        verify(bulkOperations, times(1)).execute();
+        verify(mongoTemplate, never()).save(any());
+    }
+
+    @Test
+    public void testBulkSaveOfNothingNeedsNoRequest() {
+        assertEquals(0, repository.bulkSave(Collections.emptyList()));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(FundamentalData.class));
+    }
+
+    @Test
+    public void testBulkSetOnlyWritesChangedFields() {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        doReturn(true).when(result).isModifiedCountAvailable();
+        doReturn(2).when(result).getModifiedCount();
+        doReturn(bulkOperations).when(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, FundamentalData.class);
+        doReturn(mongoConverter).when(mongoTemplate).getConverter();
+        doAnswer(invocation -> invocation.getArgumentAt(0, Object.class)).when(mongoConverter).convertToMongoType(any());
+        doReturn(result).when(bulkOperations).execute();
+
+        Date released = new Date();
+        FundamentalData stock = new FundamentalData();
+        stock.setId("5a1c2b3d4e5f60718293a4b5");
+        stock.setLastQuarterlyFigures(released);
+        FundamentalData unsaved = new FundamentalData();
+        FundamentalData other = new FundamentalData();
+        other.setId("4711");
+
+        assertEquals(2, repository.bulkSet(Arrays.asList(stock, unsaved, other), "lastQuarterlyFigures", "nextQuarterlyFigures"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOperations, times(2)).updateOne(query.capture(), update.capture());
+        verify(bulkOperations, times(1)).execute();
+
+        assertEquals(new ObjectId("5a1c2b3d4e5f60718293a4b5"), query.getAllValues().get(0).getQueryObject().get("_id"));
+        assertEquals("4711", query.getAllValues().get(1).getQueryObject().get("_id"));
+        DBObject changes = update.getAllValues().get(0).getUpdateObject();
+        assertEquals(new BasicDBObject("lastQuarterlyFigures", released), changes.get("$set"));
+        assertEquals(new BasicDBObject("nextQuarterlyFigures", 1), changes.get("$unset"));
+    }
+
+    @Test
+    public void testBulkSetIsSplitIntoBatches() {
+        BulkWriteResult result = mock(BulkWriteResult.class);
+        doReturn(false).when(result).isModifiedCountAvailable();
+        doReturn(500).doReturn(1).when(result).getMatchedCount();
+        doReturn(bulkOperations).when(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, FundamentalData.class);
+        doReturn(mongoConverter).when(mongoTemplate).getConverter();
+        doReturn(result).when(bulkOperations).execute();
+
+        List<FundamentalData> stocks = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            FundamentalData stock = new FundamentalData();
+            stock.setId(String.valueOf(i));
+            stocks.add(stock);
+        }
+
+        assertEquals(501, repository.bulkSet(stocks, "automaticRating"));
+        verify(mongoTemplate, times(2)).bulkOps(BulkOperations.BulkMode.UNORDERED, FundamentalData.class);
+        verify(bulkOperations, times(501)).updateOne(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(2)).execute();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkSetOfUnknownFieldIsRejected() {
+        repository.bulkSet(Collections.singletonList(new FundamentalData()), "foo");
+    }
+
+    @Test
+    public void testRatingCandidatesAreSelectedByTheDatabase() {
+        Date oneWeekAgo = new Date();
+        doReturn(new ArrayList<>()).when(mongoTemplate).find(any(Query.class), eq(FundamentalData.class));
+
+        repository.findRatingCandidates(oneWeekAgo);
+        repository.findRatingCandidates(oneWeekAgo);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(FundamentalData.class));
+        verify(mongoTemplate, never()).findAll(FundamentalData.class);
+        verify(indexOperations, never()).ensureIndex(any(Index.class));
+
+        DBObject queryObject = query.getValue().getQueryObject();
+        assertEquals(true, queryObject.get("automaticRating"));
+        List<?> or = (List<?>) queryObject.get("$or");
+        assertEquals(new BasicDBObject("date", new BasicDBObject("$lt", oneWeekAgo)), or.get(0));
+        assertEquals(new BasicDBObject("date", new BasicDBObject("$gt", oneWeekAgo))
+                .append("lastQuarterlyFigures", new BasicDBObject("$gt", oneWeekAgo)), or.get(1));
+
+        DBObject fields = query.getValue().getFieldsObject();
+        assertEquals(1, fields.get("lastQuarterlyFigures"));
+        assertEquals(null, fields.get("epsHistory"));
+        assertEquals(7, fields.keySet().size());
+    }
+
+    @Test
+    public void testQuarterlyFiguresCandidatesAreSelectedByTheDatabase() {
+        Date today = new Date();
+        Date oneWeekAgo = new Date(today.getTime() - 7 * 86400000L);
+        Date threeMonthAgo = new Date(today.getTime() - 90 * 86400000L);
+        doReturn(new ArrayList<>()).when(mongoTemplate).find(any(Query.class), eq(FundamentalData.class));
+
+        repository.findQuarterlyFiguresCandidates(today, oneWeekAgo, threeMonthAgo);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(FundamentalData.class));
+        List<?> or = (List<?>) query.getValue().getQueryObject().get("$or");
+        assertEquals(new BasicDBObject("nextQuarterlyFigures", new BasicDBObject("$lt", today)), or.get(0));
+        assertEquals(new BasicDBObject("nextQuarterlyFigures", null)
+                .append("date", new BasicDBObject("$lt", oneWeekAgo))
+                .append("lastQuarterlyFigures", new BasicDBObject("$lt", threeMonthAgo)), or.get(1));
+        assertEquals(1, query.getValue().getFieldsObject().get("urls"));
+        assertEquals(null, query.getValue().getFieldsObject().get("epsHistory"));
+    }
+
+    @Test
+    public void testIndexesAreCreatedAtStartup() {
+        ArgumentCaptor<Index> index = ArgumentCaptor.forClass(Index.class);
+
+        repository.createIndexes();
+
+        verify(indexOperations, times(3)).ensureIndex(index.capture());
+        assertEquals(new BasicDBObject("automaticRating", 1).append("date", 1), index.getAllValues().get(0).getIndexKeys());
+        assertEquals(new BasicDBObject("nextQuarterlyFigures", 1).append("date", 1), index.getAllValues().get(1).getIndexKeys());
+        assertEquals(new BasicDBObject("symbol", 1).append("date", -1), index.getAllValues().get(2).getIndexKeys());
+    }
+
+    @Test
+    public void testFailedIndexCreationDoesNotStopTheStartup() {
+        doThrow(new RuntimeException("not authorized")).when(indexOperations).ensureIndex(any(Index.class));
+
+        repository.createIndexes();
+
+        verify(indexOperations, times(3)).ensureIndex(any(Index.class));
+    }
+}
@@ -10,8 +10,12 @@ import org.mockito.Mock;
 
 import java.util.*;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.anyVararg;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -41,16 +45,44 @@ public class QuarterlyFiguresCheckerTest {
         List<FundamentalData> fdList = createDummyData(threeMonthAgo, yesterday);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
+        doReturn(fdList).when(fundamentalDataRepository).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
 
         quarterlyFiguresChecker.checkDates();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(fundamentalDataRepository, times(1)).save(any(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
+        verify(fundamentalDataRepository, never()).findAll();
+        verify(fundamentalDataRepository, never()).save(any(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).bulkSet(fdList, "lastQuarterlyFigures", "nextQuarterlyFigures");
+        assertEquals(yesterday, fdList.get(0).getLastQuarterlyFigures());
+        assertNull(fdList.get(0).getNextQuarterlyFigures());
         verify(emailService, times(1)).send("Neue Quartalszahlen: Abcde (ABC.DE)",
                 "Für Abcde wurden am " + yesterday + " neue Quartalszahlen veröffentlicht! \nhttp://foo\nhttps://bar\n");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedWriteSendsNoMail() {
+        Calendar cal = GregorianCalendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -1);
+        Date yesterday = cal.getTime();
+        cal.add(Calendar.MONTH, -3);
+        Date threeMonthAgo = cal.getTime();
+
+        List<FundamentalData> fdList = createDummyData(threeMonthAgo, yesterday);
+
+        initMocks(this);
+        doReturn(fdList).when(fundamentalDataRepository).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
+        doThrow(new IllegalStateException("connection lost")).when(fundamentalDataRepository).bulkSet(any(Collection.class), anyVararg());
+
+        try {
+            quarterlyFiguresChecker.checkDates();
+            fail("the write failed");
+        } catch (IllegalStateException e) {
+            // the figures are still unsaved, the next run sends the mail
+            verify(emailService, never()).send(anyString(), anyString());
+        }
+    }
+
     @Test
     public void testNoCheckNeeded() {
         Calendar cal = GregorianCalendar.getInstance();
@@ -62,12 +94,14 @@ public class QuarterlyFiguresCheckerTest {
         List<FundamentalData> fdList = createDummyData(threeMonthAgo, yesterday);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
+        doReturn(fdList).when(fundamentalDataRepository).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
 
         quarterlyFiguresChecker.checkDates();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
+        verify(fundamentalDataRepository, times(1)).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
+        verify(fundamentalDataRepository, never()).findAll();
         verify(fundamentalDataRepository, never()).save(any(FundamentalData.class));
+        verifyNoBulkWrite();
         verify(emailService, never()).send(anyString(), anyString());
     }
 
@@ -80,17 +114,25 @@ public class QuarterlyFiguresCheckerTest {
         List<FundamentalData> fdList = createDummyData(fourMonthAgo, null);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
+        doReturn(fdList).when(fundamentalDataRepository).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
 
         quarterlyFiguresChecker.checkDates();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(fundamentalDataRepository, times(1)).save(any(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).findQuarterlyFiguresCandidates(any(Date.class), any(Date.class), any(Date.class));
+        verify(fundamentalDataRepository, never()).findAll();
+        // nothing has changed, so nothing is written
+        verify(fundamentalDataRepository, never()).save(any(FundamentalData.class));
+        verifyNoBulkWrite();
         verify(emailService, times(1)).send("Quartalszahlen Datum prüfen: Abcde (ABC.DE)",
                 "Für Abcde wurden die letzten Quartalszahlen vor mehr als 3 Montaten veröffentlicht (" +
                  fourMonthAgo + ") \nhttp://foo\nhttps://bar\n");
     }
 
+    @SuppressWarnings("unchecked")
+    private void verifyNoBulkWrite() {
+        verify(fundamentalDataRepository, never()).bulkSet(any(Collection.class), anyVararg());
+    }
+
     private List<FundamentalData> createDummyData(Date lastQuarterlyFigures, Date nextQuarterlyFigures) {
         List<FundamentalDataUrl> urls = new ArrayList<>(Arrays.asList(
                 new FundamentalDataUrl("http://foo"),
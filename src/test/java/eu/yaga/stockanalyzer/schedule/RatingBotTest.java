@@ -3,13 +3,18 @@ package eu.yaga.stockanalyzer.schedule;
 import eu.yaga.stockanalyzer.model.FundamentalData;
 import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
 import eu.yaga.stockanalyzer.service.EmailService;
+import eu.yaga.stockanalyzer.service.FundamentalDataRefreshService;
+import eu.yaga.stockanalyzer.util.RatingBotProperties;
+import eu.yaga.stockanalyzer.util.RequestBudget;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.springframework.web.client.RestTemplate;
+import org.mockito.Spy;
 
 import java.util.*;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -28,10 +33,16 @@ public class RatingBotTest {
     FundamentalDataRepository fundamentalDataRepository;
 
     @Mock
-    RestTemplate restTemplate;
+    FundamentalDataRefreshService fundamentalDataRefreshService;
+
+    @Spy
+    RatingBotProperties ratingBotProperties = new RatingBotProperties();
+
+    @Spy
+    RequestBudget requestBudget = new RequestBudget(ratingBotProperties.getRateLimits());
 
     @Test
-    public void testRatingNeededOneWeek() {
+    public void testRatingNeededOneWeek() throws Exception {
         Calendar cal = GregorianCalendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -8);
         Date old = cal.getTime();
@@ -41,19 +52,20 @@ public class RatingBotTest {
         FundamentalData fdAfter = fdListAfter.get(0);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
-        doReturn(fdAfter).when(restTemplate).getForObject("http://localhost:8081/api/fundamental-data/" + fdAfter.getSymbol() + "/refresh", FundamentalData.class);
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
+        doReturn(fdAfter).when(fundamentalDataRefreshService).refreshFundamentalData(fdAfter.getSymbol());
 
         ratingBot.rateStocks();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(restTemplate, times(1)).getForObject("http://localhost:8081/api/fundamental-data/" + fdAfter.getSymbol() + "/refresh", FundamentalData.class);
+        verify(fundamentalDataRepository, times(1)).findRatingCandidates(any(Date.class));
+        verify(fundamentalDataRepository, never()).findAll();
+        verify(fundamentalDataRefreshService, times(1)).refreshFundamentalData(fdAfter.getSymbol());
         verify(emailService, times(1)).send("Neues Rating: Abcde (ABC.DE)",
                 "Für Abcde gibt es ein neues Rating: 2 (3)");
     }
 
     @Test
-    public void testRatingNeededNoMail() {
+    public void testRatingNeededNoMail() throws Exception {
         Calendar cal = GregorianCalendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -8);
         Date old = cal.getTime();
@@ -62,18 +74,18 @@ public class RatingBotTest {
         FundamentalData fdAfter = fdList.get(0);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
-        doReturn(fdAfter).when(restTemplate).getForObject("http://localhost:8081/api/fundamental-data/" + fdAfter.getSymbol() + "/refresh", FundamentalData.class);
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
+        doReturn(fdAfter).when(fundamentalDataRefreshService).refreshFundamentalData(fdAfter.getSymbol());
 
         ratingBot.rateStocks();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(restTemplate, times(1)).getForObject("http://localhost:8081/api/fundamental-data/" + fdAfter.getSymbol() + "/refresh", FundamentalData.class);
+        verify(fundamentalDataRepository, times(1)).findRatingCandidates(any(Date.class));
+        verify(fundamentalDataRefreshService, times(1)).refreshFundamentalData(fdAfter.getSymbol());
         verify(emailService, times(0)).send(anyString(), anyString());
     }
 
     @Test
-    public void testRatingNeededQuarterlyReleased() {
+    public void testRatingNeededQuarterlyReleased() throws Exception {
         Calendar cal = GregorianCalendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -2);
         Date lastQuarterly = cal.getTime();
@@ -85,19 +97,19 @@ public class RatingBotTest {
         FundamentalData fdAfter = fdListAfter.get(0);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
-        doReturn(fdAfter).when(restTemplate).getForObject("http://localhost:8081/api/fundamental-data/" + fdAfter.getSymbol() + "/refresh", FundamentalData.class);
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
+        doReturn(fdAfter).when(fundamentalDataRefreshService).refreshFundamentalData(fdAfter.getSymbol());
 
         ratingBot.rateStocks();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(restTemplate, times(1)).getForObject("http://localhost:8081/api/fundamental-data/" + fdAfter.getSymbol() + "/refresh", FundamentalData.class);
+        verify(fundamentalDataRepository, times(1)).findRatingCandidates(any(Date.class));
+        verify(fundamentalDataRefreshService, times(1)).refreshFundamentalData(fdAfter.getSymbol());
         verify(emailService, times(1)).send("Neues Rating: Abcde (ABC.DE)",
                 "Für Abcde gibt es ein neues Rating: 4 (3)");
     }
 
     @Test
-    public void testNoRatingNeeded() {
+    public void testNoRatingNeeded() throws Exception {
         Calendar cal = GregorianCalendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -4);
         Date oldRating = cal.getTime();
@@ -107,17 +119,17 @@ public class RatingBotTest {
         List<FundamentalData> fdList = createDummyData(oldResults, oldRating, 0);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
 
         ratingBot.rateStocks();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(restTemplate, times(0)).getForObject(anyString(), eq(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).findRatingCandidates(any(Date.class));
+        verify(fundamentalDataRefreshService, times(0)).refreshFundamentalData(anyString());
         verify(emailService, times(0)).send(anyString(), anyString());
     }
 
     @Test
-    public void testRatingDisabled() {
+    public void testRatingDisabled() throws Exception {
         Calendar cal = GregorianCalendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -8);
         Date old = cal.getTime();
@@ -126,17 +138,17 @@ public class RatingBotTest {
         fdList.get(0).setAutomaticRating(false);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
 
         ratingBot.rateStocks();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(restTemplate, times(0)).getForObject(anyString(), eq(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).findRatingCandidates(any(Date.class));
+        verify(fundamentalDataRefreshService, times(0)).refreshFundamentalData(anyString());
         verify(emailService, times(0)).send(anyString(), anyString());
     }
 
     @Test
-    public void testExceptionDisableRating() {
+    public void testExceptionDisableRating() throws Exception {
         Calendar cal = GregorianCalendar.getInstance();
         cal.add(Calendar.DAY_OF_MONTH, -8);
         Date old = cal.getTime();
@@ -144,15 +156,52 @@ public class RatingBotTest {
         List<FundamentalData> fdList = createDummyData(old, old, 1);
 
         initMocks(this);
-        doReturn(fdList).when(fundamentalDataRepository).findAll();
-        doThrow(new NullPointerException()).when(restTemplate).getForObject("http://localhost:8081/api/fundamental-data/" + fdList.get(0).getSymbol() + "/refresh", FundamentalData.class);
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
+        doThrow(new NullPointerException()).when(fundamentalDataRefreshService).refreshFundamentalData(fdList.get(0).getSymbol());
 
         ratingBot.rateStocks();
 
-        verify(fundamentalDataRepository, times(1)).findAll();
-        verify(fundamentalDataRepository, times(1)).save(any(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).findRatingCandidates(any(Date.class));
+        verify(fundamentalDataRepository, never()).save(any(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).bulkSet(fdList, "automaticRating");
+        assertFalse(fdList.get(0).isAutomaticRating());
         verify(emailService, times(1)).send("Automatische Ratings deaktiviert: Abcde (ABC.DE)",
                 "Für Abcde wurden aufgrund eines Fehlers die automatischen Ratings deaktiviert");
+        assertEquals(1, ratingBot.getRatingCount());
+        assertEquals(1, ratingBot.getErrorCount());
+    }
+
+    @Test
+    public void testProviderBudgetLimitsRatings() throws Exception {
+        Calendar cal = GregorianCalendar.getInstance();
+        cal.add(Calendar.DAY_OF_MONTH, -8);
+        Date old = cal.getTime();
+
+        List<FundamentalData> fdList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            FundamentalData fd = createDummyData(old, old, 0).get(0);
+            fd.setSymbol("ABC" + i + ".DE");
+            fdList.add(fd);
+        }
+
+        ratingBotProperties.getRateLimits().put("onvista", new RatingBotProperties.RateLimit(2, 0));
+        ratingBotProperties.getRateLimits().put("eodhd", new RatingBotProperties.RateLimit(1, 0));
+        ratingBotProperties.setWorkers(1);
+        requestBudget = new RequestBudget(ratingBotProperties.getRateLimits());
+        initMocks(this);
+        doReturn(fdList).when(fundamentalDataRepository).findRatingCandidates(any(Date.class));
+        // every rating requests onvista, the quotes are already stored and eodhd is not asked
+        doAnswer(invocation -> {
+            requestBudget.charge(RequestBudget.ONVISTA);
+            return fdList.get(0);
+        }).when(fundamentalDataRefreshService).refreshFundamentalData(anyString());
+
+        ratingBot.rateStocks();
+        ratingBot.rateStocks();
+
+        verify(fundamentalDataRefreshService, times(2)).refreshFundamentalData(anyString());
+        verify(fundamentalDataRefreshService, times(1)).refreshFundamentalData("ABC0.DE");
+        verify(fundamentalDataRefreshService, times(1)).refreshFundamentalData("ABC1.DE");
     }
 
     private List<FundamentalData> createDummyData(Date lastQuarterlyFigures, Date lastRating, int rating) {
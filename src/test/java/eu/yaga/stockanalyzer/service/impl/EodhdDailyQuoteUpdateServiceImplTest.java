@@ -0,0 +1,130 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
+import eu.yaga.stockanalyzer.repository.ResolvedProviderCodeRepository;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import org.threeten.bp.LocalDate;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link EodhdDailyQuoteUpdateServiceImpl}
+ */
+public class EodhdDailyQuoteUpdateServiceImplTest {
+
+    private static final LocalDate DAY = LocalDate.of(2017, 3, 10);
+
+    @InjectMocks
+    private EodhdDailyQuoteUpdateServiceImpl service;
+
+    @Mock
+    private FundamentalDataRepository fundamentalDataRepository;
+
+    @Mock
+    private QuoteStoreService quoteStoreService;
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Mock
+    private ResolvedProviderCodeRepository resolvedProviderCodeRepository;
+
+    @InjectMocks
+    private MongoResolvedCodeServiceImpl resolvedCodeService;
+
+    private EodhdProperties eodhdProperties = new EodhdProperties();
+
+    @Before
+    public void init() {
+        initMocks(this);
+        eodhdProperties.setAuth(new EodhdProperties.Auth());
+        ReflectionTestUtils.setField(service, "eodhdProperties", eodhdProperties);
+        ReflectionTestUtils.setField(service, "eodhdQuoteFetcher", new EodhdQuoteFetcher(restTemplate, eodhdProperties, resolvedCodeService));
+
+        List<Map<String, Object>> stocks = new ArrayList<>();
+        for (String symbol : Arrays.asList("ABC.DE", "ABC.F", "XYZ.US")) {
+            stocks.add(Collections.singletonMap("symbol", symbol));
+        }
+        doReturn(stocks).when(fundamentalDataRepository).findLatestPerSymbol(null, Collections.singletonList("symbol"));
+        doReturn(true).when(quoteStoreService).appendClose(anyString(), any(LocalDate.class), anyDouble());
+
+        respond("XETRA", "[" + quote("ABC", 10) + "," + quote("OTHER", 5) + "]");
+        respond("US", "[" + quote("XYZ", 20) + "]");
+        respond("INDX", "[" + quote("GDAXI", 12000) + "," + quote("GSPC", 2300) + "]");
+    }
+
+    @Test
+    public void testOneRequestPerExchange() {
+        Map<String, Integer> appended = service.updateLastTradingDay();
+
+        Map<String, Integer> expected = new TreeMap<>();
+        expected.put("INDX", 2);
+        expected.put("US", 1);
+        expected.put("XETRA", 2);
+        assertEquals(expected, appended);
+
+        verify(quoteStoreService).appendClose("ABC.DE", DAY, 10);
+        verify(quoteStoreService).appendClose("ABC.F", DAY, 10);
+        verify(quoteStoreService).appendClose("XYZ.US", DAY, 20);
+        verify(quoteStoreService).appendClose("^GDAXI", DAY, 12000);
+        verify(quoteStoreService, times(5)).appendClose(anyString(), any(LocalDate.class), anyDouble());
+        verify(restTemplate, times(3)).execute(any(URI.class), eq(HttpMethod.GET), any(), any());
+        verify(restTemplate, never()).execute(uri("/AS?"), eq(HttpMethod.GET), any(), any());
+    }
+
+    @Test
+    public void testOnlyConfiguredExchangesAreRequested() {
+        eodhdProperties.setBulkExchanges(Collections.singletonList("XETRA"));
+
+        assertEquals(Collections.singletonMap("XETRA", 2), service.updateLastTradingDay());
+        verify(restTemplate, times(1)).execute(any(URI.class), eq(HttpMethod.GET), any(), any());
+    }
+
+    @Test
+    public void testFailingExchangeIsSkipped() {
+        doThrow(new ResourceAccessException("timeout")).when(restTemplate).execute(uri("/US?"), eq(HttpMethod.GET), any(), any());
+
+        Map<String, Integer> appended = service.updateLastTradingDay();
+
+        assertEquals(new HashSet<>(Arrays.asList("INDX", "XETRA")), appended.keySet());
+        verify(quoteStoreService, never()).appendClose(eq("XYZ.US"), any(LocalDate.class), anyDouble());
+    }
+
+    private void respond(String exchange, String body) {
+        doAnswer(invocation -> {
+            ResponseExtractor<?> extractor = invocation.getArgumentAt(3, ResponseExtractor.class);
+            return extractor.extractData(new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+        }).when(restTemplate).execute(uri("/" + exchange + "?"), eq(HttpMethod.GET), any(), any());
+    }
+
+    private static String quote(String code, double close) {
+        return "{\"code\":\"" + code + "\",\"date\":\"" + DAY + "\",\"close\":" + close + "}";
+    }
+
+    private static URI uri(String part) {
+        return argThat(uri -> uri.toString().contains(part));
+    }
+}
@@ -0,0 +1,167 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.StockIndex;
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import eu.yaga.stockanalyzer.util.IndexHistoryCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.threeten.bp.DateTimeUtils;
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZoneId;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link EodhdHistoricalExchangeRateServiceImpl}
+ */
+public class EodhdHistoricalExchangeRateServiceImplTest {
+
+    private static final String SYMBOL = "ABC.DE";
+    private static final String INDEX = StockIndex.DAX.getSymbol();
+
+    @InjectMocks
+    private EodhdHistoricalExchangeRateServiceImpl service;
+
+    @Mock
+    private QuoteStoreService quoteStoreService;
+
+    @Mock
+    private EodhdProperties eodhdProperties;
+
+    @Spy
+    private IndexHistoryCache indexHistoryCache = new IndexHistoryCache(8);
+
+    private FundamentalData fd;
+
+    @Before
+    public void init() {
+        initMocks(this);
+        doReturn(13).when(eodhdProperties).getRatingWindowMonths();
+        doAnswer(invocation -> QuoteSeries.of(invocation.getArgumentAt(0, String.class), createWeekdayQuotes(
+                invocation.getArgumentAt(0, String.class),
+                invocation.getArgumentAt(1, LocalDate.class),
+                invocation.getArgumentAt(2, LocalDate.class))))
+                .when(quoteStoreService).getQuoteSeries(anyString(), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+
+        fd = new FundamentalData();
+        fd.setSymbol(SYMBOL);
+        fd.setStockIndex(StockIndex.DAX);
+    }
+
+    @Test
+    public void testRateProgressUsesRatingWindow() {
+        LocalDate today = LocalDate.now();
+        double expected = expectedProgress(SYMBOL, today, today.minusYears(1));
+
+        double progress = service.getRateProgress1year(fd);
+
+        assertEquals(expected, progress, 0.0001);
+        verify(quoteStoreService, times(1)).getQuoteSeries(eq(SYMBOL), eq(today.minusMonths(13)), eq(today), any(QuoteStoreService.QuoteFetcher.class));
+    }
+
+    @Test
+    public void testReversalLoadsOneWindowPerSymbol() {
+        List<Double> reversal = service.getReversal3Month(fd);
+
+        assertEquals(3, reversal.size());
+        verify(quoteStoreService, times(2)).getQuoteSeries(anyString(), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+        verify(quoteStoreService, times(1)).getQuoteSeries(eq(SYMBOL), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+        verify(quoteStoreService, times(1)).getQuoteSeries(eq(StockIndex.DAX.getSymbol()), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+    }
+
+    @Test
+    public void testReversalSubtractsIndexProgress() {
+        List<Double> reversal = service.getReversal3Month(fd);
+
+        for (int month = 1; month <= 3; month++) {
+            LocalDate base = endOfMonth(LocalDate.now().minusMonths(month));
+            LocalDate compare = endOfMonth(LocalDate.now().minusMonths(month + 1));
+            double indexProgress = expectedProgress(INDEX, base, compare);
+
+            // the index progress used to be 0, so the reversal was the progress of the stock alone
+            assertNotEquals(0, indexProgress, 0.0001);
+            assertEquals(expectedProgress(SYMBOL, base, compare) - indexProgress, reversal.get(month - 1), 0.0001);
+        }
+    }
+
+    @Test
+    public void testReactionComparesFiguresDayWithPriorTradingDay() {
+        LocalDate figuresDay = LocalDate.now().minusMonths(2);
+        while (figuresDay.getDayOfWeek() != DayOfWeek.MONDAY) {
+            figuresDay = figuresDay.minusDays(1);
+        }
+        LocalDate priorDay = figuresDay.minusDays(3);
+        fd.setLastQuarterlyFigures(DateTimeUtils.toDate(figuresDay.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+
+        double reaction = service.getReactionToQuarterlyFigures(fd);
+
+        // the prior day used to be read as the figures day and the other way round
+        double progressSymbol = (1 - close(SYMBOL, priorDay) / close(SYMBOL, figuresDay)) * 100;
+        double progressIndex = (1 - close(INDEX, priorDay) / close(INDEX, figuresDay)) * 100;
+        assertEquals(progressSymbol - progressIndex, reaction, 0.0001);
+    }
+
+    @Test
+    public void testIndexHistoryIsSharedBetweenRatings() {
+        FundamentalData other = new FundamentalData();
+        other.setSymbol("XYZ.DE");
+        other.setStockIndex(StockIndex.DAX);
+
+        service.getReversal3Month(fd);
+        service.getReversal3Month(other);
+
+        verify(quoteStoreService, times(1)).getQuoteSeries(eq(StockIndex.DAX.getSymbol()), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+        verify(quoteStoreService, times(1)).getQuoteSeries(eq(SYMBOL), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+        verify(quoteStoreService, times(1)).getQuoteSeries(eq("XYZ.DE"), any(LocalDate.class), any(LocalDate.class), any(QuoteStoreService.QuoteFetcher.class));
+    }
+
+    private double expectedProgress(String symbol, LocalDate baseDate, LocalDate compareDate) {
+        double base = close(symbol, lastWeekday(baseDate));
+        double compare = close(symbol, lastWeekday(compareDate));
+        return (base - compare) / compare * 100;
+    }
+
+    private LocalDate endOfMonth(LocalDate date) {
+        return date.withDayOfMonth(date.lengthOfMonth());
+    }
+
+    private LocalDate lastWeekday(LocalDate date) {
+        while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            date = date.minusDays(1);
+        }
+        return date;
+    }
+
+    private double close(String symbol, LocalDate date) {
+        if (symbol.equals(INDEX)) {
+            return 1000 + 2 * date.getDayOfYear();
+        }
+        return symbol.length() * 10 + date.getDayOfYear();
+    }
+
+    private List<HistoricalDataQuote> createWeekdayQuotes(String symbol, LocalDate from, LocalDate to) {
+        List<HistoricalDataQuote> quotes = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                quotes.add(new HistoricalDataQuote(symbol, date.toString(), close(symbol, date)));
+            }
+        }
+        return quotes;
+    }
+}
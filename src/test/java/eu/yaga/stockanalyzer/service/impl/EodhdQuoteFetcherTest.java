@@ -0,0 +1,174 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.ResolvedProviderCode;
+import eu.yaga.stockanalyzer.repository.ResolvedProviderCodeRepository;
+import eu.yaga.stockanalyzer.util.EodhdProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import org.threeten.bp.LocalDate;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link EodhdQuoteFetcher}
+ */
+public class EodhdQuoteFetcherTest {
+
+    private static final String SYMBOL = "ABC.DE";
+
+    private static final String QUOTES = "[{\"date\":\"2017-03-10\",\"open\":9.5,\"high\":10.5,\"low\":9.25,"
+            + "\"close\":10,\"adjusted_close\":9.8,\"volume\":1200}]";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Mock
+    private ResolvedProviderCodeRepository resolvedProviderCodeRepository;
+
+    @InjectMocks
+    private MongoResolvedCodeServiceImpl resolvedCodeService;
+
+    private EodhdProperties eodhdProperties;
+
+    private EodhdQuoteFetcher fetcher;
+
+    private LocalDate to = LocalDate.of(2017, 3, 10);
+    private LocalDate from = to.minusDays(7);
+
+    @Before
+    public void init() {
+        initMocks(this);
+        eodhdProperties = new EodhdProperties();
+        eodhdProperties.setAuth(new EodhdProperties.Auth());
+        fetcher = new EodhdQuoteFetcher(restTemplate, eodhdProperties, resolvedCodeService);
+    }
+
+    @Test
+    public void testWorkingCodeIsRemembered() {
+        respond("ABC.XETRA", "[]");
+        respond("ABC.F", QUOTES);
+
+        List<HistoricalDataQuote> quotes = fetcher.fetch(SYMBOL, from, to);
+        assertEquals(10, quotes.get(0).getClose(), 0);
+        fetcher.fetch(SYMBOL, from, to);
+
+        verify(restTemplate, times(1)).execute(uri("ABC.XETRA"), eq(HttpMethod.GET), any(), any());
+        verify(restTemplate, times(2)).execute(uri("ABC.F"), eq(HttpMethod.GET), any(), any());
+        verify(resolvedProviderCodeRepository, times(1)).save(any(ResolvedProviderCode.class));
+    }
+
+    @Test
+    public void testStoredCodeIsTriedFirst() {
+        doReturn(new ResolvedProviderCode(EodhdQuoteFetcher.PROVIDER, SYMBOL, "ABC.F")).when(resolvedProviderCodeRepository).findOne("eodhd:ABC.DE");
+        respond("ABC.", QUOTES);
+
+        fetcher.fetch(SYMBOL, from, to);
+
+        verify(restTemplate, never()).execute(uri("ABC.XETRA"), eq(HttpMethod.GET), any(), any());
+        verify(resolvedProviderCodeRepository, never()).save(any(ResolvedProviderCode.class));
+    }
+
+    @Test
+    public void testFailingStoredCodeIsInvalidated() {
+        doReturn(new ResolvedProviderCode(EodhdQuoteFetcher.PROVIDER, SYMBOL, "ABC.F")).when(resolvedProviderCodeRepository).findOne("eodhd:ABC.DE");
+        doThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND)).when(restTemplate).execute(uri("ABC.F"), eq(HttpMethod.GET), any(), any());
+        respond("ABC.XETRA", QUOTES);
+
+        assertEquals(1, fetcher.fetch(SYMBOL, from, to).size());
+
+        verify(resolvedProviderCodeRepository, times(1)).delete("eodhd:ABC.DE");
+        assertEquals("ABC.XETRA", resolvedCodeService.getCode(EodhdQuoteFetcher.PROVIDER, SYMBOL));
+    }
+
+    @Test
+    public void testUnreachableStoredCodeIsKept() {
+        doReturn(new ResolvedProviderCode(EodhdQuoteFetcher.PROVIDER, SYMBOL, "ABC.F")).when(resolvedProviderCodeRepository).findOne("eodhd:ABC.DE");
+        doThrow(new ResourceAccessException("timeout")).when(restTemplate).execute(uri("ABC.F"), eq(HttpMethod.GET), any(), any());
+        doThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)).when(restTemplate).execute(uri("ABC.XETRA"), eq(HttpMethod.GET), any(), any());
+
+        try {
+            fetcher.fetch(SYMBOL, from, to);
+            fail("the request should fail");
+        } catch (RuntimeException e) {
+            assertEquals(HttpServerErrorException.class, e.getCause().getClass());
+        }
+
+        verify(resolvedProviderCodeRepository, never()).delete(anyString());
+        assertEquals("ABC.F", resolvedCodeService.getCode(EodhdQuoteFetcher.PROVIDER, SYMBOL));
+    }
+
+    @Test
+    public void testEmptyAnswerOfStoredCodeIsFinal() {
+        doReturn(new ResolvedProviderCode(EodhdQuoteFetcher.PROVIDER, SYMBOL, "ABC.F")).when(resolvedProviderCodeRepository).findOne("eodhd:ABC.DE");
+        respond("ABC.F", "[]");
+        respond("ABC.XETRA", QUOTES);
+
+        assertEquals(0, fetcher.fetch(SYMBOL, from, to).size());
+
+        verify(restTemplate, never()).execute(uri("ABC.XETRA"), eq(HttpMethod.GET), any(), any());
+        assertEquals("ABC.F", resolvedCodeService.getCode(EodhdQuoteFetcher.PROVIDER, SYMBOL));
+    }
+
+    @Test
+    public void testFailingCodeFallsBackToTheNextOne() {
+        doThrow(new ResourceAccessException("timeout")).when(restTemplate).execute(uri("ABC.XETRA"), eq(HttpMethod.GET), any(), any());
+        respond("ABC.F", "[]");
+
+        assertEquals(0, fetcher.fetch(SYMBOL, from, to).size());
+    }
+
+    @Test
+    public void testErrorIsRaisedIfNoCodeAnswered() {
+        doThrow(new ResourceAccessException("timeout")).when(restTemplate).execute(uri("ABC."), eq(HttpMethod.GET), any(), any());
+
+        try {
+            fetcher.fetch(SYMBOL, from, to);
+            fail("the request should fail");
+        } catch (RuntimeException e) {
+            assertEquals(ResourceAccessException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void testAdjustedCloses() {
+        respond("ABC.XETRA", QUOTES);
+
+        assertEquals(10, fetcher.fetch(SYMBOL, from, to).get(0).getClose(), 0);
+        eodhdProperties.setAdjustedCloses(true);
+        assertEquals(9.8, fetcher.fetch(SYMBOL, from, to).get(0).getClose(), 0);
+    }
+
+    private void respond(String code, String body) {
+        doAnswer(invocation -> {
+            ResponseExtractor<?> extractor = invocation.getArgumentAt(3, ResponseExtractor.class);
+            return extractor.extractData(new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+        }).when(restTemplate).execute(uri(code), eq(HttpMethod.GET), any(), any());
+    }
+
+    private static URI uri(String part) {
+        return argThat(uri -> uri.toString().contains(part));
+    }
+}
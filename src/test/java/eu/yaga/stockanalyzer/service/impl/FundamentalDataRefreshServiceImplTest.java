@@ -0,0 +1,252 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.EarningsPerShare;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.StoredEpsHistory;
+import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
+import eu.yaga.stockanalyzer.repository.StoredEpsHistoryRepository;
+import eu.yaga.stockanalyzer.service.*;
+import eu.yaga.stockanalyzer.util.RefreshProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link FundamentalDataRefreshServiceImpl}
+ */
+public class FundamentalDataRefreshServiceImplTest {
+
+    @InjectMocks
+    FundamentalDataRefreshServiceImpl refreshService;
+
+    @Mock
+    FundamentalDataService fundamentalDataService;
+
+    @Mock
+    EarningsRevisionService earningsRevisionService;
+
+    @Mock
+    AnalystEstimationService analystEstimationService;
+
+    @Mock
+    HistoricalExchangeRateService historicalExchangeRateService;
+
+    @Mock
+    StockRatingBusinessService stockRatingBusinessService;
+
+    @Mock
+    FundamentalDataRepository fundamentalDataRepository;
+
+    @Mock
+    StoredEpsHistoryRepository storedEpsHistoryRepository;
+
+    @Spy
+    RefreshProperties refreshProperties = new RefreshProperties();
+
+    private FundamentalData stored;
+
+    @Before
+    public void init() {
+        initMocks(this);
+
+        stored = new FundamentalData();
+        stored.setSymbol("ABC.DE");
+        stored.setRoe(10);
+        stored.setEarningsRevision(5);
+        stored.setAnalystEstimation(2.5);
+        stored.setAnalystEstimationCount(7);
+
+        doReturn(stored).when(fundamentalDataRepository).findBySymbolOrderByDateDesc("ABC.DE");
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(stockRatingBusinessService).rate(any(FundamentalData.class));
+    }
+
+    @After
+    public void shutdown() {
+        refreshService.shutdown();
+    }
+
+    @Test
+    public void testSourcesAreQueriedConcurrently() throws Exception {
+        CountDownLatch started = new CountDownLatch(4);
+
+        doAnswer(invocation -> {
+            FundamentalData fd = awaitOthers(started, invocation.getArgumentAt(1, FundamentalData.class));
+            fd.setRoe(20);
+            return fd;
+        }).when(fundamentalDataService).getFundamentalData(eq("ABC.DE"), any(FundamentalData.class));
+        doAnswer(invocation -> {
+            FundamentalData fd = awaitOthers(started, invocation.getArgumentAt(0, FundamentalData.class));
+            fd.setEarningsRevision(-5);
+            return fd;
+        }).when(earningsRevisionService).retrieveEarningsRevision(any(FundamentalData.class));
+        doAnswer(invocation -> {
+            FundamentalData fd = awaitOthers(started, invocation.getArgumentAt(0, FundamentalData.class));
+            fd.setAnalystEstimation(1.5);
+            fd.setAnalystEstimationCount(9);
+            return fd;
+        }).when(analystEstimationService).retrieveAnalystEstimation(any(FundamentalData.class));
+        doAnswer(invocation -> awaitOthers(started, null)).when(historicalExchangeRateService).prefetchRatingData(stored);
+
+        FundamentalData fd = refreshService.refreshFundamentalData("ABC.DE");
+
+        assertEquals(0, started.getCount());
+        assertEquals(20, fd.getRoe(), 0);
+        assertEquals(-5, fd.getEarningsRevision(), 0);
+        assertEquals(1.5, fd.getAnalystEstimation(), 0);
+        assertEquals(9, fd.getAnalystEstimationCount());
+        verify(stockRatingBusinessService, times(1)).rate(stored);
+        verify(fundamentalDataRepository, times(1)).save(stored);
+    }
+
+    @Test
+    public void testSlowSourceKeepsLastKnownValues() throws Exception {
+        refreshProperties.getTimeoutSeconds().put("analystEstimation", 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        doAnswer(invocation -> invocation.getArgumentAt(1, FundamentalData.class))
+                .when(fundamentalDataService).getFundamentalData(anyString(), any(FundamentalData.class));
+        doAnswer(invocation -> {
+            FundamentalData fd = invocation.getArgumentAt(0, FundamentalData.class);
+            fd.setEarningsRevision(-5);
+            return fd;
+        }).when(earningsRevisionService).retrieveEarningsRevision(any(FundamentalData.class));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            FundamentalData fd = invocation.getArgumentAt(0, FundamentalData.class);
+            fd.setAnalystEstimation(1.5);
+            return fd;
+        }).when(analystEstimationService).retrieveAnalystEstimation(any(FundamentalData.class));
+
+        long start = System.currentTimeMillis();
+        FundamentalData fd = refreshService.refreshFundamentalData("ABC.DE");
+        long duration = System.currentTimeMillis() - start;
+
+        assertTrue("refresh took " + duration + " ms", duration < 5000);
+        assertEquals(-5, fd.getEarningsRevision(), 0);
+        assertEquals(2.5, fd.getAnalystEstimation(), 0);
+        assertEquals(7, fd.getAnalystEstimationCount());
+        verify(fundamentalDataRepository, times(1)).save(stored);
+        // the slow source has been cancelled and doesn't hold its thread
+        assertTrue("slow source has not been interrupted", interrupted.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testSourcesRejectedByFullPoolKeepLastKnownValues() throws Exception {
+        refreshProperties.setThreads(1);
+        refreshProperties.setQueueCapacity(1);
+        refreshProperties.getTimeoutSeconds().put("onvista", 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // onvista holds the only thread and earnings revision waits in the queue, the other sources don't fit
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return invocation.getArgumentAt(1, FundamentalData.class);
+        }).when(fundamentalDataService).getFundamentalData(anyString(), any(FundamentalData.class));
+        doAnswer(invocation -> {
+            FundamentalData fd = invocation.getArgumentAt(0, FundamentalData.class);
+            fd.setEarningsRevision(-5);
+            return fd;
+        }).when(earningsRevisionService).retrieveEarningsRevision(any(FundamentalData.class));
+
+        long start = System.currentTimeMillis();
+        FundamentalData fd = refreshService.refreshFundamentalData("ABC.DE");
+        long duration = System.currentTimeMillis() - start;
+        release.countDown();
+
+        assertTrue("refresh took " + duration + " ms", duration < 5000);
+        assertEquals(-5, fd.getEarningsRevision(), 0);
+        assertEquals(2.5, fd.getAnalystEstimation(), 0);
+        assertEquals(7, fd.getAnalystEstimationCount());
+        verify(analystEstimationService, never()).retrieveAnalystEstimation(any(FundamentalData.class));
+        verify(historicalExchangeRateService, never()).prefetchRatingData(any(FundamentalData.class));
+        verify(fundamentalDataRepository, times(1)).save(stored);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSourceErrorFailsRefresh() throws Exception {
+        doThrow(new IllegalArgumentException("no page")).when(fundamentalDataService).getFundamentalData(anyString(), any(FundamentalData.class));
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(earningsRevisionService).retrieveEarningsRevision(any(FundamentalData.class));
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(analystEstimationService).retrieveAnalystEstimation(any(FundamentalData.class));
+
+        try {
+            refreshService.refreshFundamentalData("ABC.DE");
+        } finally {
+            verify(fundamentalDataRepository, never()).save(any(FundamentalData.class));
+        }
+    }
+
+    @Test
+    public void testEpsHistoryIsCompactedAndArchived() throws Exception {
+        refreshProperties.setEpsHistoryEntries(2);
+        stored.getEpsHistory().put("2017-01-02", new EarningsPerShare(1, 2));
+        stored.getEpsHistory().put("2017-01-09", new EarningsPerShare(1, 2));
+        stored.getEpsHistory().put("2017-01-16", new EarningsPerShare(1.5, 2));
+        stored.getEpsHistory().put("2017-01-23", new EarningsPerShare(1.5, 2));
+        stored.getEpsHistory().put("2017-01-30", new EarningsPerShare(1.5, 2.5));
+        StoredEpsHistory archive = new StoredEpsHistory("ABC.DE");
+        archive.getChanges().put("2016-12-01", new EarningsPerShare(0.5, 2));
+        doReturn(archive).when(storedEpsHistoryRepository).findOne("ABC.DE");
+
+        doAnswer(invocation -> {
+            FundamentalData fd = invocation.getArgumentAt(1, FundamentalData.class);
+            fd.getEpsHistory().put("2017-02-06", new EarningsPerShare(1.5, 2.5));
+            return fd;
+        }).when(fundamentalDataService).getFundamentalData(anyString(), any(FundamentalData.class));
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(earningsRevisionService).retrieveEarningsRevision(any(FundamentalData.class));
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(analystEstimationService).retrieveAnalystEstimation(any(FundamentalData.class));
+
+        FundamentalData fd = refreshService.refreshFundamentalData("ABC.DE");
+
+        assertEquals(Arrays.asList("2017-01-16", "2017-01-30"), new ArrayList<>(fd.getEpsHistory().keySet()));
+        ArgumentCaptor<StoredEpsHistory> archived = ArgumentCaptor.forClass(StoredEpsHistory.class);
+        verify(storedEpsHistoryRepository, times(1)).save(archived.capture());
+        assertEquals(Arrays.asList("2016-12-01", "2017-01-02"), new ArrayList<>(archived.getValue().getChanges().keySet()));
+    }
+
+    @Test
+    public void testShortEpsHistoryIsNotArchived() throws Exception {
+        stored.getEpsHistory().put("2017-01-02", new EarningsPerShare(1, 2));
+        doAnswer(invocation -> invocation.getArgumentAt(1, FundamentalData.class)).when(fundamentalDataService).getFundamentalData(anyString(), any(FundamentalData.class));
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(earningsRevisionService).retrieveEarningsRevision(any(FundamentalData.class));
+        doAnswer(invocation -> invocation.getArgumentAt(0, FundamentalData.class)).when(analystEstimationService).retrieveAnalystEstimation(any(FundamentalData.class));
+
+        FundamentalData fd = refreshService.refreshFundamentalData("ABC.DE");
+
+        assertEquals(1, fd.getEpsHistory().size());
+        verify(storedEpsHistoryRepository, never()).findOne(anyString());
+        verify(storedEpsHistoryRepository, never()).save(any(StoredEpsHistory.class));
+    }
+
+    /**
+     * waits until all sources have been started, this only succeeds if they run at the same time
+     */
+    private static FundamentalData awaitOthers(CountDownLatch started, FundamentalData fd) throws InterruptedException {
+        started.countDown();
+        assertTrue("sources are not queried concurrently", started.await(10, TimeUnit.SECONDS));
+        return fd;
+    }
+}
@@ -0,0 +1,265 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.StoredQuoteSeries;
+import eu.yaga.stockanalyzer.repository.StoredQuoteSeriesRepository;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link MongoQuoteStoreServiceImpl}
+ */
+public class MongoQuoteStoreServiceImplTest {
+
+    private static final String SYMBOL = "ABC.DE";
+
+    @InjectMocks
+    private MongoQuoteStoreServiceImpl service;
+
+    @Mock
+    private StoredQuoteSeriesRepository storedQuoteSeriesRepository;
+
+    @Mock
+    private QuoteStoreService.QuoteFetcher fetcher;
+
+    private LocalDate today = LocalDate.now();
+
+    @Before
+    public void init() {
+        initMocks(this);
+        // the store fetches series, the tests stub the quote lists they are made of
+        doCallRealMethod().when(fetcher).fetchSeries(anyString(), any(LocalDate.class), any(LocalDate.class));
+    }
+
+    @Test
+    public void testEmptyStoreFetchesWholeRange() {
+        LocalDate from = today.minusDays(10);
+        doReturn(createQuotes(from, today)).when(fetcher).fetch(SYMBOL, from, today);
+
+        List<HistoricalDataQuote> quotes = service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher);
+
+        assertEquals(11, quotes.size());
+        assertEquals(from.toString(), quotes.get(0).getDate());
+        verify(fetcher, times(1)).fetch(SYMBOL, from, today);
+        verify(storedQuoteSeriesRepository, times(1)).save(any(StoredQuoteSeries.class));
+    }
+
+    @Test
+    public void testCoveredRangeFetchedToday() {
+        LocalDate from = today.minusDays(10);
+        StoredQuoteSeries stored = createStored(from, today.minusDays(1));
+        stored.setLastFetched((int) today.toEpochDay());
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+
+        List<HistoricalDataQuote> quotes = service.getHistoricalExchangeRates(SYMBOL, from.plusDays(2), today, fetcher);
+
+        assertEquals(8, quotes.size());
+        verify(fetcher, never()).fetch(anyString(), any(LocalDate.class), any(LocalDate.class));
+        verify(storedQuoteSeriesRepository, never()).save(any(StoredQuoteSeries.class));
+    }
+
+    @Test
+    public void testOnlyGapsAreFetched() {
+        LocalDate coveredFrom = today.minusDays(10);
+        LocalDate coveredTo = today.minusDays(3);
+        StoredQuoteSeries stored = createStored(coveredFrom, coveredTo);
+        stored.setLastFetched((int) coveredTo.toEpochDay());
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+
+        LocalDate from = today.minusDays(15);
+        doReturn(createQuotes(from, coveredFrom.minusDays(1))).when(fetcher).fetch(SYMBOL, from, coveredFrom.minusDays(1));
+        doReturn(createQuotes(coveredTo.plusDays(1), today)).when(fetcher).fetch(SYMBOL, coveredTo.plusDays(1), today);
+
+        List<HistoricalDataQuote> quotes = service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher);
+
+        assertEquals(16, quotes.size());
+        assertEquals((int) from.toEpochDay(), (int) stored.getCoveredFrom());
+        assertEquals((int) today.minusDays(1).toEpochDay(), (int) stored.getCoveredTo());
+        assertEquals((int) today.toEpochDay(), (int) stored.getLastFetched());
+        verify(fetcher, times(2)).fetch(anyString(), any(LocalDate.class), any(LocalDate.class));
+        verify(storedQuoteSeriesRepository, times(1)).save(stored);
+    }
+
+    @Test
+    public void testFetchErrorKeepsStoredQuotes() {
+        LocalDate coveredFrom = today.minusDays(10);
+        LocalDate coveredTo = today.minusDays(3);
+        StoredQuoteSeries stored = createStored(coveredFrom, coveredTo);
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+        doThrow(new RuntimeException("provider down")).when(fetcher).fetch(SYMBOL, coveredTo.plusDays(1), today);
+
+        List<HistoricalDataQuote> quotes = service.getHistoricalExchangeRates(SYMBOL, coveredFrom, today, fetcher);
+
+        assertEquals(8, quotes.size());
+        assertEquals((int) coveredTo.toEpochDay(), (int) stored.getCoveredTo());
+        verify(storedQuoteSeriesRepository, never()).save(any(StoredQuoteSeries.class));
+    }
+
+    @Test
+    public void testEmptyFetchIsNotStored() {
+        LocalDate from = today.minusDays(10);
+        doReturn(new ArrayList<>()).when(fetcher).fetch(SYMBOL, from, today);
+
+        assertTrue(service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher).isEmpty());
+        assertTrue(service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher).isEmpty());
+
+        // the range is fetched again, e.g. once the code of the symbol is resolved
+        verify(fetcher, times(2)).fetch(SYMBOL, from, today);
+        verify(storedQuoteSeriesRepository, never()).save(any(StoredQuoteSeries.class));
+    }
+
+    @Test
+    public void testEmptyWeekendIsStored() {
+        LocalDate friday = LocalDate.of(2017, 3, 10);
+        StoredQuoteSeries stored = createStored(friday.minusDays(7), friday);
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+        LocalDate saturday = friday.plusDays(1);
+        LocalDate sunday = friday.plusDays(2);
+        doReturn(new ArrayList<>()).when(fetcher).fetch(SYMBOL, saturday, sunday);
+
+        service.getHistoricalExchangeRates(SYMBOL, friday.minusDays(7), sunday, fetcher);
+
+        assertEquals((int) sunday.toEpochDay(), (int) stored.getCoveredTo());
+        verify(storedQuoteSeriesRepository, times(1)).save(stored);
+    }
+
+    @Test
+    public void testEmptyRangeBeforeStoredQuotesIsCovered() {
+        LocalDate coveredFrom = LocalDate.of(2017, 3, 6);
+        StoredQuoteSeries stored = createStored(coveredFrom, coveredFrom.plusDays(7));
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+        LocalDate from = coveredFrom.minusDays(14);
+        doReturn(new ArrayList<>()).when(fetcher).fetch(SYMBOL, from, coveredFrom.minusDays(1));
+
+        // e.g. the stock was listed on the first stored day
+        service.getHistoricalExchangeRates(SYMBOL, from, coveredFrom.plusDays(7), fetcher);
+        service.getHistoricalExchangeRates(SYMBOL, from, coveredFrom.plusDays(7), fetcher);
+
+        assertEquals((int) from.toEpochDay(), (int) stored.getCoveredFrom());
+        verify(fetcher, times(1)).fetch(anyString(), any(LocalDate.class), any(LocalDate.class));
+        verify(storedQuoteSeriesRepository, times(1)).save(stored);
+    }
+
+    @Test
+    public void testStoredRangeIsReadWhileFetching() throws Exception {
+        LocalDate from = today.minusDays(10);
+        StoredQuoteSeries stored = createStored(from, today.minusDays(1));
+        stored.setLastFetched((int) today.minusDays(1).toEpochDay());
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            fetching.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return createQuotes(today, today);
+        }).when(fetcher).fetch(SYMBOL, today, today);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<HistoricalDataQuote>> first = executor.submit(() -> service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher));
+            assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+            // the lock of the symbol is not held during the fetch
+            assertEquals(10, service.getHistoricalExchangeRates(SYMBOL, from, today.minusDays(1), fetcher).size());
+
+            // the same range waits for the running fetch instead of fetching again
+            Future<List<HistoricalDataQuote>> second = executor.submit(() -> service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(11, first.get(5, TimeUnit.SECONDS).size());
+            assertEquals(11, second.get(5, TimeUnit.SECONDS).size());
+            verify(fetcher, times(1)).fetch(anyString(), any(LocalDate.class), any(LocalDate.class));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAppendedCloseNeedsNoFetchToday() {
+        LocalDate from = today.minusDays(10);
+        LocalDate yesterday = today.minusDays(1);
+        StoredQuoteSeries stored = createStored(from, yesterday);
+        stored.setLastFetched((int) yesterday.toEpochDay());
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+
+        assertTrue(service.appendClose(SYMBOL, yesterday, 42));
+        List<HistoricalDataQuote> quotes = service.getHistoricalExchangeRates(SYMBOL, from, today, fetcher);
+
+        assertEquals(10, quotes.size());
+        assertEquals(42, quotes.get(9).getClose(), 0);
+        assertEquals((int) today.toEpochDay(), (int) stored.getLastFetched());
+        verify(fetcher, never()).fetch(anyString(), any(LocalDate.class), any(LocalDate.class));
+        verify(storedQuoteSeriesRepository, times(1)).save(stored);
+    }
+
+    @Test
+    public void testCloseIsAppendedAfterWeekend() {
+        LocalDate friday = LocalDate.of(2017, 3, 10);
+        LocalDate monday = LocalDate.of(2017, 3, 13);
+        StoredQuoteSeries stored = createStored(friday.minusDays(7), friday);
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+
+        assertTrue(service.appendClose(SYMBOL, monday, 42));
+
+        assertEquals((int) monday.toEpochDay(), (int) stored.getCoveredTo());
+        assertEquals((int) monday.toEpochDay(), stored.getEpochDays()[stored.getEpochDays().length - 1]);
+    }
+
+    @Test
+    public void testCloseAfterGapIsNotAppended() {
+        LocalDate wednesday = LocalDate.of(2017, 3, 8);
+        StoredQuoteSeries stored = createStored(wednesday.minusDays(7), wednesday);
+        doReturn(stored).when(storedQuoteSeriesRepository).findOne(SYMBOL);
+
+        assertFalse(service.appendClose(SYMBOL, LocalDate.of(2017, 3, 13), 42));
+        assertFalse(service.appendClose("UNKNOWN", LocalDate.of(2017, 3, 13), 42));
+
+        assertEquals((int) wednesday.toEpochDay(), (int) stored.getCoveredTo());
+        verify(storedQuoteSeriesRepository, never()).save(any(StoredQuoteSeries.class));
+    }
+
+    private StoredQuoteSeries createStored(LocalDate from, LocalDate to) {
+        List<HistoricalDataQuote> quotes = createQuotes(from, to);
+        int[] days = new int[quotes.size()];
+        double[] closes = new double[quotes.size()];
+        for (int i = 0; i < quotes.size(); i++) {
+            days[i] = (int) LocalDate.parse(quotes.get(i).getDate()).toEpochDay();
+            closes[i] = quotes.get(i).getClose();
+        }
+
+        StoredQuoteSeries stored = new StoredQuoteSeries(SYMBOL);
+        stored.merge((int) from.toEpochDay(), (int) to.toEpochDay(), days, closes);
+        stored.setCoveredFrom((int) from.toEpochDay());
+        stored.setCoveredTo((int) to.toEpochDay());
+        return stored;
+    }
+
+    private List<HistoricalDataQuote> createQuotes(LocalDate from, LocalDate to) {
+        List<HistoricalDataQuote> quotes = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            quotes.add(new HistoricalDataQuote(SYMBOL, date.toString(), 100 + date.getDayOfMonth()));
+        }
+        return quotes;
+    }
+}
@@ -0,0 +1,81 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.ResolvedProviderCode;
+import eu.yaga.stockanalyzer.repository.ResolvedProviderCodeRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link MongoResolvedCodeServiceImpl}
+ */
+public class MongoResolvedCodeServiceImplTest {
+
+    private static final String PROVIDER = "quandl";
+    private static final String SYMBOL = "ABC.DE";
+
+    @InjectMocks
+    private MongoResolvedCodeServiceImpl service;
+
+    @Mock
+    private ResolvedProviderCodeRepository resolvedProviderCodeRepository;
+
+    @Before
+    public void init() {
+        initMocks(this);
+    }
+
+    @Test
+    public void testCodeIsReadOnce() {
+        doReturn(new ResolvedProviderCode(PROVIDER, SYMBOL, "SSE/ABC")).when(resolvedProviderCodeRepository).findOne("quandl:ABC.DE");
+
+        assertEquals("SSE/ABC", service.getCode(PROVIDER, SYMBOL));
+        assertEquals("SSE/ABC", service.getCode(PROVIDER, SYMBOL));
+        assertNull(service.getCode(PROVIDER, "XYZ.DE"));
+        assertNull(service.getCode(PROVIDER, "XYZ.DE"));
+
+        verify(resolvedProviderCodeRepository, times(2)).findOne(anyString());
+    }
+
+    @Test
+    public void testCodeIsOnlyWrittenWhenItChanges() {
+        service.resolved(PROVIDER, SYMBOL, "SSE/ABC");
+        service.resolved(PROVIDER, SYMBOL, "SSE/ABC");
+        service.resolved(PROVIDER, SYMBOL, "FSE/ABC_X");
+
+        verify(resolvedProviderCodeRepository, times(2)).save(any(ResolvedProviderCode.class));
+        assertEquals("FSE/ABC_X", service.getCode(PROVIDER, SYMBOL));
+    }
+
+    @Test
+    public void testOnlyTheStoredCodeIsInvalidated() {
+        service.resolved(PROVIDER, SYMBOL, "SSE/ABC");
+
+        service.invalidate(PROVIDER, SYMBOL, "GOOG/FRA_ABC");
+        assertEquals("SSE/ABC", service.getCode(PROVIDER, SYMBOL));
+
+        service.invalidate(PROVIDER, SYMBOL, "SSE/ABC");
+        assertNull(service.getCode(PROVIDER, SYMBOL));
+        verify(resolvedProviderCodeRepository, times(1)).delete("quandl:ABC.DE");
+    }
+
+    @Test
+    public void testKnownCodeIsTriedFirst() {
+        service.resolved(PROVIDER, SYMBOL, "SSE/ABC");
+        List<String> candidates = new ArrayList<>(Arrays.asList("GOOG/FRA_ABC", "FSE/ABC_X", "SSE/ABC"));
+
+        assertEquals(Arrays.asList("SSE/ABC", "GOOG/FRA_ABC", "FSE/ABC_X"), service.knownFirst(PROVIDER, SYMBOL, candidates, code -> code));
+    }
+}
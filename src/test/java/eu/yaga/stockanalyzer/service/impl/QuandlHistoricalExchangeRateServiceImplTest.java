@@ -0,0 +1,126 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import eu.yaga.stockanalyzer.model.historicaldata.ResolvedProviderCode;
+import eu.yaga.stockanalyzer.repository.ResolvedProviderCodeRepository;
+import eu.yaga.stockanalyzer.util.QuandlClient;
+import org.apache.http.client.HttpResponseException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.threeten.bp.LocalDate;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link QuandlHistoricalExchangeRateServiceImpl}
+ */
+public class QuandlHistoricalExchangeRateServiceImplTest {
+
+    private static final String SYMBOL = "ABC.DE";
+    private static final String FROM = "2017-03-01";
+    private static final String TO = "2017-03-10";
+
+    @Mock
+    private QuandlClient quandlClient;
+
+    @Mock
+    private ResolvedProviderCodeRepository resolvedProviderCodeRepository;
+
+    @InjectMocks
+    private MongoResolvedCodeServiceImpl resolvedCodeService;
+
+    private QuandlHistoricalExchangeRateServiceImpl service;
+
+    @Before
+    public void init() {
+        initMocks(this);
+        service = new QuandlHistoricalExchangeRateServiceImpl();
+        ReflectionTestUtils.setField(service, "quandlClient", quandlClient);
+        ReflectionTestUtils.setField(service, "resolvedCodeService", resolvedCodeService);
+    }
+
+    @Test
+    public void testFirstCodeWithQuotesIsUsed() throws Exception {
+        doThrow(new IOException("timeout")).when(quandlClient).getCloses(eq("GOOG/FRA_ABC"), anyString(), eq(FROM), eq(TO));
+        doReturn(closes("FSE/ABC_X", 10, 11)).when(quandlClient).getCloses(eq("FSE/ABC_X"), anyString(), eq(FROM), eq(TO));
+
+        List<HistoricalDataQuote> quotes = service.getHistoricalExchangeRates(SYMBOL, FROM, TO);
+
+        assertEquals(2, quotes.size());
+        assertEquals(11, quotes.get(0).getClose(), 0);
+        verify(quandlClient, never()).getCloses(eq("SSE/ABC"), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testEmptyAnswerIsEmpty() throws Exception {
+        doThrow(new IOException("timeout")).when(quandlClient).getCloses(eq("GOOG/FRA_ABC"), anyString(), eq(FROM), eq(TO));
+        doReturn(QuoteSeries.empty("FSE/ABC_X")).when(quandlClient).getCloses(eq("FSE/ABC_X"), anyString(), eq(FROM), eq(TO));
+
+        assertEquals(0, service.getHistoricalExchangeRates(SYMBOL, FROM, TO).size());
+    }
+
+    @Test
+    public void testFailureOfEveryCodeIsThrown() throws Exception {
+        IOException lastError = new IOException("timeout");
+        doThrow(lastError).when(quandlClient).getCloses(anyString(), anyString(), eq(FROM), eq(TO));
+
+        try {
+            service.getHistoricalExchangeRates(SYMBOL, FROM, TO);
+            fail("the request should fail");
+        } catch (RuntimeException e) {
+            assertEquals(lastError, e.getCause());
+        }
+
+        verify(quandlClient, times(3)).getCloses(anyString(), anyString(), eq(FROM), eq(TO));
+    }
+
+    @Test
+    public void testStoredCodeIsKeptOnNetworkErrors() throws Exception {
+        doReturn(new ResolvedProviderCode("quandl", SYMBOL, "SSE/ABC")).when(resolvedProviderCodeRepository).findOne("quandl:ABC.DE");
+        doThrow(new IOException("timeout")).when(quandlClient).getCloses(eq("SSE/ABC"), anyString(), eq(FROM), eq(TO));
+        doThrow(new HttpResponseException(503, "unavailable")).when(quandlClient).getCloses(eq("GOOG/FRA_ABC"), anyString(), eq(FROM), eq(TO));
+        doThrow(new IOException("connection reset")).when(quandlClient).getCloses(eq("FSE/ABC_X"), anyString(), eq(FROM), eq(TO));
+
+        try {
+            service.getHistoricalExchangeRates(SYMBOL, FROM, TO);
+            fail("the request should fail");
+        } catch (RuntimeException e) {
+            assertEquals("connection reset", e.getCause().getMessage());
+        }
+
+        verify(resolvedProviderCodeRepository, never()).delete(anyString());
+        assertEquals("SSE/ABC", resolvedCodeService.getCode("quandl", SYMBOL));
+    }
+
+    @Test
+    public void testInvalidStoredCodeIsDropped() throws Exception {
+        doReturn(new ResolvedProviderCode("quandl", SYMBOL, "SSE/ABC")).when(resolvedProviderCodeRepository).findOne("quandl:ABC.DE");
+        doThrow(new QuandlClient.InvalidDataSetException("Unknown data set SSE/ABC", null))
+                .when(quandlClient).getCloses(eq("SSE/ABC"), anyString(), eq(FROM), eq(TO));
+        doReturn(closes("GOOG/FRA_ABC", 10)).when(quandlClient).getCloses(eq("GOOG/FRA_ABC"), anyString(), eq(FROM), eq(TO));
+
+        assertEquals(1, service.getHistoricalExchangeRates(SYMBOL, FROM, TO).size());
+
+        verify(resolvedProviderCodeRepository, times(1)).delete("quandl:ABC.DE");
+    }
+
+    private static QuoteSeries closes(String code, double... closes) {
+        int[] epochDays = new int[closes.length];
+        for (int i = 0; i < closes.length; i++) {
+            epochDays[i] = (int) LocalDate.parse(FROM).plusDays(i).toEpochDay();
+        }
+        return new QuoteSeries(code, epochDays, closes);
+    }
+}
@@ -0,0 +1,184 @@
+package eu.yaga.stockanalyzer.service.impl;
+
+import eu.yaga.stockanalyzer.exception.TooManyRefreshJobsException;
+import eu.yaga.stockanalyzer.model.FundamentalData;
+import eu.yaga.stockanalyzer.model.RefreshJob;
+import eu.yaga.stockanalyzer.model.StockIndex;
+import eu.yaga.stockanalyzer.repository.FundamentalDataRepository;
+import eu.yaga.stockanalyzer.service.FundamentalDataRefreshService;
+import eu.yaga.stockanalyzer.util.RefreshProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+/**
+ * Tests for {@link RefreshJobServiceImpl}
+ */
+public class RefreshJobServiceImplTest {
+
+    @InjectMocks
+    RefreshJobServiceImpl refreshJobService;
+
+    @Mock
+    FundamentalDataRefreshService fundamentalDataRefreshService;
+
+    @Mock
+    FundamentalDataRepository fundamentalDataRepository;
+
+    @Spy
+    RefreshProperties refreshProperties = new RefreshProperties();
+
+    @Before
+    public void init() throws Exception {
+        initMocks(this);
+        doAnswer(invocation -> {
+            FundamentalData fd = new FundamentalData();
+            fd.setSymbol(invocation.getArgumentAt(0, String.class));
+            fd.setOverallRating(3);
+            return fd;
+        }).when(fundamentalDataRefreshService).rateFundamentalData(any(String.class));
+        doThrow(new IllegalStateException("no data")).when(fundamentalDataRefreshService).rateFundamentalData("XYZ.DE");
+        doAnswer(invocation -> ((Collection<?>) invocation.getArgumentAt(0, Collection.class)).size())
+                .when(fundamentalDataRepository).bulkSave(anyCollectionOf(FundamentalData.class));
+    }
+
+    @After
+    public void shutdown() {
+        refreshJobService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJobIsSavedInOneBulkWrite() throws Exception {
+        RefreshJob job = refreshJobService.startJob(Arrays.asList("ABC.DE", "XYZ.DE", "DEF.DE", "ABC.DE"));
+        awaitFinished(job);
+
+        assertEquals(3, job.getSymbols().size());
+        assertEquals(RefreshJob.SymbolState.SAVED, job.getSymbols().get("ABC.DE").getState());
+        assertEquals(3, (int) job.getSymbols().get("ABC.DE").getOverallRating());
+        assertEquals(RefreshJob.SymbolState.FAILED, job.getSymbols().get("XYZ.DE").getState());
+        assertEquals("no data", job.getSymbols().get("XYZ.DE").getError());
+        assertEquals(RefreshJob.SymbolState.SAVED, job.getSymbols().get("DEF.DE").getState());
+        assertNotNull(job.getFinished());
+
+        ArgumentCaptor<Collection> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(fundamentalDataRepository, times(1)).bulkSave(saved.capture());
+        verify(fundamentalDataRepository, never()).save(any(FundamentalData.class));
+        assertEquals(2, saved.getValue().size());
+        assertSame(job, refreshJobService.getJob(job.getId()));
+    }
+
+    @Test
+    public void testFailedBulkWriteFailsRatedStocks() throws Exception {
+        doThrow(new IllegalStateException("connection lost")).when(fundamentalDataRepository).bulkSave(anyCollectionOf(FundamentalData.class));
+
+        RefreshJob job = refreshJobService.startJob(Arrays.asList("ABC.DE", "XYZ.DE"));
+        awaitFinished(job);
+
+        assertEquals(RefreshJob.SymbolState.FAILED, job.getSymbols().get("ABC.DE").getState());
+        assertEquals("Saving failed: connection lost", job.getSymbols().get("ABC.DE").getError());
+        assertEquals(2, (int) job.getSummary().get(RefreshJob.SymbolState.FAILED));
+    }
+
+    @Test
+    public void testInterruptedJobIsFinished() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            Thread.sleep(10000);
+            return null;
+        }).when(fundamentalDataRefreshService).rateFundamentalData("SLOW.DE");
+
+        RefreshJob job = refreshJobService.startJob(Arrays.asList("ABC.DE", "SLOW.DE"));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        refreshJobService.shutdown();
+        awaitFinished(job);
+
+        assertNotNull(job.getFinished());
+        assertEquals(RefreshJob.SymbolState.FAILED, job.getSymbols().get("ABC.DE").getState());
+        assertEquals(RefreshJob.SymbolState.FAILED, job.getSymbols().get("SLOW.DE").getState());
+        verify(fundamentalDataRepository, never()).bulkSave(anyCollectionOf(FundamentalData.class));
+    }
+
+    @Test
+    public void testJobsBeyondTheQueueAreRejected() throws Exception {
+        refreshProperties.setMaxQueuedJobs(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(fundamentalDataRefreshService).rateFundamentalData("SLOW.DE");
+
+        RefreshJob first = refreshJobService.startJob(Collections.singletonList("SLOW.DE"));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        RefreshJob queued = refreshJobService.startJob(Collections.singletonList("ABC.DE"));
+        try {
+            refreshJobService.startJob(Collections.singletonList("DEF.DE"));
+            fail("the job should be rejected");
+        } catch (TooManyRefreshJobsException e) {
+            assertEquals(2, refreshJobService.getJobs().size());
+        }
+        release.countDown();
+
+        awaitFinished(first);
+        awaitFinished(queued);
+        verify(fundamentalDataRefreshService, never()).rateFundamentalData("DEF.DE");
+    }
+
+    @Test
+    public void testIndexJobRefreshesStoredMembers() throws Exception {
+        List<Map<String, Object>> stocks = new ArrayList<>();
+        stocks.add(stock("ABC.DE", "DAX"));
+        stocks.add(stock("DEF.DE", "MDAX"));
+        stocks.add(stock("GHI.DE", "DAX"));
+        doReturn(stocks).when(fundamentalDataRepository).findLatestPerSymbol(null, Collections.singletonList("stockIndex"));
+
+        RefreshJob job = refreshJobService.startJob(StockIndex.DAX);
+        awaitFinished(job);
+
+        assertEquals(Arrays.asList("ABC.DE", "GHI.DE"), new ArrayList<>(job.getSymbols().keySet()));
+        verify(fundamentalDataRefreshService, never()).rateFundamentalData("DEF.DE");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManySymbols() {
+        refreshProperties.setMaxJobSymbols(1);
+        refreshJobService.startJob(Arrays.asList("ABC.DE", "DEF.DE"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSymbols() {
+        refreshJobService.startJob(Collections.singletonList(" "));
+    }
+
+    private static Map<String, Object> stock(String symbol, String stockIndex) {
+        Map<String, Object> stock = new LinkedHashMap<>();
+        stock.put("symbol", symbol);
+        stock.put("stockIndex", stockIndex);
+        return stock;
+    }
+
+    private static void awaitFinished(RefreshJob job) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (job.getState() != RefreshJob.State.FINISHED && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(RefreshJob.State.FINISHED, job.getState());
+    }
+}
@@ -15,6 +15,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
 import java.text.SimpleDateFormat;
@@ -141,6 +142,30 @@ public class YahooHistoricalHistoricalDataQuoteServiceImplTest {
         List<HistoricalDataQuote> erList = service.getHistoricalExchangeRates(symbol, from, to);
     }
 
+    @Test
+    public void testHistoricalExchangeRatesWithoutQuotes() throws Exception {
+        String from = "2016-01-01";
+        String to = "2016-01-31";
+        YqlHistoricalDataQuery yqlQuery = new YqlHistoricalDataQuery();
+        yqlQuery.setQuery(new HistoricalDataQuery());
+        when(restTemplate.getForObject(
+                eq(YQL_BASE_URL + String.format(YQL_QUERY_HISTORICAL_RATES, symbol, from, to) + YQL_QUERY_POSTFIX),
+                eq(YqlHistoricalDataQuery.class))).thenReturn(yqlQuery);
+
+        assertEquals(0, service.getHistoricalExchangeRates(symbol, from, to).size());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testHistoricalExchangeRatesFailedRequestException() throws Exception {
+        String from = "2016-01-01";
+        String to = "2016-01-31";
+        when(restTemplate.getForObject(
+                eq(YQL_BASE_URL + String.format(YQL_QUERY_HISTORICAL_RATES, symbol, from, to) + YQL_QUERY_POSTFIX),
+                eq(YqlHistoricalDataQuery.class))).thenThrow(new ResourceAccessException("timeout"));
+
+        service.getHistoricalExchangeRates(symbol, from, to);
+    }
+
     private YqlHistoricalDataQuery generateMock(String symbol, String fromString, String toString) throws Exception {
         YqlHistoricalDataQuery yqlQuery = new YqlHistoricalDataQuery();
         HistoricalDataQuery query = new HistoricalDataQuery();
@@ -0,0 +1,44 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.EarningsPerShare;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link EpsHistory}
+ */
+public class EpsHistoryTest {
+
+    @Test
+    public void testOnlyChangesAreKept() {
+        Map<String, EarningsPerShare> history = new LinkedHashMap<>();
+        // unsorted like a map read from the database may be
+        history.put("2017-03-01", new EarningsPerShare(2, 3));
+        history.put("2017-01-01", new EarningsPerShare(1, 2));
+        history.put("2017-01-08", new EarningsPerShare(1, 2));
+        history.put("2017-02-01", new EarningsPerShare(2, 3));
+        history.put("2017-04-01", new EarningsPerShare(1, 2));
+
+        TreeMap<String, EarningsPerShare> changePoints = EpsHistory.changePoints(history);
+
+        assertEquals(Arrays.asList("2017-01-01", "2017-02-01", "2017-04-01"), new ArrayList<>(changePoints.keySet()));
+    }
+
+    @Test
+    public void testOldestEntriesAreRemoved() {
+        TreeMap<String, EarningsPerShare> history = new TreeMap<>();
+        for (int month = 1; month <= 5; month++) {
+            history.put("2017-0" + month + "-01", new EarningsPerShare(month, month + 1));
+        }
+
+        SortedMap<String, EarningsPerShare> removed = EpsHistory.removeOldest(history, 3);
+
+        assertEquals(Arrays.asList("2017-01-01", "2017-02-01"), new ArrayList<>(removed.keySet()));
+        assertEquals(Arrays.asList("2017-03-01", "2017-04-01", "2017-05-01"), new ArrayList<>(history.keySet()));
+        assertTrue(EpsHistory.removeOldest(history, 3).isEmpty());
+    }
+}
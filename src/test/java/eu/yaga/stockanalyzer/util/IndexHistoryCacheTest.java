@@ -0,0 +1,153 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link IndexHistoryCache}
+ */
+public class IndexHistoryCacheTest {
+
+    private static final String FROM = "2017-01-02";
+    private static final String TO = "2017-03-10";
+
+    @Test
+    public void testKeyContainsRange() {
+        IndexHistoryCache cache = new IndexHistoryCache(4);
+        QuoteSeries history = history("^GDAXI");
+
+        cache.put("^GDAXI", FROM, TO, history);
+
+        assertSame(history, cache.get("^GDAXI", FROM, TO));
+        assertNull(cache.get("^GDAXI", FROM, "2017-03-09"));
+        assertNull(cache.get("^MDAXI", FROM, TO));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        IndexHistoryCache cache = new IndexHistoryCache(2);
+        cache.put("^GDAXI", FROM, TO, history("^GDAXI"));
+        cache.put("^MDAXI", FROM, TO, history("^MDAXI"));
+        cache.get("^GDAXI", FROM, TO);
+
+        cache.put("^SDAXI", FROM, TO, history("^SDAXI"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("^MDAXI", FROM, TO));
+        assertEquals("^GDAXI", cache.get("^GDAXI", FROM, TO).getSymbol());
+    }
+
+    @Test
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        IndexHistoryCache cache = new IndexHistoryCache(4);
+        QuoteSeries history = history("^GDAXI");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IndexHistoryCache.HistoryLoader loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return history;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<QuoteSeries>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.getOrLoad("^GDAXI", FROM, TO, loader)));
+            loading.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.getOrLoad("^GDAXI", FROM, TO, loader)));
+            }
+            release.countDown();
+
+            for (Future<QuoteSeries> result : results) {
+                assertSame(history, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertSame(history, cache.get("^GDAXI", FROM, TO));
+    }
+
+    @Test
+    public void testFailedLoadIsNotKept() throws Exception {
+        IndexHistoryCache cache = new IndexHistoryCache(4);
+        try {
+            cache.getOrLoad("^GDAXI", FROM, TO, () -> {
+                throw new ParseException("invalid date", 0);
+            });
+            fail("the load failed");
+        } catch (ParseException e) {
+            assertEquals("invalid date", e.getMessage());
+        }
+
+        assertNull(cache.get("^GDAXI", FROM, TO));
+        QuoteSeries history = history("^GDAXI");
+        assertSame(history, cache.getOrLoad("^GDAXI", FROM, TO, () -> history));
+    }
+
+    @Test
+    public void testLoaderErrorReleasesWaiters() throws Exception {
+        IndexHistoryCache cache = new IndexHistoryCache(4);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IndexHistoryCache.HistoryLoader loader = () -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new OutOfMemoryError("no memory left");
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<QuoteSeries> first = executor.submit(() -> cache.getOrLoad("^GDAXI", FROM, TO, loader));
+            loading.await(5, TimeUnit.SECONDS);
+            Future<QuoteSeries> waiting = executor.submit(() -> cache.getOrLoad("^GDAXI", FROM, TO, loader));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<QuoteSeries> result : Arrays.asList(first, waiting)) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                    fail("the load failed");
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof OutOfMemoryError);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNull(cache.get("^GDAXI", FROM, TO));
+    }
+
+    private QuoteSeries history(String symbol) {
+        return new QuoteSeries(symbol, new int[]{17235}, new double[]{100});
+    }
+}
@@ -0,0 +1,202 @@
+package eu.yaga.stockanalyzer.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.yaga.stockanalyzer.model.FundamentalDataUrlType;
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link PooledHttpClient} against a local http server
+ */
+public class PooledHttpClientTest {
+
+    private static final String PAGE = "<html>\n<body>Geschäftsjahresende</body>\n</html>";
+
+    @Rule
+    public TemporaryFolder cacheFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private HttpClientProperties properties;
+    private PooledHttpClient client;
+    private AtomicInteger etagRequests = new AtomicInteger();
+
+    @Before
+    public void init() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/etag", exchange -> {
+            etagRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                respond(exchange, 304, new byte[0]);
+            } else {
+                respond(exchange, 200, PAGE.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.createContext("/page", exchange -> respond(exchange, 200, PAGE.getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/gzip", exchange -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+                gzip.write(PAGE.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            respond(exchange, 200, bytes.toByteArray());
+        });
+        server.createContext("/first", exchange -> redirect(exchange, "/second"));
+        server.createContext("/second", exchange -> redirect(exchange, "/page"));
+        server.createContext("/loop", exchange -> redirect(exchange, "/loop"));
+        server.createContext("/missing", exchange -> respond(exchange, 404, new byte[0]));
+        server.start();
+
+        properties = new HttpClientProperties();
+        properties.getCache().setDirectory(cacheFolder.getRoot().getPath());
+        client = new PooledHttpClient(properties);
+    }
+
+    @After
+    public void close() throws Exception {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testBodyKeepsLineBreaks() throws Exception {
+        assertEquals(PAGE, client.queryHTML(url("/page")));
+    }
+
+    @Test
+    public void testGzipResponseIsDecompressed() throws Exception {
+        assertEquals(PAGE, client.queryHTML(url("/gzip")));
+    }
+
+    @Test
+    public void testRedirectChainIsFollowed() throws Exception {
+        assertEquals(PAGE, client.queryHTML(url("/first")));
+    }
+
+    @Test
+    public void testFailedRequests() throws Exception {
+        assertEquals("", client.queryHTML(url("/missing")));
+        assertEquals("", client.queryHTML(url("/loop")));
+
+        try {
+            client.query(url("/missing"), body -> "unexpected");
+            fail("404 should fail");
+        } catch (HttpResponseException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        assertEquals(3L, client.getStatistics().get("errors"));
+    }
+
+    @Test
+    public void testCachedPageWithinTtlNeedsNoRequest() throws Exception {
+        assertEquals(PAGE, client.queryHTML(url("/etag"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA));
+        assertEquals(PAGE, client.queryHTML(url("/etag"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA));
+
+        assertEquals(1, etagRequests.get());
+        assertEquals(1L, client.getStatistics().get("cacheHits"));
+    }
+
+    @Test
+    public void testExpiredPageIsRevalidated() throws Exception {
+        properties.getCache().getTtlMinutes().put(FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA.name(), 0);
+        client.close();
+        client = new PooledHttpClient(properties);
+
+        assertEquals(PAGE, client.queryHTML(url("/etag"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA));
+        assertEquals(PAGE, client.query(url("/etag"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA, PooledHttpClientTest::read));
+
+        assertEquals(2, etagRequests.get());
+        assertEquals(1L, client.getStatistics().get("notModified"));
+    }
+
+    @Test
+    public void testOnlySentRequestsAreCharged() throws Exception {
+        Map<String, RatingBotProperties.RateLimit> rateLimits = new LinkedHashMap<>();
+        rateLimits.put(RequestBudget.ONVISTA, new RatingBotProperties.RateLimit(2, 0));
+        RequestBudget requestBudget = new RequestBudget(rateLimits);
+        client.close();
+        client = new PooledHttpClient(properties, requestBudget);
+
+        client.queryHTML(url("/etag"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA);
+        client.queryHTML(url("/etag"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA);
+        client.queryHTML(url("/page"));
+        assertNull(requestBudget.getExhausted());
+
+        client.queryHTML(url("/page"), FundamentalDataUrlType.ONVISTA_FUNDAMENTAL_DATA);
+        assertEquals(RequestBudget.ONVISTA, requestBudget.getExhausted());
+    }
+
+    @Test
+    public void testUncachedTypeIsAlwaysRequested() throws Exception {
+        client.queryHTML(url("/etag"), FundamentalDataUrlType.QUARTERLY_FIGURES);
+        client.queryHTML(url("/etag"), FundamentalDataUrlType.QUARTERLY_FIGURES);
+
+        assertEquals(2, etagRequests.get());
+        assertEquals(0, cacheFolder.getRoot().list().length);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConnectionIsReused() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            // stop reading after the first line, the connection must still go back to the pool
+            assertEquals("<html>", client.query(url("/page"), body -> String.valueOf(new char[]{(char) body.read(), (char) body.read(),
+                    (char) body.read(), (char) body.read(), (char) body.read(), (char) body.read()})));
+        }
+
+        Map<String, Object> statistics = client.getStatistics();
+        assertEquals(5L, statistics.get("requests"));
+        Map<String, Integer> total = (Map<String, Integer>) statistics.get("total");
+        assertEquals(0, (int) total.get("leased"));
+        assertEquals(1, (int) total.get("available"));
+        assertTrue(((Map<String, Object>) statistics.get("hosts")).containsKey("http://localhost:" + server.getAddress().getPort()));
+    }
+
+    private static String read(Reader body) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = body.read()) != -1) {
+            sb.append((char) c);
+        }
+        return sb.toString();
+    }
+
+    private URL url(String path) throws Exception {
+        return new URL("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    private static void redirect(HttpExchange exchange, String location) throws IOException {
+        exchange.getResponseHeaders().add("Location", location);
+        respond(exchange, 302, new byte[0]);
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package eu.yaga.stockanalyzer.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import eu.yaga.stockanalyzer.model.historicaldata.QuoteSeries;
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link QuandlClient} against a local quandl stub server
+ */
+public class QuandlClientTest {
+
+    private static final String DATA_SET = "{\"dataset_data\":{"
+            + "\"column_names\":[\"Date\",\"Open\",\"Close\"],"
+            + "\"data\":[[\"2017-03-08\",10.0,11.5],[\"2017-03-09\",11.5,null],[\"2017-03-10\",11.0,12.25]]}}";
+
+    private HttpServer server;
+    private QuandlProperties properties;
+    private HttpClientProperties httpClientProperties;
+    private PooledHttpClient httpClient;
+    private QuandlClient client;
+    private List<String> queries = new ArrayList<>();
+
+    @Before
+    public void init() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/v3/datasets/FSE/ABC_X/data.json", exchange -> {
+            queries.add(exchange.getRequestURI().getQuery());
+            respond(exchange, 200, DATA_SET);
+        });
+        server.createContext("/api/v3/datasets/FSE/UNKNOWN_X/data.json", exchange -> respond(exchange, 404, "{}"));
+        server.createContext("/api/v3/datasets/FSE/BUSY_X/data.json", exchange -> respond(exchange, 503, "{}"));
+        server.start();
+
+        properties = new QuandlProperties();
+        properties.setAuth(new QuandlProperties.Auth());
+        properties.getAuth().setToken("secret");
+        properties.setBaseUrl("http://localhost:" + server.getAddress().getPort() + "/api/v3/");
+        properties.setCacheSize(2);
+
+        httpClientProperties = new HttpClientProperties();
+        httpClientProperties.getCache().setDirectory("");
+        httpClient = new PooledHttpClient(httpClientProperties);
+        client = new QuandlClient(httpClient, properties);
+    }
+
+    @After
+    public void close() throws Exception {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testClosesOfTheWindow() throws Exception {
+        QuoteSeries closes = client.getCloses("FSE/ABC_X", "Close", "2017-03-08", "2017-03-10");
+
+        // the day without a close is left out
+        assertEquals(2, closes.size());
+        assertEquals(LocalDate.of(2017, 3, 8), closes.getDate(0));
+        assertEquals(11.5, closes.getClose(0), 0);
+        assertEquals(LocalDate.of(2017, 3, 10), closes.getDate(1));
+        assertEquals(12.25, closes.getClose(1), 0);
+        assertEquals("order=asc&start_date=2017-03-08&end_date=2017-03-10&api_key=secret", queries.get(0));
+    }
+
+    @Test
+    public void testPastWindowIsCached() throws Exception {
+        client.getCloses("FSE/ABC_X", "Close", "2017-03-08", "2017-03-10");
+        client.getCloses("FSE/ABC_X", "Close", "2017-03-08", "2017-03-10");
+        assertEquals(1, queries.size());
+
+        client.getCloses("FSE/ABC_X", "Close", "2017-03-01", "2017-03-10");
+        client.getCloses("FSE/ABC_X", "Open", "2017-03-08", "2017-03-10");
+        assertEquals(3, queries.size());
+
+        // the least recently used window has been dropped
+        client.getCloses("FSE/ABC_X", "Close", "2017-03-08", "2017-03-10");
+        assertEquals(4, queries.size());
+        assertEquals(1L, client.getStatistics().get("cacheHits"));
+        assertEquals(2, client.getStatistics().get("cachedWindows"));
+    }
+
+    @Test
+    public void testUnknownCodeFails() throws Exception {
+        try {
+            client.getCloses("FSE/UNKNOWN_X", "Close", "2017-03-08", "2017-03-10");
+            fail("404 should fail");
+        } catch (QuandlClient.InvalidDataSetException e) {
+            assertEquals(404, ((HttpResponseException) e.getCause()).getStatusCode());
+        }
+    }
+
+    @Test
+    public void testServerErrorIsNoInvalidDataSet() throws Exception {
+        try {
+            client.getCloses("FSE/BUSY_X", "Close", "2017-03-08", "2017-03-10");
+            fail("503 should fail");
+        } catch (QuandlClient.InvalidDataSetException e) {
+            fail("a server error says nothing about the data set");
+        } catch (HttpResponseException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testMissingColumnFails() throws Exception {
+        try {
+            client.getCloses("FSE/ABC_X", "Last", "2017-03-08", "2017-03-10");
+            fail("the data set has no Last column");
+        } catch (QuandlClient.InvalidDataSetException e) {
+            assertTrue(e.getMessage().contains("Last"));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package eu.yaga.stockanalyzer.util;
+
+import eu.yaga.stockanalyzer.model.historicaldata.HistoricalDataQuote;
+import eu.yaga.stockanalyzer.service.HistoricalExchangeRateService;
+import eu.yaga.stockanalyzer.service.QuoteStoreService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link QuoteProviderRouter}
+ */
+public class QuoteProviderRouterTest {
+
+    private static final String SYMBOL = "ABC.DE";
+
+    private LocalDate to = LocalDate.of(2017, 3, 10);
+    private LocalDate from = to.minusDays(7);
+
+    private QuoteRoutingProperties properties = new QuoteRoutingProperties();
+    private Map<String, QuoteStoreService.QuoteFetcher> providers = new HashMap<>();
+    private Map<String, AtomicInteger> requests = new HashMap<>();
+    private CountDownLatch release = new CountDownLatch(1);
+    private QuoteProviderRouter router;
+
+    @Before
+    public void init() {
+        properties.setProviders(Arrays.asList("first", "second"));
+        properties.setHedgeAfterMillis(50);
+        properties.setTimeoutMillis(5000);
+    }
+
+    @After
+    public void close() {
+        release.countDown();
+        if (router != null) {
+            router.close();
+        }
+    }
+
+    @Test
+    public void testFirstProviderIsAskedFirst() {
+        provider("first", quotes(1));
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertEquals(1, router.fetch(SYMBOL, from, to).get(0).getClose(), 0);
+        assertEquals(0, requests.get("second").get());
+    }
+
+    @Test
+    public void testFailingProviderIsAvoided() {
+        provider("first", () -> {
+            throw new RuntimeException("unavailable");
+        });
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertEquals(2, router.fetch("S1", from, to).get(0).getClose(), 0);
+        assertEquals(1, requests.get("first").get());
+
+        // the error penalty ranks the failing provider last, even for symbols it has delivered before
+        assertEquals(2, router.fetch("S2", from, to).get(0).getClose(), 0);
+        assertEquals(1, requests.get("first").get());
+        assertEquals(Arrays.asList("second", "first"), router.rank("S3"));
+    }
+
+    @Test
+    public void testSlowProviderIsHedged() {
+        provider("first", () -> {
+            release.await(10, TimeUnit.SECONDS);
+            return quotes(1).call();
+        });
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        long start = System.currentTimeMillis();
+        assertEquals(2, router.fetch(SYMBOL, from, to).get(0).getClose(), 0);
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(1, requests.get("first").get());
+
+        // the symbol stays with the provider that delivered its quotes
+        assertEquals("second", router.rank(SYMBOL).get(0));
+    }
+
+    @Test
+    public void testEmptyAnswerOfFirstProviderIsFinal() {
+        provider("first", Collections::emptyList);
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertTrue(router.fetch(SYMBOL, from, to).isEmpty());
+        assertEquals(0, requests.get("second").get());
+        assertEquals(0.0, (double) statistics("first").get("errorRate"), 0);
+    }
+
+    @Test
+    public void testEmptyAnswerLosesAgainstHedgedQuotes() {
+        provider("first", () -> {
+            release.await(10, TimeUnit.SECONDS);
+            return Collections.emptyList();
+        });
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertEquals(2, router.fetch(SYMBOL, from, to).get(0).getClose(), 0);
+        assertEquals(1, requests.get("first").get());
+    }
+
+    @Test
+    public void testAllProvidersWithoutQuotes() {
+        provider("first", Collections::emptyList);
+        provider("second", Collections::emptyList);
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertTrue(router.fetch(SYMBOL, from, to).isEmpty());
+        assertEquals(0.0, (double) statistics("first").get("errorRate"), 0);
+        assertEquals(0, requests.get("second").get());
+    }
+
+    @Test
+    public void testAllProvidersFail() {
+        provider("first", () -> {
+            throw new RuntimeException("unavailable");
+        });
+        provider("second", () -> {
+            throw new IllegalStateException("unavailable");
+        });
+        router = new QuoteProviderRouter(providers, properties);
+
+        try {
+            router.fetch(SYMBOL, from, to);
+            fail("the request should fail");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+        assertEquals(1, requests.get("first").get());
+        assertEquals(1, requests.get("second").get());
+    }
+
+    @Test
+    public void testFullPoolSkipsProviders() throws Exception {
+        properties.setThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setTimeoutMillis(1000);
+        CountDownLatch started = new CountDownLatch(1);
+        provider("first", () -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return quotes(1).call();
+        });
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        // the first provider holds the only thread and the hedged request waits in the queue
+        Thread blocking = new Thread(() -> {
+            try {
+                router.fetch("S1", from, to);
+            } catch (RuntimeException e) {
+                // times out
+            }
+        });
+        blocking.setDaemon(true);
+        blocking.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+
+        long start = System.currentTimeMillis();
+        try {
+            router.fetch("S2", from, to);
+            fail("the request should fail");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(System.currentTimeMillis() - start < 500);
+        assertEquals(1, requests.get("first").get());
+        assertEquals(0, requests.get("second").get());
+    }
+
+    @Test
+    public void testFailingServiceCountsAsError() throws Exception {
+        HistoricalExchangeRateService service = mock(HistoricalExchangeRateService.class);
+        doThrow(new RuntimeException("unavailable")).when(service).getHistoricalExchangeRates(anyString(), anyString(), anyString());
+        providers.put("first", QuoteProviderRouter.providerOf(service));
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertEquals(2, router.fetch(SYMBOL, from, to).get(0).getClose(), 0);
+        assertEquals(1.0, (double) statistics("first").get("errorRate"), 0);
+    }
+
+    @Test
+    public void testUnknownProviderIsIgnored() {
+        properties.setProviders(Arrays.asList("unknown", "second"));
+        provider("second", quotes(2));
+        router = new QuoteProviderRouter(providers, properties);
+
+        assertEquals(Collections.singletonList("second"), router.rank(SYMBOL));
+    }
+
+    private interface Answer {
+        List<HistoricalDataQuote> call() throws Exception;
+    }
+
+    private void provider(String name, Answer answer) {
+        AtomicInteger count = new AtomicInteger();
+        requests.put(name, count);
+        providers.put(name, (symbol, from, to) -> {
+            count.incrementAndGet();
+            try {
+                return answer.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private Answer quotes(double close) {
+        return () -> Collections.singletonList(new HistoricalDataQuote(SYMBOL, to.toString(), close));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> statistics(String provider) {
+        return (Map<String, Object>) router.getStatistics().get(provider);
+    }
+}